@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the hot paths of the {@link Cell} engine, measured in 
+ * isolation from the rest of the simulation. Each invocation processes all 
+ * the cells of a small toroidal grid, which are repopulated before every 
+ * invocation, and results are given per cell.
+ * 
+ * Usage: ant bench -Dbench.args=CellBenchmark
+ * 
+ * @author Nuno Fachada
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CellBenchmark {
+	
+	/* Side of the benchmark grid. */
+	static final int SIDE = 32;
+	
+	/* Number of cells in the benchmark grid. */
+	static final int CELLS = SIDE * SIDE;
+	
+	/**
+	 * Species of the agents placed in the cells.
+	 */
+	public enum Mix {
+		
+		/** Only sheep. */
+		SHEEP,
+		
+		/** Only wolves. */
+		WOLVES,
+		
+		/** Half sheep, half wolves. */
+		MIXED
+	}
+	
+	/**
+	 * Simulation parameters used in benchmarks, the same as the parameters 
+	 * of the v1 model configurations.
+	 * 
+	 * @param side Side of the simulation grid.
+	 * @return Simulation parameters.
+	 */
+	static ModelParams params(int side) {
+		Properties p = new Properties();
+		p.setProperty("INIT_SHEEP", "400");
+		p.setProperty("SHEEP_GAIN_FROM_FOOD", "4");
+		p.setProperty("SHEEP_REPRODUCE_THRESHOLD", "2");
+		p.setProperty("SHEEP_REPRODUCE_PROB", "4");
+		p.setProperty("INIT_WOLVES", "200");
+		p.setProperty("WOLVES_GAIN_FROM_FOOD", "20");
+		p.setProperty("WOLVES_REPRODUCE_THRESHOLD", "2");
+		p.setProperty("WOLVES_REPRODUCE_PROB", "5");
+		p.setProperty("GRASS_RESTART", "10");
+		p.setProperty("GRID_X", Integer.toString(side));
+		p.setProperty("GRID_Y", Integer.toString(side));
+		p.setProperty("ITERS", "1000");
+		return new ModelParams(p);
+	}
+	
+	/**
+	 * Benchmark grid, with cells populated according to the benchmark 
+	 * parameters.
+	 */
+	@State(Scope.Thread)
+	public static abstract class Grid {
+		
+		/* Number of agents in each cell. */
+		@Param({"1", "4", "16"})
+		public int agentsPerCell;
+		
+		/* Species of the agents. */
+		@Param({"SHEEP", "WOLVES", "MIXED"})
+		public Mix mix;
+		
+		/* Simulation parameters. */
+		ModelParams params;
+		
+		/* Random number generator, as used in simulations. */
+		RandomGenerator rng;
+		
+		/* The grid cells. */
+		Cell[] cells;
+		
+		/**
+		 * Create the simulation parameters and the random number generator.
+		 * 
+		 * @throws Exception If the random number generator can't be created.
+		 */
+		@Setup(Level.Trial)
+		public void setupTrial() throws Exception {
+			this.params = params(SIDE);
+			this.rng = RNGType.MT.createRNG(
+					new ModelSeedGenerator(0, BigInteger.valueOf(1234)));
+		}
+		
+		/**
+		 * Create a new grid and populate it.
+		 */
+		@Setup(Level.Invocation)
+		public void setupInvocation() {
+			
+			ICellPutAgentStrategy putStrategy = new CellPutAgentAsync();
+			this.cells = new Cell[CELLS];
+			
+			/* Grass is alive in half of the cells. */
+			for (int i = 0; i < CELLS; i++) {
+				this.cells[i] = new Cell(this.params.getGrassRestart(), 
+						i % 2 == 0 ? 0 : 1 + i % this.params.getGrassRestart(),
+						putStrategy, putStrategy);
+			}
+			
+			/* Von Neumann neighborhood in a torus, including the cell itself. */
+			for (int y = 0; y < SIDE; y++) {
+				for (int x = 0; x < SIDE; x++) {
+					List<ICell> neighborhood = new ArrayList<ICell>();
+					neighborhood.add(this.cell(x, y));
+					neighborhood.add(this.cell(x, y - 1));
+					neighborhood.add(this.cell(x + 1, y));
+					neighborhood.add(this.cell(x, y + 1));
+					neighborhood.add(this.cell(x - 1, y));
+					this.cell(x, y).setNeighborhood(neighborhood);
+				}
+			}
+			
+			this.populate();
+		}
+		
+		/**
+		 * Get a cell of the torus.
+		 * 
+		 * @param x Horizontal coordinate, may be out of the grid.
+		 * @param y Vertical coordinate, may be out of the grid.
+		 * @return The cell at the given coordinates, wrapped around the grid.
+		 */
+		private Cell cell(int x, int y) {
+			return this.cells[Math.floorMod(y, SIDE) * SIDE + Math.floorMod(x, SIDE)];
+		}
+		
+		/**
+		 * Create a new agent.
+		 * 
+		 * @param n Sequential number of the agent in its cell.
+		 * @return A new agent.
+		 */
+		IAgent newAgent(int n) {
+			boolean sheep = this.mix == Mix.SHEEP || (this.mix == Mix.MIXED && n % 2 == 0);
+			if (sheep) {
+				return new Sheep(1 + this.rng.nextInt(2 * this.params.getSheepGainFromFood()), 
+						this.params);
+			} else {
+				return new Wolf(1 + this.rng.nextInt(2 * this.params.getWolvesGainFromFood()), 
+						this.params);
+			}
+		}
+		
+		/**
+		 * Populate the grid cells with agents, as required by the benchmark.
+		 */
+		abstract void populate();
+	}
+	
+	/**
+	 * Grid where agents are in the current agents list of each cell, as before
+	 * agent movement.
+	 */
+	public static class CurrentAgentsGrid extends Grid {
+		
+		/**
+		 * @see Grid#populate()
+		 */
+		@Override
+		void populate() {
+			IterationStats stats = new IterationStats();
+			for (Cell cell : this.cells) {
+				for (int n = 0; n < this.agentsPerCell; n++) {
+					cell.putInitAgent(this.newAgent(n));
+				}
+				/* Incorporate the new agents in the current agents list. */
+				cell.getStats(stats);
+			}
+		}
+	}
+	
+	/**
+	 * Grid where agents have just moved into each cell, as before agent 
+	 * actions.
+	 */
+	public static class MovedAgentsGrid extends Grid {
+
+		/**
+		 * @see Grid#populate()
+		 */
+		@Override
+		void populate() {
+			for (Cell cell : this.cells) {
+				for (int n = 0; n < this.agentsPerCell; n++) {
+					cell.putExistingAgent(this.newAgent(n));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Grid where half of the agents of each cell were already in the cell and 
+	 * the other half were just born, as before statistics gathering.
+	 */
+	public static class StatsGrid extends Grid {
+
+		/**
+		 * @see Grid#populate()
+		 */
+		@Override
+		void populate() {
+			IterationStats stats = new IterationStats();
+			for (Cell cell : this.cells) {
+				for (int n = 0; n < this.agentsPerCell; n += 2) {
+					cell.putInitAgent(this.newAgent(n));
+				}
+				cell.getStats(stats);
+				for (int n = 1; n < this.agentsPerCell; n += 2) {
+					cell.putNewAgent(this.newAgent(n));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Benchmark {@link Cell#agentsMove(RandomGenerator)}.
+	 * 
+	 * @param grid Benchmark grid.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(CELLS)
+	public void agentsMove(CurrentAgentsGrid grid) {
+		for (Cell cell : grid.cells) {
+			cell.agentsMove(grid.rng);
+		}
+	}
+	
+	/**
+	 * Benchmark {@link Cell#agentActions(RandomGenerator, boolean)} without shuffling
+	 * the agents.
+	 * 
+	 * @param grid Benchmark grid.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(CELLS)
+	public void agentActions(MovedAgentsGrid grid) {
+		for (Cell cell : grid.cells) {
+			cell.agentActions(grid.rng, false);
+		}
+	}
+
+	/**
+	 * Benchmark {@link Cell#agentActions(RandomGenerator, boolean)} shuffling the 
+	 * agents.
+	 * 
+	 * @param grid Benchmark grid.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(CELLS)
+	public void agentActionsShuffle(MovedAgentsGrid grid) {
+		for (Cell cell : grid.cells) {
+			cell.agentActions(grid.rng, true);
+		}
+	}
+	
+	/**
+	 * Benchmark {@link Cell#getStats(IterationStats)}.
+	 * 
+	 * @param grid Benchmark grid.
+	 * @return Gathered statistics.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(CELLS)
+	public IterationStats getStats(StatsGrid grid) {
+		IterationStats stats = new IterationStats();
+		for (Cell cell : grid.cells) {
+			cell.getStats(stats);
+		}
+		return stats;
+	}
+
+}
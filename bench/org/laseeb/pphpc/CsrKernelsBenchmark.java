@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmarks of the scalar and vectorized CSR kernels (see 
+ * {@link ICsrKernels}), for each of the simulation steps in which they are 
+ * used. Test data is restored before every invocation, and results are given
+ * per array element. Benchmarks are forked with the incubating vector API, 
+ * without which the vectorized kernels are not available.
+ * 
+ * Usage: ant bench -Dbench.args=CsrKernelsBenchmark
+ * 
+ * @author Nuno Fachada
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class CsrKernelsBenchmark {
+	
+	/* Number of array elements (e.g. number of cells). */
+	static final int SIZE = 1 << 20;
+	
+	/**
+	 * Kernels and test data: grass counters (half of them zero) and agent 
+	 * energy.
+	 */
+	@State(Scope.Thread)
+	public static class Data {
+		
+		/* Kernel set. */
+		@Param({"scalar", "vector"})
+		public String kernels;
+		
+		/* Kernels being benchmarked. */
+		ICsrKernels k;
+		
+		/* Original grass counters. */
+		int[] grassData;
+		
+		/* Original agent energy. */
+		int[] energyData;
+		
+		/* Grass counters modified by kernels. */
+		int[] grass;
+		
+		/* Agent energy modified by kernels. */
+		int[] energy;
+		
+		/**
+		 * Select the kernels and create the test data.
+		 */
+		@Setup(Level.Trial)
+		public void setupTrial() {
+			
+			if (this.kernels.equals("vector")) {
+				this.k = CsrGrid.getKernels();
+				if (this.k instanceof ScalarCsrKernels) {
+					throw new IllegalStateException(
+							"Vector API not available.");
+				}
+			} else {
+				this.k = new ScalarCsrKernels();
+			}
+			
+			Random rng = new Random(0);
+			this.grassData = new int[SIZE];
+			this.energyData = new int[SIZE];
+			for (int i = 0; i < SIZE; i++) {
+				this.grassData[i] = rng.nextBoolean() ? 0 : 1 + rng.nextInt(10);
+				this.energyData[i] = rng.nextInt(40) - 2;
+			}
+			this.grass = new int[SIZE];
+			this.energy = new int[SIZE];
+		}
+		
+		/**
+		 * Restore test data, so that each invocation does the same.
+		 */
+		@Setup(Level.Invocation)
+		public void setupInvocation() {
+			System.arraycopy(this.grassData, 0, this.grass, 0, SIZE);
+			System.arraycopy(this.energyData, 0, this.energy, 0, SIZE);
+		}
+	}
+	
+	/**
+	 * Benchmark {@link ICsrKernels#regenerateGrass(int[], int, int)}, used in
+	 * grass growth.
+	 * 
+	 * @param d Kernels and test data.
+	 * @param bh Consumes the grass counters.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void regenerateGrass(Data d, Blackhole bh) {
+		d.k.regenerateGrass(d.grass, 0, SIZE);
+		bh.consume(d.grass);
+	}
+	
+	/**
+	 * Benchmark {@link ICsrKernels#decEnergy(int[], int, int)}, used in agent
+	 * movement.
+	 * 
+	 * @param d Kernels and test data.
+	 * @param bh Consumes the agent energy.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void decEnergy(Data d, Blackhole bh) {
+		d.k.decEnergy(d.energy, 0, SIZE);
+		bh.consume(d.energy);
+	}
+	
+	/**
+	 * Benchmark {@link ICsrKernels#countZeros(int[], int, int)} and 
+	 * {@link ICsrKernels#sum(int[], int, int)}, used in statistics gathering.
+	 * 
+	 * @param d Kernels and test data.
+	 * @param bh Consumes the results.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void stats(Data d, Blackhole bh) {
+		bh.consume(d.k.countZeros(d.grass, 0, SIZE));
+		bh.consume(d.k.sum(d.grass, 0, SIZE));
+	}
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * JMH benchmarks of the throughput of each random number generator (see 
+ * {@link RNGType}) in the operations used by simulations: bounded integers
+ * (agent movement, reproduction), booleans (grass initialization) and 
+ * shuffling of the agents in a cell. Each benchmark is performed by a single
+ * thread, and by as many threads as processors, each with its own generator
+ * created as in simulation workers, optionally buffered (see 
+ * {@link BufferedRandomGenerator}).
+ * 
+ * Usage: ant bench -Dbench.args=RNGBenchmark
+ * 
+ * @author Nuno Fachada
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class RNGBenchmark {
+	
+	/* Bound of generated integers, as in agent movement. */
+	static final int BOUND = 5;
+	
+	/* Number of agents shuffled, as in a crowded cell. */
+	static final int AGENTS = 16;
+	
+	/**
+	 * Random number generator of a thread.
+	 */
+	@State(Scope.Thread)
+	public static class Generator {
+		
+		/* Random number generator type, all types by default. */
+		@Param
+		public RNGType rngType;
+		
+		/* Size of the random number buffer (0 for an unbuffered generator). */
+		@Param({"0"})
+		public int bufferSize;
+		
+		/* Random number generator. */
+		RandomGenerator rng;
+		
+		/* List to shuffle. */
+		List<Integer> agents;
+		
+		/**
+		 * Create the random number generator of this thread, as the 
+		 * generator of the simulation worker with the same ID.
+		 * 
+		 * @param threadParams Parameters of this thread.
+		 * @throws Exception If the random number generator can't be created.
+		 */
+		@Setup(Level.Trial)
+		public void setup(ThreadParams threadParams) throws Exception {
+			this.rng = this.rngType.createRNG(new ModelSeedGenerator(
+					threadParams.getThreadIndex(), BigInteger.valueOf(1234)));
+			if (this.bufferSize > 0) {
+				this.rng = new BufferedRandomGenerator(this.rng, this.bufferSize);
+			}
+			this.agents = new ArrayList<Integer>();
+			for (int i = 0; i < AGENTS; i++) this.agents.add(i);
+		}
+	}
+	
+	/**
+	 * Generate a bounded integer.
+	 * 
+	 * @param g Random number generator.
+	 * @return Generated integer.
+	 */
+	@Benchmark
+	@Threads(1)
+	public int nextInt(Generator g) {
+		return g.rng.nextInt(BOUND);
+	}
+	
+	/**
+	 * Generate a boolean.
+	 * 
+	 * @param g Random number generator.
+	 * @return Generated boolean.
+	 */
+	@Benchmark
+	@Threads(1)
+	public boolean nextBoolean(Generator g) {
+		return g.rng.nextBoolean();
+	}
+	
+	/**
+	 * Shuffle a list of agents.
+	 * 
+	 * @param g Random number generator.
+	 * @return Shuffled list.
+	 */
+	@Benchmark
+	@Threads(1)
+	public List<Integer> shuffle(Generator g) {
+		Cell.shuffle(g.agents, g.rng);
+		return g.agents;
+	}
+	
+	/**
+	 * Generate a bounded integer in each thread.
+	 * 
+	 * @param g Random number generator of the thread.
+	 * @return Generated integer.
+	 */
+	@Benchmark
+	@Threads(Threads.MAX)
+	public int nextIntPerThread(Generator g) {
+		return g.rng.nextInt(BOUND);
+	}
+	
+	/**
+	 * Generate a boolean in each thread.
+	 * 
+	 * @param g Random number generator of the thread.
+	 * @return Generated boolean.
+	 */
+	@Benchmark
+	@Threads(Threads.MAX)
+	public boolean nextBooleanPerThread(Generator g) {
+		return g.rng.nextBoolean();
+	}
+	
+	/**
+	 * Shuffle a list of agents in each thread.
+	 * 
+	 * @param g Random number generator of the thread.
+	 * @return Shuffled list.
+	 */
+	@Benchmark
+	@Threads(Threads.MAX)
+	public List<Integer> shufflePerThread(Generator g) {
+		Cell.shuffle(g.agents, g.rng);
+		return g.agents;
+	}
+}
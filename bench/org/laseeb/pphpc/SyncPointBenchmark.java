@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * JMH benchmarks of the round-trip latency of {@link ISyncPoint} 
+ * implementations, i.e. the time between consecutive synchronizations of 
+ * the same group of workers.
+ * 
+ * Each benchmark thread group shares a synchronization point for the 
+ * number of threads in the group (4 by default, change it with the JMH 
+ * <code>-tg</code> option). Benchmarks run in single shot batches, so that
+ * all threads perform the same number of synchronizations and none is left
+ * waiting at a barrier when a measurement ends. Results are normalized by
+ * the batch size.
+ * 
+ * Usage: ant bench -Dbench.args="SyncPointBenchmark -tg 8"
+ * 
+ * @author Nuno Fachada
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 10, batchSize = SyncPointBenchmark.BATCH)
+@Measurement(iterations = 20, batchSize = SyncPointBenchmark.BATCH)
+@Fork(1)
+public class SyncPointBenchmark {
+	
+	/* Synchronizations performed by each thread in each iteration. */
+	static final int BATCH = 10000;
+	
+	/**
+	 * Synchronization points shared by a thread group.
+	 */
+	@State(Scope.Group)
+	public static class SyncPoints {
+		
+		/* The synchronization points. */
+		ISyncPoint blocking;
+		ISyncPoint nonBlocking;
+		
+		/**
+		 * Create the synchronization points for the number of threads in the
+		 * group.
+		 * 
+		 * @param params Benchmark parameters.
+		 */
+		@Setup(Level.Iteration)
+		public void setup(BenchmarkParams params) {
+			int numWorkers = params.getThreadGroups()[0];
+			this.blocking = new BlockingSyncPoint(
+					ControlEvent.AFTER_END_ITERATION, null, numWorkers);
+			this.nonBlocking = new NonBlockingSyncPoint(
+					ControlEvent.AFTER_END_ITERATION, numWorkers);
+		}
+	}
+
+	/**
+	 * Benchmark {@link BlockingSyncPoint}, where workers wait for each other.
+	 * 
+	 * @param syncPoints Synchronization points of the thread group.
+	 * @throws InterruptedWorkException Not expected.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	@Group("blocking")
+	@GroupThreads(4)
+	public void blocking(SyncPoints syncPoints) throws InterruptedWorkException {
+		syncPoints.blocking.syncNotify(null);
+	}
+
+	/**
+	 * Benchmark {@link NonBlockingSyncPoint}, where workers only count their
+	 * passage.
+	 * 
+	 * @param syncPoints Synchronization points of the thread group.
+	 * @throws InterruptedWorkException Not expected.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	@Group("nonBlocking")
+	@GroupThreads(4)
+	public void nonBlocking(SyncPoints syncPoints) throws InterruptedWorkException {
+		syncPoints.nonBlocking.syncNotify(null);
+	}
+
+}
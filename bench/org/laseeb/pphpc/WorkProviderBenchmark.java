@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.math.BigInteger;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * JMH benchmarks of the per-token cost of {@link IWorkProvider} 
+ * implementations.
+ * 
+ * In each invocation the benchmark threads (4 by default, change it with 
+ * the JMH <code>-t</code> option) jointly take all the tokens of a 256x256
+ * grid, as simulation workers do in each step, reset their work and wait 
+ * for each other. Results are the elapsed time per token, including the 
+ * final wait. Benchmarks run in single shot batches, so that all threads 
+ * perform the same number of passes and none is left waiting at a barrier 
+ * when a measurement ends. Results are normalized by the batch size.
+ * 
+ * Usage: ant bench -Dbench.args="WorkProviderBenchmark -t 8"
+ * 
+ * @author Nuno Fachada
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 10, batchSize = WorkProviderBenchmark.BATCH)
+@Measurement(iterations = 20, batchSize = WorkProviderBenchmark.BATCH)
+@Threads(4)
+@Fork(1)
+public class WorkProviderBenchmark {
+	
+	/* Passes over the grid in each iteration. */
+	static final int BATCH = 200;
+	
+	/* Side of the grid. */
+	static final int SIDE = 256;
+	
+	/* Number of tokens in a pass over the grid. */
+	static final int CELLS = SIDE * SIDE;
+
+	/**
+	 * A work provider shared by the benchmark threads, and the work of each 
+	 * thread.
+	 */
+	@State(Scope.Benchmark)
+	public static abstract class Provider {
+		
+		/* Number of threads. */
+		int numWorkers;
+		
+		/* The work provider. */
+		IWorkProvider provider;
+		
+		/* The work of each thread. */
+		IWork[] works;
+		
+		/* Barrier where threads wait for each other at the end of a pass. */
+		CyclicBarrier barrier;
+		
+		/**
+		 * Keep the number of threads.
+		 * 
+		 * @param params Benchmark parameters.
+		 */
+		@Setup(Level.Trial)
+		public void setupTrial(BenchmarkParams params) {
+			this.numWorkers = params.getThreads();
+		}
+		
+		/**
+		 * Create the work provider and the work of each thread.
+		 */
+		@Setup(Level.Iteration)
+		public void setupIteration() {
+			this.provider = this.create();
+			this.works = new IWork[this.numWorkers];
+			for (int i = 0; i < this.numWorkers; i++) {
+				this.works[i] = this.provider.newWork(i);
+			}
+			this.barrier = new CyclicBarrier(this.numWorkers);
+		}
+		
+		/**
+		 * Create the work provider.
+		 * 
+		 * @return A new work provider.
+		 */
+		abstract IWorkProvider create();
+		
+		/**
+		 * Take all the tokens of a thread in a pass over the grid, reset its 
+		 * work and wait for the other threads.
+		 * 
+		 * @param thread Thread parameters.
+		 * @return Sum of the tokens, so that they are not optimized away.
+		 * @throws Exception If the barrier is broken.
+		 */
+		long pass(ThreadParams thread) throws Exception {
+			
+			IWork work = this.works[thread.getThreadIndex()];
+			long sum = 0;
+			int token;
+			while ((token = this.provider.getNextToken(work)) >= 0) {
+				sum += token;
+			}
+			this.provider.resetWork(work);
+			this.barrier.await();
+			return sum;
+		}
+	}
+	
+	/**
+	 * Shared {@link EqualWorkProvider}.
+	 */
+	public static class Equal extends Provider {
+
+		/**
+		 * @see Provider#create()
+		 */
+		@Override
+		IWorkProvider create() {
+			return new EqualWorkProvider(this.numWorkers, CELLS);
+		}
+	}
+	
+	/**
+	 * Shared {@link OnDemandWorkProvider}.
+	 */
+	public static class OnDemand extends Provider {
+		
+		/* Block size. */
+		@Param({"1", "16", "256", "4096"})
+		public int blockSize;
+
+		/**
+		 * @see Provider#create()
+		 */
+		@Override
+		IWorkProvider create() {
+			return new OnDemandWorkProvider(this.numWorkers, this.blockSize, CELLS);
+		}
+	}
+	
+	/**
+	 * Shared {@link EqualRowSyncWorkProvider}.
+	 */
+	public static class EqualRowSync extends Provider {
+
+		/**
+		 * @see Provider#create()
+		 */
+		@Override
+		IWorkProvider create() {
+			IModel model = new Model(CellBenchmark.params(SIDE), 
+					new EqualRowSyncWorkFactory(this.numWorkers), 
+					new SingleThreadGlobalStats(1), true, false, false, 
+					RNGType.MT, BigInteger.ZERO, false, 0, null, null, null, null, null, 
+					false);
+			return new EqualRowSyncWorkProvider(this.numWorkers, model);
+		}
+	}
+
+	/**
+	 * Benchmark {@link EqualWorkProvider}.
+	 * 
+	 * @param provider Shared work provider.
+	 * @param thread Thread parameters.
+	 * @return Sum of the tokens.
+	 * @throws Exception If the barrier is broken.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(CELLS * BATCH)
+	public long equal(Equal provider, ThreadParams thread) throws Exception {
+		return provider.pass(thread);
+	}
+
+	/**
+	 * Benchmark {@link OnDemandWorkProvider} for each block size.
+	 * 
+	 * @param provider Shared work provider.
+	 * @param thread Thread parameters.
+	 * @return Sum of the tokens.
+	 * @throws Exception If the barrier is broken.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(CELLS * BATCH)
+	public long onDemand(OnDemand provider, ThreadParams thread) throws Exception {
+		return provider.pass(thread);
+	}
+
+	/**
+	 * Benchmark {@link EqualRowSyncWorkProvider}, where threads also wait 
+	 * for each other at the end of each row.
+	 * 
+	 * @param provider Shared work provider.
+	 * @param thread Thread parameters.
+	 * @return Sum of the tokens.
+	 * @throws Exception If the barrier is broken.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(CELLS * BATCH)
+	public long equalRowSync(EqualRowSync provider, ThreadParams thread) throws Exception {
+		return provider.pass(thread);
+	}
+
+}
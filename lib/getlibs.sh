@@ -5,6 +5,9 @@ UNCOMMONS_MATHS_VER=1.2.3
 COMMONS_RNG_VER=1.5
 BETTER_RANDOM_VER=5.6.2
 PRNGINE_VER=2.0.0
+JMH_VER=1.37
+JOPT_SIMPLE_VER=5.0.4
+COMMONS_MATH3_VER=3.6.1
 
 JCOMMANDER=jcommander-${JCOMMANDER_VER}.jar
 UNCOMMONS_MATHS=uncommons-maths-${UNCOMMONS_MATHS_VER}.jar
@@ -13,6 +16,10 @@ COMMONS_RNG_CORE=commons-rng-core-${COMMONS_RNG_VER}.jar
 COMMONS_RNG_SIMPLE=commons-rng-simple-${COMMONS_RNG_VER}.jar
 BETTER_RANDOM=BetterRandom-${BETTER_RANDOM_VER}.jar
 PRNGINE=prngine-${PRNGINE_VER}.jar
+JMH_CORE=jmh-core-${JMH_VER}.jar
+JMH_ANNPROCESS=jmh-generator-annprocess-${JMH_VER}.jar
+JOPT_SIMPLE=jopt-simple-${JOPT_SIMPLE_VER}.jar
+COMMONS_MATH3=commons-math3-${COMMONS_MATH3_VER}.jar
 
 
 if [ ! -e ${JCOMMANDER} ]
@@ -64,3 +71,30 @@ else
 	echo "PRNGine already present, not downloading."
 fi
 
+if [ ! -e ${JMH_CORE} ]
+then
+	wget https://repo.maven.apache.org/maven2/org/openjdk/jmh/jmh-core/${JMH_VER}/${JMH_CORE}
+else
+	echo "JMH core already present, not downloading."
+fi
+
+if [ ! -e ${JMH_ANNPROCESS} ]
+then
+	wget https://repo.maven.apache.org/maven2/org/openjdk/jmh/jmh-generator-annprocess/${JMH_VER}/${JMH_ANNPROCESS}
+else
+	echo "JMH annotation processor already present, not downloading."
+fi
+
+if [ ! -e ${JOPT_SIMPLE} ]
+then
+	wget https://repo.maven.apache.org/maven2/net/sf/jopt-simple/jopt-simple/${JOPT_SIMPLE_VER}/${JOPT_SIMPLE}
+else
+	echo "JOpt Simple already present, not downloading."
+fi
+
+if [ ! -e ${COMMONS_MATH3} ]
+then
+	wget https://repo.maven.apache.org/maven2/org/apache/commons/commons-math3/${COMMONS_MATH3_VER}/${COMMONS_MATH3}
+else
+	echo "Apache Commons Math already present, not downloading."
+fi
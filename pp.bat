@@ -1 +1,10 @@
-java -Xms2048m -Xmx4096m -cp "bin;lib\*" org.laseeb.pphpc.PredPrey %*
+@echo off
+rem The vector API is an incubator module, which makes the JVM print a warning,
+rem so it is only added for the CSR engine (-c or --csr), which uses it.
+setlocal
+set MODULES=
+for %%a in (%*) do (
+	if "%%~a"=="-c" set MODULES=--add-modules jdk.incubator.vector
+	if "%%~a"=="--csr" set MODULES=--add-modules jdk.incubator.vector
+)
+java %MODULES% -Xms2048m -Xmx4096m -cp "bin;lib\*" org.laseeb.pphpc.PredPrey %*
@@ -1 +1,9 @@
-java -Xms2048m -Xmx4096m -cp bin:lib/* org.laseeb.pphpc.PredPrey $*
+# The vector API is an incubator module, which makes the JVM print a warning,
+# so it is only added for the CSR engine (-c or --csr), which uses it.
+MODULES=""
+for arg in "$@"; do
+	case "$arg" in
+		-c|--csr) MODULES="--add-modules jdk.incubator.vector" ;;
+	esac
+done
+java $MODULES -Xms2048m -Xmx4096m -cp bin:lib/* org.laseeb.pphpc.PredPrey $*
@@ -26,7 +26,7 @@
 
 package org.laseeb.pphpc;
 
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Abstract PPHPC agent class.
@@ -85,10 +85,10 @@ public abstract class AbstractAgent implements IAgent {
 	}
 
 	/**
-	 * @see IAgent#act(ICell, Random)
+	 * @see IAgent#act(ICell, RandomGenerator)
 	 */
 	@Override
-	public void act(ICell cell, Random rng) {
+	public void act(ICell cell, RandomGenerator rng) {
 		
 		/* Maybe eat something. */
 		tryEat(cell);
@@ -136,7 +136,7 @@ public abstract class AbstractAgent implements IAgent {
 	 * @param cell Cell where agent is currently in.
 	 * @param rng Random number generator used to try reproduction.
 	 */
-	private void tryReproduce(ICell cell, Random rng) {
+	private void tryReproduce(ICell cell, RandomGenerator rng) {
 		
 		/* Energy needs to be above threshold in order for agents to reproduce. */
 		if (energy > this.getReproduceThreshold()) {
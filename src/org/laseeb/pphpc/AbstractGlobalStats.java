@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2014, 2015, 2023, Nuno Fachada, Ana Pinha
+ * Copyright (c) 2014, 2015, Nuno Fachada
  * All rights reserved.
  * 
  * Redistribution and use in source and binary forms, with or without
@@ -26,62 +26,46 @@
 
 package org.laseeb.pphpc;
 
-import java.util.Random;
-import java.util.SplittableRandom;
-import java.util.random.*;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
 
 /**
- * Wrapper class for the Apache Commons RNGs 
- * 
- * @author Ana Pinha
+ * Abstract global statistics class for implementations which keep the 
+ * statistics of all iterations in memory.
  * 
+ * @author Nuno Fachada
  */
-public class JavaRandomWrapper extends Random {
-    private RandomGenerator rng;
-
-
-
-    public JavaRandomWrapper(RandomGenerator rng) {
-		this.rng = rng;
+public abstract class AbstractGlobalStats implements IGlobalStats {
+	
+	/* Number of iterations. */
+	protected int iters;
+	
+	/**
+	 * Constructor called by concrete implementations.
+	 * 
+	 * @param iters Number of iterations.
+	 */
+	public AbstractGlobalStats(int iters) {
+		this.iters = iters;
 	}
 
+	/**
+	 * @see IGlobalStats#export(String, int)
+	 */
 	@Override
-    public boolean nextBoolean() {
-        return rng.nextBoolean();
-    }
-
-    @Override
-    public void nextBytes(byte[] bytes) {
-    	rng.nextBytes(bytes);
-    }
-
-    @Override
-    public double nextDouble() {
-        return rng.nextDouble();
-    }
-
-    @Override
-    public float nextFloat() {
-        return rng.nextFloat();
-    }
-
-    @Override
-    public int nextInt() {
-        return rng.nextInt();
-    }
-
-    @Override
-    public int nextInt(int bound) {
-        return rng.nextInt(bound);
-    }
+	public void export(String filename, int numCells) throws IOException {
+		
+		BufferedWriter out = new BufferedWriter(new FileWriter(filename));
+		
+		try {
+			for (int i = 0; i <= this.iters; i++) {
+				out.write(this.getStats(i).toTsv(numCells));
+				out.write('\n');
+			}
+		} finally {
+			out.close();
+		}
+	}
 
-    @Override
-    public long nextLong() {
-        return rng.nextLong();
-    }
-    
-    public JavaRandomWrapper split() {	
-    	return new JavaRandomWrapper(((SplittableRandom) rng).split());
-    }
-    
 }
@@ -108,7 +108,18 @@ public abstract class AbstractMultiThreadWorkFactory implements IWorkFactory {
 	 */
 	@Override
 	public IGlobalStats createGlobalStats(int iters) {
-		return new ThreadSafeGlobalStats(iters);
+		return new StripedGlobalStats(iters, this.numThreads);
+	}
+
+	/**
+	 * By default, multithreaded work factories don't require cells to be
+	 * processed in order.
+	 * 
+	 * @see IWorkFactory#requiresOrderedCellWork()
+	 */
+	@Override
+	public boolean requiresOrderedCellWork() {
+		return false;
 	}
 
 	/**
@@ -82,6 +82,22 @@ public abstract class AbstractSyncPoint implements ISyncPoint {
 		this.interrupted = false;
 	}
 	
+	/**
+	 * By default, arrival skew is not recorded.
+	 * 
+	 * @see ISyncPoint#recordSkew(BarrierSkews)
+	 */
+	@Override
+	public void recordSkew(BarrierSkews skews) {}
+	
+	/**
+	 * By default, no events are emitted.
+	 * 
+	 * @see ISyncPoint#emitJfrEvents()
+	 */
+	@Override
+	public void emitJfrEvents() {}
+	
 	/**
 	 * @see ISyncPoint#syncNotify(IController)
 	 */
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.util.Arrays;
+
+/**
+ * A compacted list of active cell indexes, i.e. of cells which currently hold
+ * agents. Each simulation worker keeps its own list, so no synchronization is
+ * performed.
+ * 
+ * @author Nuno Fachada
+ */
+public class ActiveCellList {
+	
+	/* Initial capacity of the list. */
+	private static final int INITIAL_CAPACITY = 64;
+	
+	/* Space-independent cell indexes. */
+	private int[] cells;
+	
+	/* Number of cell indexes in list. */
+	private int size;
+	
+	/**
+	 * Create a new empty active cell list.
+	 */
+	public ActiveCellList() {
+		this.cells = new int[INITIAL_CAPACITY];
+		this.size = 0;
+	}
+	
+	/**
+	 * Add a cell index to the end of the list.
+	 * 
+	 * @param idx Space-independent cell index.
+	 */
+	public void add(int idx) {
+		
+		/* Grow internal array if required. */
+		if (this.size == this.cells.length) {
+			this.cells = Arrays.copyOf(this.cells, this.cells.length * 2);
+		}
+		
+		this.cells[this.size] = idx;
+		this.size++;
+	}
+	
+	/**
+	 * Get the cell index at the given list position.
+	 * 
+	 * @param pos Position in the list.
+	 * @return The space-independent cell index at the given position.
+	 */
+	public int get(int pos) {
+		return this.cells[pos];
+	}
+	
+	/**
+	 * Return the number of cell indexes in the list.
+	 * 
+	 * @return The number of cell indexes in the list.
+	 */
+	public int size() {
+		return this.size;
+	}
+	
+	/**
+	 * Remove all cell indexes from the list.
+	 */
+	public void clear() {
+		this.size = 0;
+	}
+
+}
@@ -26,35 +26,56 @@
 
 package org.laseeb.pphpc;
 
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.random.RandomGenerator;
+
 import org.apache.commons.rng.JumpableUniformRandomProvider;
+import org.apache.commons.rng.RestorableUniformRandomProvider;
 import org.apache.commons.rng.SplittableUniformRandomProvider;
 import org.apache.commons.rng.UniformRandomProvider;
-
-import java.util.Random;
+import org.apache.commons.rng.core.RandomProviderDefaultState;
+import org.apache.commons.rng.simple.RandomSource;
 
 /**
- * Wrapper class for the Apache Commons RNGs 
+ * Wrapper class for the Apache Commons RNGs. It only forwards calls to the
+ * wrapped generator, so that simulations get the same random numbers as when
+ * using it directly.
+ * 
+ * The wrapper can be serialized, e.g. in checkpoints. Only the source of the
+ * wrapped generator and the state given by 
+ * {@link RestorableUniformRandomProvider#saveState()} are serialized.
  * 
  * @author Ana Pinha
  * 
  */
-public class ApacheCommonsRNGWrapper extends Random {
-    private UniformRandomProvider rng;
-
+public final class ApacheCommonsRNGWrapper implements RandomGenerator, Serializable {
+    
+    /* Generated serial version UID. */
+    private static final long serialVersionUID = 5320571985206446129L;
 
+    private final RandomSource source;
+    
+    private final UniformRandomProvider rng;
 
-    public ApacheCommonsRNGWrapper(UniformRandomProvider rng) {
-		this.rng = rng;
-	}
+    public ApacheCommonsRNGWrapper(RandomSource source, byte[] seed) {
+        this(source, source.create(seed));
+    }
+    
+    private ApacheCommonsRNGWrapper(RandomSource source, UniformRandomProvider rng) {
+        this.source = source;
+        this.rng = rng;
+    }
 
-	@Override
+    @Override
     public boolean nextBoolean() {
         return rng.nextBoolean();
     }
 
     @Override
     public void nextBytes(byte[] bytes) {
-    	rng.nextBytes(bytes);
+        rng.nextBytes(bytes);
     }
 
     @Override
@@ -83,10 +104,71 @@ public class ApacheCommonsRNGWrapper extends Random {
     }
     
     public ApacheCommonsRNGWrapper split() {	
-    	return new ApacheCommonsRNGWrapper(((SplittableUniformRandomProvider)rng).split());
+        return new ApacheCommonsRNGWrapper(source, 
+                ((SplittableUniformRandomProvider) rng).split());
     }
     
     public ApacheCommonsRNGWrapper jump() {
-    	return new ApacheCommonsRNGWrapper(((JumpableUniformRandomProvider)rng).jump());
+        return new ApacheCommonsRNGWrapper(source, 
+                ((JumpableUniformRandomProvider) rng).jump());
+    }
+    
+    /**
+     * Get the state of the wrapped generator.
+     * 
+     * @return State of the wrapped generator.
+     */
+    public byte[] saveState() {
+        return ((RandomProviderDefaultState) 
+                ((RestorableUniformRandomProvider) rng).saveState()).getState();
+    }
+    
+    /**
+     * Create a wrapper for a new generator of the given source, restored to
+     * the given state.
+     * 
+     * @param source Source of the generator.
+     * @param state State of the generator, as given by {@link #saveState()}.
+     * @return A wrapper for the restored generator.
+     */
+    public static ApacheCommonsRNGWrapper restoreState(RandomSource source, byte[] state) {
+        UniformRandomProvider rng = source.create();
+        ((RestorableUniformRandomProvider) rng).restoreState(
+                new RandomProviderDefaultState(state));
+        return new ApacheCommonsRNGWrapper(source, rng);
+    }
+    
+    /* Serialize the state of the wrapped generator instead of the wrapper. */
+    private Object writeReplace() {
+        return new SerializedForm(source, saveState());
+    }
+    
+    /* Wrappers are only deserialized through their serialized form. */
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Serialized form required.");
+    }
+    
+    /**
+     * Serialized form of the wrapper, i.e. the source and the state of the
+     * wrapped generator.
+     */
+    private static final class SerializedForm implements Serializable {
+        
+        /* Generated serial version UID. */
+        private static final long serialVersionUID = -1874260953190451687L;
+        
+        private final RandomSource source;
+        
+        private final byte[] state;
+        
+        SerializedForm(RandomSource source, byte[] state) {
+            this.source = source;
+            this.state = state;
+        }
+        
+        /* Restore the wrapper when deserialized. */
+        private Object readResolve() {
+            return restoreState(source, state);
+        }
     }
 }
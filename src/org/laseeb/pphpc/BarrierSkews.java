@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Formatter;
+import java.util.Map;
+
+/**
+ * Arrival skew of workers at blocking synchronization points, kept in a pair
+ * of {@link LogHistogram}s per control event:
+ * 
+ * <ul>
+ * <li>worker skew: for each worker and each time the synchronization point 
+ * is reached, the time between the arrival of the worker and the arrival of 
+ * the last worker, i.e. how long the worker waited for the slowest one;</li>
+ * <li>iteration skew: for each time the synchronization point is reached,
+ * the time between the arrival of the first and of the last worker, i.e. 
+ * how long the fastest worker waited for the slowest one.</li>
+ * </ul>
+ * 
+ * All times are in nanoseconds.
+ * 
+ * @author Nuno Fachada
+ */
+public class BarrierSkews {
+	
+	/* Nanoseconds in a microsecond. */
+	private static final double NANOS_PER_MICRO = 1e3;
+	
+	/* File where to export histograms. */
+	private String filename;
+	
+	/* Worker skew histograms. */
+	private Map<ControlEvent, LogHistogram> workerSkews;
+	
+	/* Iteration skew histograms. */
+	private Map<ControlEvent, LogHistogram> iterationSkews;
+	
+	/**
+	 * Create a new barrier skews object, with empty histograms for all 
+	 * control events.
+	 * 
+	 * @param filename File where to export histograms.
+	 */
+	public BarrierSkews(String filename) {
+		
+		this.filename = filename;
+		this.workerSkews = 
+				new EnumMap<ControlEvent, LogHistogram>(ControlEvent.class);
+		this.iterationSkews = 
+				new EnumMap<ControlEvent, LogHistogram>(ControlEvent.class);
+		for (ControlEvent event : ControlEvent.values()) {
+			this.workerSkews.put(event, new LogHistogram());
+			this.iterationSkews.put(event, new LogHistogram());
+		}
+	}
+	
+	/**
+	 * Get the worker skew histogram of a control event.
+	 * 
+	 * @param event Control event.
+	 * @return Worker skew histogram of control event.
+	 */
+	public LogHistogram getWorkerSkew(ControlEvent event) {
+		return this.workerSkews.get(event);
+	}
+	
+	/**
+	 * Get the iteration skew histogram of a control event.
+	 * 
+	 * @param event Control event.
+	 * @return Iteration skew histogram of control event.
+	 */
+	public LogHistogram getIterationSkew(ControlEvent event) {
+		return this.iterationSkews.get(event);
+	}
+	
+	/**
+	 * Remove all recorded skews. Invoked when the model is reset.
+	 */
+	public void reset() {
+		for (ControlEvent event : ControlEvent.values()) {
+			this.workerSkews.get(event).reset();
+			this.iterationSkews.get(event).reset();
+		}
+	}
+	
+	/**
+	 * Get a summary of the recorded skews, in microseconds, for control 
+	 * events in which skew was recorded.
+	 * 
+	 * @return A summary of the recorded skews.
+	 */
+	public String report() {
+		
+		Formatter report = new Formatter();
+		report.format("Arrival skew at synchronization points (us):%n"
+				+ "%-22s %-9s %9s %9s %9s %9s %9s %9s%n", "sync point", "skew", 
+				"count", "mean", "p50", "p90", "p99", "max");
+		
+		for (ControlEvent event : ControlEvent.values()) {
+			this.format(report, event, "iteration", 
+					this.iterationSkews.get(event));
+			this.format(report, event, "worker", this.workerSkews.get(event));
+		}
+		
+		String result = report.toString();
+		report.close();
+		return result;
+	}
+	
+	/**
+	 * Export the non-empty buckets of all histograms to a tab-separated text
+	 * file. Each line contains the control event, the skew type ("iteration"
+	 * or "worker"), the smallest and largest values of the bucket, in 
+	 * nanoseconds, and the bucket count.
+	 * 
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public void export() throws IOException {
+		
+		BufferedWriter out = new BufferedWriter(new FileWriter(this.filename));
+		try {
+			for (ControlEvent event : ControlEvent.values()) {
+				this.export(out, event, "iteration", 
+						this.iterationSkews.get(event));
+				this.export(out, event, "worker", this.workerSkews.get(event));
+			}
+		} finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * Add the summary of a histogram to a report, if not empty.
+	 * 
+	 * @param report Report.
+	 * @param event Control event.
+	 * @param type Skew type.
+	 * @param histogram Histogram.
+	 */
+	private void format(Formatter report, ControlEvent event, String type, 
+			LogHistogram histogram) {
+		
+		long count = histogram.getCount();
+		if (count == 0) return;
+		
+		report.format("%-22s %-9s %9d %9.1f %9.1f %9.1f %9.1f %9.1f%n", 
+				event, type, count, 
+				histogram.getMean() / NANOS_PER_MICRO,
+				histogram.getPercentile(0.5) / NANOS_PER_MICRO,
+				histogram.getPercentile(0.9) / NANOS_PER_MICRO,
+				histogram.getPercentile(0.99) / NANOS_PER_MICRO,
+				histogram.getMax() / NANOS_PER_MICRO);
+	}
+	
+	/**
+	 * Export the non-empty buckets of a histogram.
+	 * 
+	 * @param out Where to export buckets.
+	 * @param event Control event.
+	 * @param type Skew type.
+	 * @param histogram Histogram.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private void export(BufferedWriter out, ControlEvent event, String type, 
+			LogHistogram histogram) throws IOException {
+		
+		for (int b = 0; b < histogram.getNumBuckets(); b++) {
+			long count = histogram.getBucketCount(b);
+			if (count == 0) continue;
+			out.write(event + "\t" + type + "\t" + LogHistogram.bucketLower(b)
+					+ "\t" + LogHistogram.bucketUpper(b) + "\t" + count);
+			out.write('\n');
+		}
+	}
+
+}
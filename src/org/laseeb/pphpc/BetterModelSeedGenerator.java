@@ -27,10 +27,6 @@
 package org.laseeb.pphpc;
 
 import java.math.BigInteger;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Arrays;
-
 
 import io.github.pr0methean.betterrandom.seed.SeedGenerator;
 import io.github.pr0methean.betterrandom.seed.SeedException;
@@ -40,7 +36,8 @@ import io.github.pr0methean.betterrandom.seed.SeedException;
  * Can produce seeds of any size using a base BigInteger seed.
  * Also supports generating different seeds for different threads based on
  * the same base seed, as to allow for deterministic parallel streams of
- * pseudo-random numbers.
+ * pseudo-random numbers. Seeds are the same as those produced by 
+ * {@link ModelSeedGenerator}.
  * 
  * @author Nuno Fachada
  * @author Ana Pinha
@@ -48,77 +45,64 @@ import io.github.pr0methean.betterrandom.seed.SeedException;
  */
 public class BetterModelSeedGenerator implements SeedGenerator {
 	
+	/* Generated serial version UID. */
+	private static final long serialVersionUID = -2214405283190716364L;
+	
 	/* Different threads should pass different IDs, so that each
 	 * gets a "different" stream from the RNG. */
-	private long wId;
+	private int wId;
 	
 	/* Base seed for this seed generator. */
 	private BigInteger seed;
 	
+	/* Use the legacy seed derivation? */
+	private boolean legacy;
+	
 	/**
 	 * Create a new seed generator.
 	 * 
 	 * @param wId A thread ID or similar, used for producing different
-	 * seeds for different threads, based on the same {@link #seed}. If only
+	 * seeds for different threads, based on the same base seed. If only
 	 * one thread is used, pass zero.
 	 * @param seed Base seed for this seed generator.
 	 */
 	public BetterModelSeedGenerator(int wId, BigInteger seed) {
+		this(wId, seed, false);
+	}
+
+	/**
+	 * Create a new seed generator.
+	 * 
+	 * @param wId A thread ID or similar, used for producing different
+	 * seeds for different threads, based on the same base seed. If only
+	 * one thread is used, pass zero.
+	 * @param seed Base seed for this seed generator.
+	 * @param legacy Use the legacy seed derivation, which produces the same
+	 * seeds as earlier versions?
+	 */
+	public BetterModelSeedGenerator(int wId, BigInteger seed, boolean legacy) {
 		this.wId = wId;
 		this.seed = seed;
+		this.legacy = legacy;
 	}
 
 	/**
-	 * Generate a seed of a given length in bytes.
+	 * Fill the given array with a seed.
 	 * 
-	 * @param length Length in bytes of seed to generate.
+	 * @param output Array to fill with the seed, whose length is the length
+	 * of the seed.
 	 * @throws SeedException if something bad happens.
 	 */
 	@Override
 	public void generateSeed(byte[] output) throws SeedException {
 		
-		/* Final seed to be generated. */
-		BigInteger finalSeed = this.seed;
-		
-		/* If the thread modifier is not zero, create a scrambled modifierXor, 
-		 * unique for each thread. */
-		if (wId != 0) {
-
-			/* This modifier will be XOR'ed with the final seed in order to
-			 * produce different seeds for different threads. */
-			BigInteger modifierXor;
-
-			try {
-				
-				/* Use SHA-256 for the scramble. */
-				MessageDigest digest = MessageDigest.getInstance("SHA-256");
-				digest.update(Long.toString(wId).getBytes());
-				modifierXor = new BigInteger(digest.digest());
-				
-			} catch (NoSuchAlgorithmException e) {
-				
-				throw new SeedException(e.getMessage(), e);
-				
-			}
-
-			/* Xor the final seed with the modifierXor. */
-			finalSeed = finalSeed.xor(modifierXor);
-			
+		try {
+			byte[] seed = new ModelSeedGenerator(this.wId, this.seed, this.legacy)
+					.generateSeed(output.length);
+			System.arraycopy(seed, 0, output, 0, output.length);
+		} catch (org.uncommons.maths.random.SeedException se) {
+			throw new SeedException(se.getMessage(), se);
 		}
-
-		/* Keep increasing the final seed deterministically until it has
-		 * at least the size required by the RNG. */
-		while (finalSeed.bitCount() < output.length * 8) {
-			
-			/* We add the value 11 for the case when the base seed is zero. */
-			finalSeed = finalSeed.pow(2).add(BigInteger.TEN).add(BigInteger.ONE);
-			
-		}
-
-		/* Return a byte array of the exact length required by the RNG. */
-		output = finalSeed.toByteArray();
 	}
-
 	
 }
-
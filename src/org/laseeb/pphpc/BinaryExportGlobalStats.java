@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.io.IOException;
+
+/**
+ * Global statistics which are exported in binary columnar format. All 
+ * operations other than exporting are delegated to the wrapped global 
+ * statistics object.
+ * 
+ * @see BinaryStats
+ * @author Nuno Fachada
+ */
+public class BinaryExportGlobalStats implements IGlobalStats {
+	
+	/* Wrapped global statistics. */
+	private IGlobalStats stats;
+	
+	/* Number of iterations. */
+	private int iters;
+	
+	/**
+	 * Create a new global statistics object which exports statistics in 
+	 * binary columnar format.
+	 * 
+	 * @param stats Wrapped global statistics, which must keep the statistics
+	 * of all iterations.
+	 * @param iters Number of iterations.
+	 */
+	public BinaryExportGlobalStats(IGlobalStats stats, int iters) {
+		this.stats = stats;
+		this.iters = iters;
+	}
+
+	/**
+	 * @see IGlobalStats#getStats(StatType, int)
+	 */
+	@Override
+	public Number getStats(StatType st, int iter) {
+		return this.stats.getStats(st, iter);
+	}
+
+	/**
+	 * @see IGlobalStats#getStats(int)
+	 */
+	@Override
+	public IterationStats getStats(int iter) {
+		return this.stats.getStats(iter);
+	}
+
+	/**
+	 * @see IGlobalStats#updateStats(int, int, IterationStats)
+	 */
+	@Override
+	public void updateStats(int wId, int iter, IterationStats stats) {
+		this.stats.updateStats(wId, iter, stats);
+	}
+
+	/**
+	 * @see IGlobalStats#commitStats(int)
+	 */
+	@Override
+	public void commitStats(int iter) {
+		this.stats.commitStats(iter);
+	}
+
+	/**
+	 * @see IGlobalStats#restoreStats(int, IterationStats)
+	 */
+	@Override
+	public void restoreStats(int iter, IterationStats stats) {
+		this.stats.restoreStats(iter, stats);
+	}
+
+	/**
+	 * @see IGlobalStats#export(String, int)
+	 */
+	@Override
+	public void export(String filename, int numCells) throws IOException {
+		BinaryStats.write(this.stats, this.iters, numCells, filename);
+	}
+
+	/**
+	 * @see IGlobalStats#reset()
+	 */
+	@Override
+	public void reset() {
+		this.stats.reset();
+	}
+
+}
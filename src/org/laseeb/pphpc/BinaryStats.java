@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary columnar format for simulation statistics. Files in this format 
+ * have a fixed size header followed by one column of primitive values per
+ * statistic type, so that a column can be read directly without any parsing.
+ * 
+ * <p>All values are little-endian. The header has {@link #HEADER_SIZE} bytes
+ * with the following layout:</p>
+ * <ul>
+ * <li>magic number {@link #MAGIC} (int, the ASCII characters "PPSB");</li>
+ * <li>format version {@link #VERSION} (int);</li>
+ * <li>number of rows, i.e. number of iterations plus one (int);</li>
+ * <li>number of cells in the simulation (int);</li>
+ * <li>number of columns (int);</li>
+ * <li>width in bytes of each column value, one byte per column (4 for 
+ * ints, 8 for longs);</li>
+ * <li>zero padding.</li>
+ * </ul>
+ * 
+ * <p>Columns follow the header in {@link StatType} order. Each column 
+ * is padded with zeros to a multiple of 8 bytes, so that all columns are 
+ * aligned. Energies and grass countdown are stored as totals, not as 
+ * averages.</p>
+ * 
+ * <p>This class can also be executed to convert a binary statistics file to
+ * the tab-separated text format.</p>
+ * 
+ * @author Nuno Fachada
+ */
+public final class BinaryStats {
+	
+	/** Magic number which identifies binary statistics files. */
+	public static final int MAGIC = 0x42535050;
+	
+	/** Binary statistics format version. */
+	public static final int VERSION = 1;
+	
+	/** Size of header in bytes. */
+	public static final int HEADER_SIZE = 32;
+	
+	/** Byte order of header and columns. */
+	public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+	
+	/* Columns are aligned to this number of bytes. */
+	private static final int ALIGN = 8;
+	
+	/**
+	 * This class only provides static methods.
+	 */
+	private BinaryStats() {}
+	
+	/**
+	 * Width in bytes of the values of the given statistic.
+	 * 
+	 * @param st Statistic type.
+	 * @return Width in bytes of the values of the given statistic.
+	 */
+	public static int columnWidth(StatType st) {
+		switch (st) {
+			case SHEEP_COUNT:
+			case WOLVES_COUNT:
+			case GRASS_ALIVE:
+				return Integer.BYTES;
+			default:
+				return Long.BYTES;
+		}
+	}
+	
+	/**
+	 * Offset in bytes of the column of the given statistic.
+	 * 
+	 * @param numRows Number of rows.
+	 * @param st Statistic type.
+	 * @return Offset in bytes of the column of the given statistic.
+	 */
+	public static long columnOffset(int numRows, StatType st) {
+		long offset = HEADER_SIZE;
+		for (int i = 0; i < st.ordinal(); i++) {
+			offset += columnSize(numRows, StatType.values()[i]);
+		}
+		return offset;
+	}
+	
+	/**
+	 * Write statistics to a file in binary columnar format.
+	 * 
+	 * @param stats Statistics to write.
+	 * @param iters Number of iterations.
+	 * @param numCells Number of cells in the simulation.
+	 * @param filename File where to write statistics to.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public static void write(IGlobalStats stats, int iters, int numCells,
+			String filename) throws IOException {
+		
+		StatType[] types = StatType.values();
+		int numRows = iters + 1;
+		
+		FileChannel channel = FileChannel.open(Paths.get(filename), 
+				StandardOpenOption.CREATE, StandardOpenOption.READ, 
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		
+		try {
+			
+			/* Write header. */
+			MappedByteBuffer header = 
+					channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+			header.order(ORDER);
+			header.putInt(MAGIC).putInt(VERSION).putInt(numRows)
+				.putInt(numCells).putInt(types.length);
+			for (StatType st : types) {
+				header.put((byte) columnWidth(st));
+			}
+			header.force();
+			
+			/* Map columns, each one separately so that the size of each 
+			 * mapping stays below 2 GB. */
+			MappedByteBuffer[] columns = new MappedByteBuffer[types.length];
+			for (StatType st : types) {
+				columns[st.ordinal()] = channel.map(
+						FileChannel.MapMode.READ_WRITE, 
+						columnOffset(numRows, st), columnSize(numRows, st));
+				columns[st.ordinal()].order(ORDER);
+			}
+			
+			/* Fill columns, getting the statistics of each iteration once. */
+			for (int i = 0; i < numRows; i++) {
+				IterationStats iterStats = stats.getStats(i);
+				for (StatType st : types) {
+					if (columnWidth(st) == Integer.BYTES) {
+						columns[st.ordinal()].putInt(
+								iterStats.getStat(st).intValue());
+					} else {
+						columns[st.ordinal()].putLong(
+								iterStats.getStat(st).longValue());
+					}
+				}
+			}
+			for (MappedByteBuffer column : columns) {
+				column.force();
+			}
+			
+		} finally {
+			channel.close();
+		}
+	}
+	
+	/**
+	 * Convert a binary statistics file to the tab-separated text format used 
+	 * by the simulator.
+	 * 
+	 * @param binFilename Binary statistics file.
+	 * @param tsvFilename Tab-separated text file to create.
+	 * @throws IOException If an I/O error occurs or if the binary statistics
+	 * file is not valid.
+	 */
+	public static void toTsv(String binFilename, String tsvFilename) 
+			throws IOException {
+		
+		StatType[] types = StatType.values();
+		FileChannel channel = FileChannel.open(Paths.get(binFilename), 
+				StandardOpenOption.READ);
+		BufferedWriter out = null;
+		
+		try {
+			
+			/* Read and validate header. */
+			if (channel.size() < HEADER_SIZE) {
+				throw new IOException("'" + binFilename 
+						+ "' is not a binary statistics file.");
+			}
+			ByteBuffer header = 
+					channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			header.order(ORDER);
+			if (header.getInt() != MAGIC) {
+				throw new IOException("'" + binFilename 
+						+ "' is not a binary statistics file.");
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported binary statistics version " 
+						+ version + " in '" + binFilename + "'.");
+			}
+			int numRows = header.getInt();
+			int numCells = header.getInt();
+			int numColumns = header.getInt();
+			if (numColumns != types.length) {
+				throw new IOException("Unexpected number of columns (" 
+						+ numColumns + ") in '" + binFilename + "'.");
+			}
+			for (StatType st : types) {
+				if (header.get() != columnWidth(st)) {
+					throw new IOException("Unexpected width of column " + st 
+							+ " in '" + binFilename + "'.");
+				}
+			}
+			if (channel.size() < columnOffset(numRows, types[types.length - 1])
+					+ columnSize(numRows, types[types.length - 1])) {
+				throw new IOException("Binary statistics file '" 
+						+ binFilename + "' is truncated.");
+			}
+			
+			/* Map columns. */
+			ByteBuffer[] columns = new ByteBuffer[types.length];
+			for (StatType st : types) {
+				columns[st.ordinal()] = channel.map(
+						FileChannel.MapMode.READ_ONLY, 
+						columnOffset(numRows, st), columnSize(numRows, st));
+				columns[st.ordinal()].order(ORDER);
+			}
+			
+			/* Write rows. */
+			out = new BufferedWriter(new FileWriter(tsvFilename));
+			for (int i = 0; i < numRows; i++) {
+				IterationStats iterStats = new IterationStats(
+						columns[StatType.SHEEP_COUNT.ordinal()].getInt(),
+						columns[StatType.WOLVES_COUNT.ordinal()].getInt(),
+						columns[StatType.GRASS_ALIVE.ordinal()].getInt(),
+						columns[StatType.SHEEP_ENERGY.ordinal()].getLong(),
+						columns[StatType.WOLVES_ENERGY.ordinal()].getLong(),
+						columns[StatType.GRASS_COUNTDOWN.ordinal()].getLong());
+				out.write(iterStats.toTsv(numCells));
+				out.write('\n');
+			}
+			
+		} finally {
+			channel.close();
+			if (out != null) {
+				out.close();
+			}
+		}
+	}
+	
+	/**
+	 * Convert a binary statistics file to the tab-separated text format.
+	 * 
+	 * @param args Binary statistics file and tab-separated text file.
+	 */
+	public static void main(String[] args) {
+		
+		if (args.length != 2) {
+			System.err.println("Usage: java -cp bin" 
+					+ java.io.File.pathSeparator + "lib" 
+					+ java.io.File.separator + "* " + BinaryStats.class.getName() 
+					+ " <binary stats file> <text stats file>");
+			System.exit(PredPrey.Errors.ARGS.getValue());
+		}
+		
+		try {
+			toTsv(args[0], args[1]);
+		} catch (IOException ioe) {
+			System.err.println(ioe.getMessage());
+			System.exit(PredPrey.Errors.OTHER.getValue());
+		}
+	}
+	
+	/**
+	 * Size in bytes of the column of the given statistic, including padding.
+	 * 
+	 * @param numRows Number of rows.
+	 * @param st Statistic type.
+	 * @return Size in bytes of the column of the given statistic.
+	 */
+	private static long columnSize(int numRows, StatType st) {
+		long size = (long) numRows * columnWidth(st);
+		return (size + ALIGN - 1) / ALIGN * ALIGN;
+	}
+
+}
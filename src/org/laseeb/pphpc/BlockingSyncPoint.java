@@ -27,6 +27,7 @@
 package org.laseeb.pphpc;
 
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A blocking simulation synchronizer. Waits for all simulation workers to
@@ -37,12 +38,30 @@ import java.util.concurrent.CyclicBarrier;
  */
 public class BlockingSyncPoint extends AbstractSyncPoint {
 
+	/* Marks that no worker has arrived. */
+	private static final long NO_ARRIVAL = Long.MIN_VALUE;
+
 	/* Used as a blocking synchronizer. */
 	private CyclicBarrier barrier;
 	
 	/* Number of workers involved in the blocking synchronization. */
 	private int numWorkers;
 	
+	/* Where to record per-worker arrival skew, null if not recorded. */
+	private LogHistogram workerSkew;
+	
+	/* Where to record per-iteration arrival skew, null if not recorded. */
+	private LogHistogram iterationSkew;
+	
+	/* Emit flight recorder events? */
+	private boolean jfrEvents;
+	
+	/* Arrival time of the first worker, if any has arrived. */
+	private AtomicLong firstArrival = new AtomicLong(NO_ARRIVAL);
+	
+	/* Arrival time of the last worker. */
+	private volatile long lastArrival;
+	
 	/**
 	 * Create a new blocking simulation synchronizer.
 	 * 
@@ -63,6 +82,7 @@ public class BlockingSyncPoint extends AbstractSyncPoint {
 		 * to continue. */
 		this.barrier = new CyclicBarrier(this.numWorkers, new Runnable() {
 			@Override public void run() {
+				recordIterationSkew();
 				notifyObservers(controller); 
 			}
 		});
@@ -81,9 +101,27 @@ public class BlockingSyncPoint extends AbstractSyncPoint {
 		/* Reset barrier (will cause all waiting workers to be interrupted and
 		 * throw InterruptedWorkException's. */
 		this.barrier.reset();
+		this.firstArrival.set(NO_ARRIVAL);
 		
 	}
 
+	/**
+	 * @see ISyncPoint#recordSkew(BarrierSkews)
+	 */
+	@Override
+	public void recordSkew(BarrierSkews skews) {
+		this.workerSkew = skews.getWorkerSkew(this.event);
+		this.iterationSkew = skews.getIterationSkew(this.event);
+	}
+
+	/**
+	 * @see ISyncPoint#emitJfrEvents()
+	 */
+	@Override
+	public void emitJfrEvents() {
+		this.jfrEvents = true;
+	}
+
 	/**
 	 * @see AbstractSyncPoint#doSyncNotify(IController)
 	 */
@@ -91,12 +129,64 @@ public class BlockingSyncPoint extends AbstractSyncPoint {
 	protected void doSyncNotify(IController controller) throws InterruptedWorkException {
 
 		try {
-			/* Perform synchronization. */
-			this.barrier.await();
+			
+			if (this.jfrEvents) {
+				
+				/* Perform synchronization, emitting a flight recorder 
+				 * event. */
+				SyncWaitEvent wait = new SyncWaitEvent();
+				wait.begin();
+				this.await();
+				wait.end();
+				if (wait.shouldCommit()) {
+					wait.syncPoint = this.event.name();
+					wait.commit();
+				}
+				
+			} else {
+				
+				/* Perform synchronization. */
+				this.await();
+			}
+			
 		} catch (Exception e) {
 			/* Synchronization may be interrupted externally. */
 			throw new InterruptedWorkException(e);
 		}
 	}
+	
+	/**
+	 * Wait at the barrier, recording how long this worker waited for the 
+	 * last one to arrive if skew is being recorded. The first worker to 
+	 * arrive keeps its arrival time.
+	 * 
+	 * @throws Exception If the barrier is broken or the worker interrupted.
+	 */
+	private void await() throws Exception {
+		
+		if (this.workerSkew == null) {
+			this.barrier.await();
+		} else {
+			long arrival = System.nanoTime();
+			this.firstArrival.compareAndSet(NO_ARRIVAL, arrival);
+			this.barrier.await();
+			this.workerSkew.record(this.lastArrival - arrival);
+		}
+	}
+	
+	/**
+	 * Record the time between the arrival of the first and of the last 
+	 * worker, if skew is being recorded. Invoked by the last worker to 
+	 * arrive, before any worker is released.
+	 */
+	private void recordIterationSkew() {
+		
+		if (this.iterationSkew != null) {
+			long last = System.nanoTime();
+			this.lastArrival = last;
+			this.iterationSkew.record(
+					last - this.firstArrival.getAndSet(NO_ARRIVAL));
+		}
+	}
 
 }
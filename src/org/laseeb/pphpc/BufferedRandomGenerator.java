@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.io.Serializable;
+import java.util.random.RandomGenerator;
+
+/**
+ * Random number generator which hands out 32-bit values pre-generated in
+ * bulk by another generator. The buffer is refilled in a tight loop when 
+ * exhausted, so that the cost of calling the wrapped generator (and of any 
+ * locking it performs) is paid in bulk, and simulation code only sees a 
+ * single, final, generator class whose methods are easily inlined.
+ * 
+ * Bounded integers and booleans are derived from the buffered values, so 
+ * that the random numbers obtained differ from those of the wrapped 
+ * generator used directly. Nonetheless, they only depend on the seed of the
+ * wrapped generator and on the order in which they are consumed, so that
+ * simulations remain reproducible. The buffer state is also saved in 
+ * checkpoints, as long as the wrapped generator can be saved.
+ * 
+ * Instances are not thread-safe, each worker must have its own.
+ * 
+ * @author Nuno Fachada
+ */
+public final class BufferedRandomGenerator implements RandomGenerator, Serializable {
+	
+	/* Generated serial version UID. */
+	private static final long serialVersionUID = 3107591484628213375L;
+
+	/* The wrapped random number generator. */
+	private final RandomGenerator rng;
+	
+	/* Pre-generated values. */
+	private final int[] buffer;
+	
+	/* Index of the next value to hand out. */
+	private int next;
+	
+	/**
+	 * Create a new buffered random number generator.
+	 * 
+	 * @param rng Random number generator which generates the buffered values.
+	 * @param size Number of 32-bit values generated in each refill, rounded
+	 * up to an even number.
+	 */
+	public BufferedRandomGenerator(RandomGenerator rng, int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Buffer size must be positive.");
+		}
+		this.rng = rng;
+		this.buffer = new int[size + (size & 1)];
+		this.next = this.buffer.length;
+	}
+	
+	/**
+	 * Refill the buffer with values of the wrapped generator. Each 64-bit 
+	 * value fills two buffer positions, which halves the number of steps of
+	 * 64-bit generators, and is the same as two 32-bit values for the 
+	 * others.
+	 */
+	private void refill() {
+		int[] buffer = this.buffer;
+		RandomGenerator rng = this.rng;
+		for (int i = 0; i < buffer.length; i += 2) {
+			long value = rng.nextLong();
+			buffer[i] = (int) (value >>> 32);
+			buffer[i + 1] = (int) value;
+		}
+		this.next = 0;
+	}
+
+	/**
+	 * @see RandomGenerator#nextInt()
+	 */
+	@Override
+	public int nextInt() {
+		if (this.next == this.buffer.length) this.refill();
+		return this.buffer[this.next++];
+	}
+	
+	/**
+	 * Return a random integer between zero (inclusive) and the given bound
+	 * (exclusive), using Lemire's multiply and shift method, which only 
+	 * divides when a value must be rejected to avoid bias.
+	 * 
+	 * @see RandomGenerator#nextInt(int)
+	 */
+	@Override
+	public int nextInt(int bound) {
+		
+		if (bound <= 0) {
+			throw new IllegalArgumentException("Bound must be positive.");
+		}
+		
+		long m = (this.nextInt() & 0xFFFFFFFFL) * bound;
+		if (Integer.compareUnsigned((int) m, bound) < 0) {
+			int threshold = Integer.remainderUnsigned(-bound, bound);
+			while (Integer.compareUnsigned((int) m, threshold) < 0) {
+				m = (this.nextInt() & 0xFFFFFFFFL) * bound;
+			}
+		}
+		return (int) (m >>> 32);
+	}
+
+	/**
+	 * @see RandomGenerator#nextBoolean()
+	 */
+	@Override
+	public boolean nextBoolean() {
+		return this.nextInt() < 0;
+	}
+
+	/**
+	 * @see RandomGenerator#nextLong()
+	 */
+	@Override
+	public long nextLong() {
+		return ((long) this.nextInt() << 32) | (this.nextInt() & 0xFFFFFFFFL);
+	}
+	
+}
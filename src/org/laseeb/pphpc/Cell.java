@@ -29,7 +29,7 @@ package org.laseeb.pphpc;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Concrete implementation of a PPHPC model cell, part of a larger simulation grid.
@@ -118,6 +118,14 @@ public class Cell implements ICell {
 		}
 	}
 	
+	/**
+	 * @see ICell#getGrass()
+	 */
+	@Override
+	public int getGrass() {
+		return this.grass;
+	}
+	
 	/**
 	 * @see ICell#getGrassRestart()
 	 */
@@ -175,11 +183,8 @@ public class Cell implements ICell {
 	@Override
 	public void getStats(IterationStats stats) {
 		
-		/* Grass alive or not? */
-		if (this.isGrassAlive())
-			stats.incGrassAlive();
-		else
-			stats.updateGrassCountdown(this.grass);
+		/* Get grass statistics. */
+		this.getGrassStats(stats);
 		
 		this.auxAgents.clear();
 		
@@ -231,10 +236,33 @@ public class Cell implements ICell {
 	}
 	
 	/**
-	 * @see ICell#agentActions(Random, boolean shuffle)
+	 * @see ICell#getGrassStats(IterationStats)
+	 */
+	@Override
+	public void getGrassStats(IterationStats stats) {
+		
+		/* Grass alive or not? */
+		if (this.isGrassAlive())
+			stats.incGrassAlive();
+		else
+			stats.updateGrassCountdown(this.grass);
+		
+	}
+	
+	/**
+	 * @see ICell#hasAgents()
 	 */
 	@Override
-	public void agentActions(Random rng, boolean shuffle) {
+	public boolean hasAgents() {
+		return !this.agents.isEmpty() || !this.existingAgents.isEmpty() 
+				|| !this.newAgents.isEmpty();
+	}
+	
+	/**
+	 * @see ICell#agentActions(RandomGenerator, boolean shuffle)
+	 */
+	@Override
+	public void agentActions(RandomGenerator rng, boolean shuffle) {
 		
 		/* Swap current agents list and existingAgents list. */
 		List<IAgent> aux;
@@ -243,7 +271,7 @@ public class Cell implements ICell {
 		this.existingAgents = aux;
 		this.existingAgents.clear();
 		
-		if (shuffle) Collections.shuffle(this.agents, rng);
+		if (shuffle) shuffle(this.agents, rng);
 		
 		/* Cycle through agents in the current agents list. */
 		for (int i = 0; i < this.agents.size(); i++) {
@@ -258,6 +286,20 @@ public class Cell implements ICell {
 		
 	}
 	
+	/**
+	 * Shuffle a list with any random number generator, obtaining the same 
+	 * permutation as {@link Collections#shuffle(List, java.util.Random)} for
+	 * the same random numbers.
+	 * 
+	 * @param list List to shuffle.
+	 * @param rng Random number generator.
+	 */
+	static <T> void shuffle(List<T> list, RandomGenerator rng) {
+		for (int i = list.size(); i > 1; i--) {
+			Collections.swap(list, i - 1, rng.nextInt(i));
+		}
+	}
+	
 	/**
 	 * @see ICell#setNeighborhood(List)
 	 */
@@ -279,10 +321,10 @@ public class Cell implements ICell {
 	}
 
 	/**
-	 * @see ICell#agentsMove(Random)
+	 * @see ICell#agentsMove(RandomGenerator)
 	 */
 	@Override
-	public void agentsMove(Random rng) {
+	public void agentsMove(RandomGenerator rng) {
 			
 		/*  Cycle through agents in the current agents list. */
 		for (int i = 0; i < this.agents.size(); i++) {
@@ -305,6 +347,10 @@ public class Cell implements ICell {
 			}
 		}
 		
+		/* Agents which were in this cell either moved or died, so they are no 
+		 * longer kept here. */
+		this.agents.clear();
+		
 	}
 
 }
\ No newline at end of file
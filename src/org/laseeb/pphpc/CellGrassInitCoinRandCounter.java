@@ -26,7 +26,7 @@
 
 package org.laseeb.pphpc;
 
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Grass initialization strategy where there is a 50% possibility of the grass
@@ -43,10 +43,10 @@ public class CellGrassInitCoinRandCounter implements ICellGrassInitStrategy {
 	public CellGrassInitCoinRandCounter() {}
 
 	/**
-	 * @see ICellGrassInitStrategy#getInitGrass(int, Random)
+	 * @see ICellGrassInitStrategy#getInitGrass(int, RandomGenerator)
 	 */
 	@Override
-	public int getInitGrass(int grassRestart, Random rng) {
+	public int getInitGrass(int grassRestart, RandomGenerator rng) {
 
 		int grassState;
 		
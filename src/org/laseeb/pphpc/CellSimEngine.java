@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Simulation engine where each cell is an object which keeps its agents in 
+ * lists of agent objects.
+ * 
+ * @author Nuno Fachada
+ */
+public class CellSimEngine implements ISimEngine {
+	
+	/* MVC model. */
+	private IModel model;
+	
+	/* Cells work provider. */
+	private IWorkProvider cellsWorkProvider;
+	
+	/* Cells work. */
+	private IWork cellsWork;
+
+	/* Shuffle agents before they act? */
+	private boolean shuffle;
+	
+	/* Can agent movement be performed only on the cells which hold 
+	 * agents? */
+	private boolean sparseMove;
+	
+	/* Cells processed by this engine which currently hold agents. */
+	private ActiveCellList activeCells;
+	
+	/* Grass regrowth events scheduled by this engine, if grass regrowth is 
+	 * event-driven. */
+	private GrassTimerWheel grassWheel;
+	
+	/* Number of cells processed by this engine so far. */
+	private int cellsProcessed;
+	
+	/**
+	 * Create a new cell simulation engine.
+	 * 
+	 * @param model The MVC model.
+	 * @param cellsWorkProvider Cells work provider.
+	 * @param cellsWork Cells work.
+	 * @param sparseMove Can agent movement be performed only on the cells 
+	 * which hold agents (i.e. cells need not be visited in work provider 
+	 * order)?
+	 */
+	public CellSimEngine(IModel model, IWorkProvider cellsWorkProvider, 
+			IWork cellsWork, boolean sparseMove) {
+		
+		this.model = model;
+		this.cellsWorkProvider = cellsWorkProvider;
+		this.cellsWork = cellsWork;
+		this.shuffle = model.isShuffle();
+		this.sparseMove = sparseMove;
+		this.activeCells = new ActiveCellList();
+		this.grassWheel = model.isEventGrass() 
+				? new GrassTimerWheel(model.getParams().getGrassRestart()) 
+				: null;
+	}
+
+	/**
+	 * @see ISimEngine#initCells(RandomGenerator)
+	 */
+	@Override
+	public void initCells(RandomGenerator rng) {
+		
+		int token;
+		
+		while ((token = this.cellsWorkProvider.getNextToken(this.cellsWork)) >= 0) {
+			this.cellsProcessed++;
+			this.model.initCellAt(token, rng);
+			if (this.grassWheel != null) 
+				this.grassWheel.addCell(this.model.getCell(token).getGrass());
+		}
+
+		this.cellsWorkProvider.resetWork(this.cellsWork);
+	}
+
+	/**
+	 * @see ISimEngine#restoreCells(Checkpoint)
+	 */
+	@Override
+	public void restoreCells(Checkpoint checkpoint) {
+		
+		int token;
+		
+		if (this.grassWheel != null) 
+			this.grassWheel.setIteration(checkpoint.getIteration());
+		
+		while ((token = this.cellsWorkProvider.getNextToken(this.cellsWork)) >= 0) {
+			this.cellsProcessed++;
+			this.model.restoreCellAt(token, checkpoint.getGrass(token));
+			if (this.grassWheel != null) 
+				this.grassWheel.addCell(checkpoint.getGrass(token));
+		}
+
+		this.cellsWorkProvider.resetWork(this.cellsWork);
+	}
+
+	/**
+	 * @see ISimEngine#setCellNeighbors()
+	 */
+	@Override
+	public void setCellNeighbors() {
+
+		int token;
+		
+		while ((token = this.cellsWorkProvider.getNextToken(this.cellsWork)) >= 0) {
+			this.cellsProcessed++;
+			this.model.setCellNeighbors(token);
+		}
+
+		this.cellsWorkProvider.resetWork(this.cellsWork);
+	}
+
+	/**
+	 * @see ISimEngine#putInitAgent(int, IAgent)
+	 */
+	@Override
+	public void putInitAgent(int idx, IAgent agent) {
+		this.model.getCell(idx).putInitAgent(agent);
+	}
+
+	/**
+	 * Restored agents are put in cells as new agents, so that they are kept
+	 * in order when first statistics are obtained.
+	 * 
+	 * @see ISimEngine#restoreAgent(int, IAgent)
+	 */
+	@Override
+	public void restoreAgent(int idx, IAgent agent) {
+		this.model.getCell(idx).putNewAgent(agent);
+	}
+
+	/**
+	 * Also keeps the cells which hold agents.
+	 * 
+	 * @see ISimEngine#getFirstStats(IterationStats)
+	 */
+	@Override
+	public void getFirstStats(IterationStats stats) {
+
+		int token;
+		
+		while ((token = this.cellsWorkProvider.getNextToken(this.cellsWork)) >= 0) {
+			this.cellsProcessed++;
+			ICell cell = this.model.getCell(token);
+			cell.getStats(stats);
+			if (cell.hasAgents()) this.activeCells.add(token);
+		}
+		if (this.grassWheel != null) this.grassWheel.getStats(stats);
+
+		this.cellsWorkProvider.resetWork(this.cellsWork);
+	}
+
+	/**
+	 * @see ISimEngine#moveAgentsGrowGrass(int, RandomGenerator, IWorkerTimer)
+	 */
+	@Override
+	public void moveAgentsGrowGrass(int iter, RandomGenerator rng, 
+			IWorkerTimer timer) {
+
+		int token;
+		
+		if (this.sparseMove) {
+			
+			/* ************************* */
+			/* ** 1 - Agent movement. ** */
+			/* ************************* */
+			
+			/* Only cells which hold agents need to be visited. */
+			this.cellsProcessed += this.activeCells.size();
+			for (int i = 0; i < this.activeCells.size(); i++) {
+				this.model.getCell(this.activeCells.get(i)).agentsMove(rng);
+			}
+			timer.mark(TimedPhase.MOVE_AGENTS);
+			
+			/* ************************* */
+			/* *** 2 - Grass growth. *** */
+			/* ************************* */
+			
+			if (this.grassWheel != null) {
+				
+				/* Grass regrowth is event-driven, just advance the 
+				 * timer wheel. */
+				this.grassWheel.advance(iter);
+				
+			} else {
+				
+				/* Regenerate grass in all cells, if required. */
+				while ((token = this.cellsWorkProvider.getNextToken(this.cellsWork)) >= 0) {
+					this.cellsProcessed++;
+					this.model.getCell(token).regenerateGrass();
+				}
+			}
+			
+			this.cellsWorkProvider.resetWork(this.cellsWork);
+			timer.mark(TimedPhase.GROW_GRASS);
+			
+		} else {
+		
+			/* Cycle through cells in order to perform step 1 and 2 of simulation. */
+			while ((token = this.cellsWorkProvider.getNextToken(this.cellsWork)) >= 0) {
+				this.cellsProcessed++;
+
+				/* Current cell being processed. */
+				ICell cell = this.model.getCell(token);
+
+				/* ************************* */
+				/* ** 1 - Agent movement. ** */
+				/* ************************* */
+
+				cell.agentsMove(rng);
+					
+				/* ************************* */
+				/* *** 2 - Grass growth. *** */
+				/* ************************* */
+				
+				/* Regenerate grass if required. */
+				cell.regenerateGrass();
+
+			}
+			
+			/* If grass regrowth is event-driven, advance the timer 
+			 * wheel. */
+			if (this.grassWheel != null) this.grassWheel.advance(iter);
+			
+			this.cellsWorkProvider.resetWork(this.cellsWork);
+			timer.mark(TimedPhase.MOVE_GROW_GRASS);
+		}
+	}
+
+	/**
+	 * @see ISimEngine#agentActionsGetStats(int, RandomGenerator, IterationStats)
+	 */
+	@Override
+	public void agentActionsGetStats(int iter, RandomGenerator rng, IterationStats stats) {
+		
+		int token;
+		
+		/* Active cells will be determined again. */
+		this.activeCells.clear();
+
+		/* Cycle through cells in order to perform step 3 and 4 of simulation. */
+		while ((token = this.cellsWorkProvider.getNextToken(this.cellsWork)) >= 0) {
+			this.cellsProcessed++;
+
+			/* Current cell being processed. */
+			ICell cell = this.model.getCell(token);
+			
+			/* Cells without agents only require grass statistics. */
+			if (!cell.hasAgents()) {
+				cell.getGrassStats(stats);
+				continue;
+			}
+
+			/* ************************** */
+			/* *** 3 - Agent actions. *** */
+			/* ************************** */
+			
+			/* Keep grass state so that eat events can be detected. */
+			boolean grassAlive = this.grassWheel != null && cell.isGrassAlive();
+
+			cell.agentActions(rng, this.shuffle);
+			
+			/* If grass was eaten, schedule its regrowth. */
+			if (grassAlive && !cell.isGrassAlive()) this.grassWheel.grassEaten();
+			
+			/* ****************************** */
+			/* *** 4 - Gather statistics. *** */
+			/* ****************************** */
+
+			cell.getStats(stats);
+			
+			/* Keep cell for the next movement step if it still holds 
+			 * agents. */
+			if (cell.hasAgents()) this.activeCells.add(token);
+			
+		}
+		
+		/* Add grass statistics if grass regrowth is event-driven. */
+		if (this.grassWheel != null) this.grassWheel.getStats(stats);
+
+		this.cellsWorkProvider.resetWork(this.cellsWork);
+	}
+
+	/**
+	 * @see ISimEngine#saveCells(CheckpointChunk)
+	 */
+	@Override
+	public void saveCells(CheckpointChunk chunk) {
+		
+		this.cellsProcessed += chunk.getTo() - chunk.getFrom();
+		for (int idx = chunk.getFrom(); idx < chunk.getTo(); idx++) {
+			ICell cell = this.model.getCell(idx);
+			chunk.addCell(cell.getGrass());
+			for (IAgent agent : cell.getAgents()) {
+				chunk.addAgent(agent.getEnergy(), agent instanceof Wolf);
+			}
+		}
+	}
+
+	/**
+	 * @see ISimEngine#saveFrame(FrameChunk)
+	 */
+	@Override
+	public void saveFrame(FrameChunk chunk) {
+		
+		this.cellsProcessed += chunk.getTo() - chunk.getFrom();
+		for (int idx = chunk.getFrom(); idx < chunk.getTo(); idx++) {
+			ICell cell = this.model.getCell(idx);
+			int sheep = 0;
+			int wolves = 0;
+			for (IAgent agent : cell.getAgents()) {
+				if (agent instanceof Wolf) wolves++; else sheep++;
+			}
+			chunk.addCell(sheep, wolves, cell.isGrassAlive());
+		}
+	}
+
+	/**
+	 * @see ISimEngine#getCellsProcessed()
+	 */
+	@Override
+	public int getCellsProcessed() {
+		return this.cellsProcessed;
+	}
+
+}
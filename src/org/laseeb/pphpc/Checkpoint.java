@@ -0,0 +1,401 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.random.RandomGenerator;
+
+/**
+ * A simulation checkpoint, i.e. the complete model state at the end of a 
+ * given iteration, read from a checkpoint file. Checkpoint files are written 
+ * by {@link Checkpointer}.
+ * 
+ * <p>Cells are split into one contiguous range per simulation worker (see 
+ * {@link #chunkStart(int, int, int)}), so that workers can save and load 
+ * their range in parallel. All values are little-endian. A checkpoint file
+ * contains, in order:</p>
+ * <ul>
+ * <li>a header with {@link #HEADER_SIZE} bytes: magic number 
+ * {@link #MAGIC} (int, the ASCII characters "PPCK"), format version 
+ * {@link #VERSION} (int), iteration (int), grid width (int), grid height 
+ * (int), number of workers (int), offset of statistics (long), offset of 
+ * grass state (long), offset of chunk table (long), number of iterations 
+ * with statistics (int), zero padding;</li>
+ * <li>global statistics for all iterations up to the checkpoint iteration, 
+ * one row of longs per iteration, in {@link StatType} order, unless 
+ * statistics were streamed to a file, in which case no statistics are 
+ * saved (see {@link #hasStats()});</li>
+ * <li>grass counter of each cell (int), zero if grass is alive;</li>
+ * <li>chunk table, with the offset (long) and size (long) of the chunk of 
+ * each worker;</li>
+ * <li>one chunk per worker, with the worker's random number generator 
+ * state and the agents in its range of cells (see 
+ * {@link CheckpointChunk#encodeAgents(ByteBuffer)}).</li>
+ * </ul>
+ * 
+ * @author Nuno Fachada
+ */
+public class Checkpoint {
+	
+	/** Magic number which identifies checkpoint files. */
+	public static final int MAGIC = 0x4B435050;
+	
+	/** Checkpoint format version. */
+	public static final int VERSION = 2;
+	
+	/** Size of header in bytes. */
+	public static final int HEADER_SIZE = 64;
+	
+	/** Size in bytes of the statistics of one iteration. */
+	public static final int STATS_ROW_SIZE = 
+			Long.BYTES * StatType.values().length;
+	
+	/** Size in bytes of each chunk table entry. */
+	public static final int CHUNK_ENTRY_SIZE = 2 * Long.BYTES;
+	
+	/** Byte order of checkpoint files. */
+	public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+	
+	/* Classes which may be deserialized when restoring random number 
+	 * generators, i.e. the generators whose state can be saved and the 
+	 * classes of their fields, so that checkpoint files can't instantiate 
+	 * arbitrary objects. */
+	private static final ObjectInputFilter RNG_FILTER = 
+			ObjectInputFilter.Config.createFilter(String.join(";",
+				"org.laseeb.pphpc.BufferedRandomGenerator",
+				"org.laseeb.pphpc.RanduRNG",
+				"org.laseeb.pphpc.ModMidSquareRNG",
+				"org.laseeb.pphpc.SplittableRNG",
+				"org.laseeb.pphpc.PcgRNGWrapper",
+				"org.laseeb.pphpc.PcgRNGWrapper$SerializedForm",
+				"org.laseeb.pphpc.ApacheCommonsRNGWrapper",
+				"org.laseeb.pphpc.ApacheCommonsRNGWrapper$SerializedForm",
+				"org.apache.commons.rng.simple.RandomSource",
+				"java.lang.Enum",
+				"org.uncommons.maths.random.CellularAutomatonRNG",
+				"org.uncommons.maths.random.CMWC4096RNG",
+				"org.uncommons.maths.random.JavaRNG",
+				"org.uncommons.maths.random.MersenneTwisterRNG",
+				"org.uncommons.maths.random.XORShiftRNG",
+				"java.util.Random",
+				"java.util.concurrent.locks.ReentrantLock",
+				"java.util.concurrent.locks.ReentrantLock$Sync",
+				"java.util.concurrent.locks.ReentrantLock$NonfairSync",
+				"java.util.concurrent.locks.AbstractQueuedSynchronizer",
+				"java.util.concurrent.locks.AbstractOwnableSynchronizer",
+				"!*"));
+	
+	/* Checkpoint filename. */
+	private String filename;
+	
+	/* Iteration in which the checkpoint was taken. */
+	private int iter;
+	
+	/* Grid dimensions. */
+	private int gridX;
+	private int gridY;
+	
+	/* Number of workers, i.e. of chunks. */
+	private int numWorkers;
+	
+	/* Global statistics up to the checkpoint iteration, empty if statistics
+	 * were streamed to a file. */
+	private IterationStats[] stats;
+	
+	/* Grass state. */
+	private ByteBuffer grass;
+	
+	/* Chunk of each worker. */
+	private ByteBuffer[] chunks;
+	
+	/**
+	 * Open a checkpoint file.
+	 * 
+	 * @param filename Checkpoint filename.
+	 * @throws IOException If an I/O error occurs or if the file is not a 
+	 * valid checkpoint file.
+	 */
+	public Checkpoint(String filename) throws IOException {
+		
+		this.filename = filename;
+		
+		/* Mapped buffers remain valid after the channel is closed. */
+		FileChannel channel = FileChannel.open(Paths.get(filename), 
+				StandardOpenOption.READ);
+		
+		try {
+			
+			/* Read and validate header. */
+			if (channel.size() < HEADER_SIZE) {
+				throw new IOException("'" + filename 
+						+ "' is not a checkpoint file.");
+			}
+			ByteBuffer header = this.map(channel, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC) {
+				throw new IOException("'" + filename 
+						+ "' is not a checkpoint file.");
+			}
+			int version = header.getInt();
+			if (version != VERSION && version != 1) {
+				throw new IOException("Unsupported checkpoint version " 
+						+ version + " in '" + filename + "'.");
+			}
+			this.iter = header.getInt();
+			this.gridX = header.getInt();
+			this.gridY = header.getInt();
+			this.numWorkers = header.getInt();
+			long statsOffset = header.getLong();
+			long grassOffset = header.getLong();
+			long tableOffset = header.getLong();
+			
+			/* Version 1 checkpoints always have the statistics history. */
+			int statsIters = version == 1 ? this.iter + 1 : header.getInt();
+			if (statsIters != 0 && statsIters != this.iter + 1) {
+				throw new IOException("Checkpoint file '" + filename 
+						+ "' is corrupted.");
+			}
+			
+			/* Read statistics. */
+			ByteBuffer statsBuffer = this.map(channel, statsOffset, 
+					(long) STATS_ROW_SIZE * statsIters);
+			this.stats = new IterationStats[statsIters];
+			for (int i = 0; i < statsIters; i++) {
+				this.stats[i] = new IterationStats(
+						(int) statsBuffer.getLong(), (int) statsBuffer.getLong(),
+						(int) statsBuffer.getLong(), statsBuffer.getLong(),
+						statsBuffer.getLong(), statsBuffer.getLong());
+			}
+			
+			/* Map grass state. */
+			this.grass = this.map(channel, grassOffset, 
+					(long) Integer.BYTES * this.gridX * this.gridY);
+			
+			/* Map worker chunks. */
+			ByteBuffer table = this.map(channel, tableOffset, 
+					(long) CHUNK_ENTRY_SIZE * this.numWorkers);
+			this.chunks = new ByteBuffer[this.numWorkers];
+			for (int w = 0; w < this.numWorkers; w++) {
+				this.chunks[w] = this.map(channel, table.getLong(), 
+						table.getLong());
+			}
+			
+		} finally {
+			channel.close();
+		}
+	}
+	
+	/**
+	 * Get the first cell in the range of cells saved by a worker. The last 
+	 * cell (exclusive) is the first cell of the next worker.
+	 * 
+	 * @param size Number of cells.
+	 * @param numWorkers Number of workers.
+	 * @param wId Worker ID, which may be equal to the number of workers.
+	 * @return First cell in the range of cells saved by a worker.
+	 */
+	public static int chunkStart(int size, int numWorkers, int wId) {
+		return (int) ((long) size * wId / numWorkers);
+	}
+	
+	/**
+	 * Get the iteration in which the checkpoint was taken.
+	 * 
+	 * @return Iteration in which the checkpoint was taken.
+	 */
+	public int getIteration() {
+		return this.iter;
+	}
+	
+	/**
+	 * Get the grid width.
+	 * 
+	 * @return Grid width.
+	 */
+	public int getGridX() {
+		return this.gridX;
+	}
+	
+	/**
+	 * Get the grid height.
+	 * 
+	 * @return Grid height.
+	 */
+	public int getGridY() {
+		return this.gridY;
+	}
+	
+	/**
+	 * Get the number of workers of the simulation which took the 
+	 * checkpoint.
+	 * 
+	 * @return Number of workers of the simulation which took the 
+	 * checkpoint.
+	 */
+	public int getNumWorkers() {
+		return this.numWorkers;
+	}
+	
+	/**
+	 * Does the checkpoint have the statistics history? This is not the case
+	 * if statistics were streamed to a file while the simulation ran, since 
+	 * the statistics of iterations before the checkpoint are in that file.
+	 * 
+	 * @return True if the checkpoint has the statistics history, false 
+	 * otherwise.
+	 */
+	public boolean hasStats() {
+		return this.stats.length > 0;
+	}
+	
+	/**
+	 * Get the global statistics of an iteration. Only available if the
+	 * checkpoint has the statistics history.
+	 * 
+	 * @param iter Iteration, up to and including the checkpoint iteration.
+	 * @return Global statistics of the given iteration.
+	 * @see #hasStats()
+	 */
+	public IterationStats getStats(int iter) {
+		return this.stats[iter];
+	}
+	
+	/**
+	 * Get the grass counter of a cell. This method is thread-safe.
+	 * 
+	 * @param idx Space-independent cell index.
+	 * @return Grass counter of the cell, i.e. the number of iterations until 
+	 * grass is alive (zero if grass is alive).
+	 */
+	public int getGrass(int idx) {
+		return this.grass.getInt(Integer.BYTES * idx);
+	}
+	
+	/**
+	 * Load the random number generator of a worker, in the state it had 
+	 * when the checkpoint was taken.
+	 * 
+	 * @param wId Worker ID.
+	 * @return Random number generator of the given worker.
+	 * @throws IOException If the random number generator can't be restored.
+	 */
+	public RandomGenerator loadRNG(int wId) throws IOException {
+		
+		ByteBuffer chunk = this.chunk(wId);
+		byte[] rngState = new byte[chunk.getInt()];
+		chunk.get(rngState);
+		
+		ObjectInputStream in = 
+				new ObjectInputStream(new ByteArrayInputStream(rngState));
+		in.setObjectInputFilter(RNG_FILTER);
+		try {
+			return (RandomGenerator) in.readObject();
+		} catch (IOException | ClassNotFoundException | RuntimeException e) {
+			throw new IOException("Unable to restore random number generator"
+					+ " of worker " + wId + " from '" + this.filename + "'.", 
+					e);
+		} finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * Load the agents in the range of cells of a worker into the grid, 
+	 * keeping their order within each cell.
+	 * 
+	 * @param wId Worker ID.
+	 * @param engine Simulation engine of the worker.
+	 * @param params Model parameters.
+	 */
+	public void loadAgents(int wId, ISimEngine engine, ModelParams params) {
+		
+		ByteBuffer chunk = this.chunk(wId);
+		int from = chunkStart(this.gridX * this.gridY, this.numWorkers, wId);
+		int to = chunkStart(this.gridX * this.gridY, this.numWorkers, wId + 1);
+		
+		/* Skip random number generator state. */
+		int rngSize = chunk.getInt();
+		chunk.position(chunk.position() + rngSize);
+		
+		/* Get positions of agent counts, energies and species. */
+		int numAgents = chunk.getInt();
+		int countsPos = chunk.position();
+		int energyPos = countsPos + Integer.BYTES * (to - from);
+		int wolfPos = energyPos + Integer.BYTES * numAgents;
+		
+		int a = 0;
+		for (int c = from; c < to; c++) {
+			int count = chunk.getInt(countsPos + Integer.BYTES * (c - from));
+			for (int i = 0; i < count; i++, a++) {
+				int energy = chunk.getInt(energyPos + Integer.BYTES * a);
+				IAgent agent = chunk.get(wolfPos + a) != 0
+						? new Wolf(energy, params) 
+						: new Sheep(energy, params);
+				engine.restoreAgent(c, agent);
+			}
+		}
+	}
+	
+	/**
+	 * Get an independent view of the chunk of a worker.
+	 * 
+	 * @param wId Worker ID.
+	 * @return Independent view of the chunk of the given worker.
+	 */
+	private ByteBuffer chunk(int wId) {
+		return this.chunks[wId].duplicate().order(ORDER);
+	}
+	
+	/**
+	 * Map a region of a checkpoint file.
+	 * 
+	 * @param channel Checkpoint file channel.
+	 * @param offset Region offset.
+	 * @param size Region size.
+	 * @return Mapped region.
+	 * @throws IOException If the region is not within the file or if an 
+	 * I/O error occurs.
+	 */
+	private ByteBuffer map(FileChannel channel, long offset, long size) 
+			throws IOException {
+		
+		if (offset < 0 || size < 0 || offset + size > channel.size()) {
+			throw new IOException("Checkpoint file '" + this.filename 
+					+ "' is truncated or corrupted.");
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, offset, size)
+				.order(ORDER);
+	}
+
+}
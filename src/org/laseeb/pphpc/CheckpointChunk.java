@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The state of a contiguous range of cells, captured by a simulation worker 
+ * for a checkpoint. The state is copied to primitive arrays, so it remains 
+ * valid after the simulation continues. Cells must be added in index order, 
+ * each one followed by its agents.
+ * 
+ * @see Checkpoint
+ * @author Nuno Fachada
+ */
+public class CheckpointChunk {
+	
+	/* Iteration in which the state was captured. */
+	private int iter;
+	
+	/* First cell in range. */
+	private int from;
+	
+	/* Last cell in range (exclusive). */
+	private int to;
+	
+	/* Grass counter of each cell (zero if grass is alive). */
+	private int[] grass;
+	
+	/* Number of agents in each cell. */
+	private int[] counts;
+	
+	/* Energy of each agent. */
+	private int[] energy;
+	
+	/* Is each agent a wolf? */
+	private boolean[] wolf;
+	
+	/* Number of cells added. */
+	private int numCells;
+	
+	/* Number of agents added. */
+	private int numAgents;
+	
+	/* Serialized random number generator state. */
+	private byte[] rngState;
+	
+	/**
+	 * Create a new checkpoint chunk.
+	 * 
+	 * @param iter Iteration in which the state is captured.
+	 * @param from First cell in range.
+	 * @param to Last cell in range (exclusive).
+	 */
+	public CheckpointChunk(int iter, int from, int to) {
+		this.iter = iter;
+		this.from = from;
+		this.to = to;
+		this.grass = new int[to - from];
+		this.counts = new int[to - from];
+		this.energy = new int[Math.max(64, to - from)];
+		this.wolf = new boolean[this.energy.length];
+		this.rngState = new byte[0];
+	}
+	
+	/**
+	 * Get the iteration in which the state was captured.
+	 * 
+	 * @return Iteration in which the state was captured.
+	 */
+	public int getIteration() {
+		return this.iter;
+	}
+	
+	/**
+	 * Get the first cell in range.
+	 * 
+	 * @return First cell in range.
+	 */
+	public int getFrom() {
+		return this.from;
+	}
+	
+	/**
+	 * Get the last cell in range (exclusive).
+	 * 
+	 * @return Last cell in range (exclusive).
+	 */
+	public int getTo() {
+		return this.to;
+	}
+	
+	/**
+	 * Add the next cell in range.
+	 * 
+	 * @param grassCounter Grass counter of the cell, i.e. the number of 
+	 * iterations until grass is alive (zero if grass is alive).
+	 */
+	public void addCell(int grassCounter) {
+		this.grass[this.numCells] = grassCounter;
+		this.numCells++;
+	}
+	
+	/**
+	 * Add an agent to the last added cell.
+	 * 
+	 * @param agentEnergy Agent energy.
+	 * @param agentWolf Is agent a wolf?
+	 */
+	public void addAgent(int agentEnergy, boolean agentWolf) {
+		
+		if (this.numAgents == this.energy.length) {
+			this.energy = Arrays.copyOf(this.energy, this.numAgents << 1);
+			this.wolf = Arrays.copyOf(this.wolf, this.numAgents << 1);
+		}
+		this.energy[this.numAgents] = agentEnergy;
+		this.wolf[this.numAgents] = agentWolf;
+		this.numAgents++;
+		this.counts[this.numCells - 1]++;
+	}
+	
+	/**
+	 * Set the state of the random number generator of the worker which 
+	 * captured this chunk.
+	 * 
+	 * @param rngState Serialized random number generator state.
+	 */
+	public void setRNGState(byte[] rngState) {
+		this.rngState = rngState;
+	}
+	
+	/**
+	 * Get the size in bytes of the encoded grass state of this chunk.
+	 * 
+	 * @return Size in bytes of the encoded grass state of this chunk.
+	 */
+	public int getGrassSize() {
+		return Integer.BYTES * (this.to - this.from);
+	}
+	
+	/**
+	 * Get the size in bytes of the encoded agents and random number generator
+	 * state of this chunk.
+	 * 
+	 * @return Size in bytes of the encoded agents and random number generator
+	 * state of this chunk.
+	 */
+	public long getAgentsSize() {
+		return Integer.BYTES + this.rngState.length 
+				+ Integer.BYTES + (long) Integer.BYTES * (this.to - this.from) 
+				+ (long) (Integer.BYTES + 1) * this.numAgents;
+	}
+	
+	/**
+	 * Encode the grass state of this chunk in the given buffer.
+	 * 
+	 * @param buffer Buffer where to encode the grass state, with the byte 
+	 * order of checkpoint files.
+	 */
+	public void encodeGrass(ByteBuffer buffer) {
+		buffer.asIntBuffer().put(this.grass, 0, this.numCells);
+		buffer.position(buffer.position() + Integer.BYTES * this.numCells);
+	}
+	
+	/**
+	 * Encode the agents and random number generator state of this chunk in 
+	 * the given buffer: size of the random number generator state, random 
+	 * number generator state, number of agents, number of agents in each 
+	 * cell, energy of each agent and species of each agent (one byte, 1 for 
+	 * wolves, 0 for sheep).
+	 * 
+	 * @param buffer Buffer where to encode the agents, with the byte order of
+	 * checkpoint files.
+	 */
+	public void encodeAgents(ByteBuffer buffer) {
+		
+		buffer.putInt(this.rngState.length);
+		buffer.put(this.rngState);
+		buffer.putInt(this.numAgents);
+		
+		buffer.asIntBuffer().put(this.counts, 0, this.numCells);
+		buffer.position(buffer.position() + Integer.BYTES * this.numCells);
+		
+		buffer.asIntBuffer().put(this.energy, 0, this.numAgents);
+		buffer.position(buffer.position() + Integer.BYTES * this.numAgents);
+		
+		for (int i = 0; i < this.numAgents; i++) {
+			buffer.put((byte) (this.wolf[i] ? 1 : 0));
+		}
+	}
+
+}
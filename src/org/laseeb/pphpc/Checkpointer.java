@@ -0,0 +1,543 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.random.RandomGenerator;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Saves simulation checkpoints, in the format described in 
+ * {@link Checkpoint}, at given iterations and/or periodically. Checkpoints
+ * are saved asynchronously, so that the simulation is not stalled while 
+ * they are written to disk:
+ * 
+ * <ol>
+ * <li>After all workers synchronize before the checkpoint, each worker 
+ * copies the state of its range of cells and of its random number generator
+ * to primitive arrays with {@link #capture(int, int, ISimEngine, RandomGenerator)}.
+ * </li>
+ * <li>After all workers synchronize at the end of the iteration, each 
+ * worker hands its captured state over with 
+ * {@link #submit(int, IModelQuerier)}. The last worker to do so puts the 
+ * complete snapshot in a queue.</li>
+ * <li>A background writer thread takes snapshots from the queue and writes 
+ * them to disk while the simulation goes on. The statistics history is 
+ * encoded by the writer thread, in blocks of rows, directly from the model,
+ * since statistics of past iterations no longer change. If the writer is still busy 
+ * with a previous snapshot when a new one is complete, the simulation waits
+ * for it, so at most two snapshots are kept in memory.</li>
+ * </ol>
+ * 
+ * If statistics are streamed to a file, the statistics history is not 
+ * saved. Instead, the streamed file is flushed before each checkpoint is 
+ * written, so that it has the statistics of all iterations up to the 
+ * checkpoint, and is truncated to the checkpoint iteration when the 
+ * simulation is resumed.
+ * 
+ * Each checkpoint is written to a temporary file which then replaces the 
+ * checkpoint file, so a partially written checkpoint is never left behind. 
+ * If more than one checkpoint is to be retained, the iteration is appended
+ * to the checkpoint file name, and the oldest checkpoints are deleted.
+ * 
+ * @author Nuno Fachada
+ */
+public class Checkpointer {
+	
+	/* Marks the end of the snapshot queue. */
+	private static final Snapshot END = new Snapshot(0, 0, 0, null, null);
+	
+	/* Number of statistics rows encoded at a time by the writer thread. */
+	private static final int STATS_BLOCK_ROWS = 4096;
+	
+	/* Checkpoint file name. */
+	private String filename;
+	
+	/* Iterations at which to save checkpoints. */
+	private Set<Integer> iterations;
+	
+	/* Interval, in iterations, between periodic checkpoints (0 if no 
+	 * periodic checkpoints are to be saved). */
+	private int interval;
+	
+	/* Number of checkpoints to retain. */
+	private int keep;
+	
+	/* Number of cells. */
+	private int size;
+	
+	/* Number of workers. */
+	private int numWorkers;
+	
+	/* Statistics streamed to a file, or null if statistics are kept in 
+	 * memory. */
+	private StreamingGlobalStats streamedStats;
+	
+	/* State captured by each worker. */
+	private CheckpointChunk[] chunks;
+	
+	/* Number of workers which submitted their captured state. */
+	private AtomicInteger submitted;
+	
+	/* Snapshots waiting to be written. */
+	private BlockingQueue<Snapshot> queue;
+	
+	/* Writer thread. */
+	private Thread writer;
+	
+	/* Error which occurred in the writer thread, if any. */
+	private volatile IOException writeError;
+	
+	/* Checkpoint files retained, oldest first. */
+	private Deque<Path> retained;
+	
+	/**
+	 * Complete state of the simulation at the end of an iteration, waiting 
+	 * to be written by the writer thread.
+	 */
+	private static class Snapshot {
+		
+		/* Iteration. */
+		private int iter;
+		
+		/* Horizontal grid size. */
+		private int gridX;
+		
+		/* Vertical grid size. */
+		private int gridY;
+		
+		/* State captured by each worker. */
+		private CheckpointChunk[] chunks;
+		
+		/* Model from which to obtain the statistics history. */
+		private IModelQuerier model;
+		
+		/**
+		 * Create a new snapshot.
+		 * 
+		 * @param iter Iteration.
+		 * @param gridX Horizontal grid size.
+		 * @param gridY Vertical grid size.
+		 * @param chunks State captured by each worker.
+		 * @param model Model from which to obtain the statistics history.
+		 */
+		Snapshot(int iter, int gridX, int gridY, CheckpointChunk[] chunks, 
+				IModelQuerier model) {
+			this.iter = iter;
+			this.gridX = gridX;
+			this.gridY = gridY;
+			this.chunks = chunks;
+			this.model = model;
+		}
+	}
+	
+	/**
+	 * Create a new checkpointer.
+	 * 
+	 * @param filename Checkpoint file name.
+	 * @param iterations Iterations at which to save checkpoints.
+	 * @param interval Interval, in iterations, between periodic checkpoints,
+	 * or 0 if no periodic checkpoints are to be saved.
+	 * @param keep Number of checkpoints to retain. If 1, the checkpoint file
+	 * is replaced by each new checkpoint; otherwise, the iteration is 
+	 * appended to the file name of each checkpoint.
+	 * @param size Number of cells.
+	 * @param numWorkers Number of workers.
+	 * @param streamedStats Statistics streamed to a file, which are flushed
+	 * before each checkpoint instead of being saved in it, or null if 
+	 * statistics are kept in memory.
+	 */
+	public Checkpointer(String filename, Collection<Integer> iterations, 
+			int interval, int keep, int size, int numWorkers, 
+			StreamingGlobalStats streamedStats) {
+		
+		this.filename = filename;
+		this.iterations = new HashSet<Integer>(iterations);
+		this.interval = interval;
+		this.keep = keep;
+		this.size = size;
+		this.numWorkers = numWorkers;
+		this.streamedStats = streamedStats;
+		this.chunks = new CheckpointChunk[numWorkers];
+		this.submitted = new AtomicInteger(0);
+		this.queue = new ArrayBlockingQueue<Snapshot>(1);
+		this.retained = new ArrayDeque<Path>();
+	}
+	
+	/**
+	 * Is a checkpoint due at the end of the given iteration?
+	 * 
+	 * @param iter Iteration.
+	 * @return True if a checkpoint is due, false otherwise.
+	 */
+	public boolean isDue(int iter) {
+		return this.iterations.contains(iter) 
+				|| (this.interval > 0 && iter % this.interval == 0);
+	}
+	
+	/**
+	 * Serialize the state of a random number generator.
+	 * 
+	 * @param rng Random number generator.
+	 * @return Serialized state of the random number generator.
+	 * @throws IOException If the random number generator state can't be 
+	 * saved, for whatever reason.
+	 */
+	public static byte[] saveRNG(RandomGenerator rng) throws IOException {
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		try {
+			out.writeObject(rng);
+		} catch (IOException | RuntimeException | LinkageError e) {
+			/* Libraries may fail in unexpected ways, e.g. because they
+			 * require classes which are not available to serialize their 
+			 * generators. */
+			throw new IOException("The state of random number generator " 
+					+ rng.getClass().getName() + " can't be saved in a "
+					+ "checkpoint.", e);
+		} finally {
+			out.close();
+		}
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * Capture the state of the range of cells and of the random number 
+	 * generator of a worker. Must be invoked by all workers after they 
+	 * synchronize before the checkpoint.
+	 * 
+	 * @param wId Worker ID.
+	 * @param iter Current iteration.
+	 * @param engine Simulation engine of the worker.
+	 * @param rng Random number generator of the worker.
+	 * @throws IOException If the random number generator state can't be 
+	 * saved.
+	 */
+	public void capture(int wId, int iter, ISimEngine engine, RandomGenerator rng) 
+			throws IOException {
+		
+		CheckpointChunk chunk = new CheckpointChunk(iter, 
+				Checkpoint.chunkStart(this.size, this.numWorkers, wId),
+				Checkpoint.chunkStart(this.size, this.numWorkers, wId + 1));
+		
+		engine.saveCells(chunk);
+		chunk.setRNGState(saveRNG(rng));
+		this.chunks[wId] = chunk;
+	}
+	
+	/**
+	 * Hand over the state captured by a worker to be written in the 
+	 * background. Must be invoked by all workers after they synchronize at 
+	 * the end of the iteration in which the state was captured, so that 
+	 * global statistics for that iteration are available. The last worker to
+	 * do so waits if the writer is still busy with a previous checkpoint.
+	 * 
+	 * @param wId Worker ID.
+	 * @param model The MVC model.
+	 * @throws IOException If an error occurred while writing a previous 
+	 * checkpoint.
+	 * @throws InterruptedException If the worker is interrupted while 
+	 * waiting for the writer.
+	 */
+	public void submit(int wId, IModelQuerier model) 
+			throws IOException, InterruptedException {
+		
+		if (this.writeError != null) throw this.writeError;
+		
+		if (this.submitted.incrementAndGet() < this.numWorkers) return;
+		
+		/* Last worker to submit completes the snapshot. Other workers can't 
+		 * capture state again before it is done, since they must first 
+		 * synchronize with it. */
+		CheckpointChunk[] snapChunks = this.chunks.clone();
+		int iter = snapChunks[0].getIteration();
+		
+		for (int w = 0; w < this.numWorkers; w++) {
+			this.chunks[w] = null;
+		}
+		this.submitted.set(0);
+		
+		synchronized (this) {
+			if (this.writer == null) this.startWriter();
+		}
+		this.queue.put(new Snapshot(iter, model.getParams().getGridX(), 
+				model.getParams().getGridY(), snapChunks, model));
+	}
+	
+	/**
+	 * Wait for the writer thread to write all submitted checkpoints.
+	 * 
+	 * @throws IOException If an error occurred while writing a checkpoint.
+	 * @throws InterruptedException If interrupted while waiting for the 
+	 * writer.
+	 */
+	public synchronized void finish() throws IOException, InterruptedException {
+		
+		if (this.writer != null) {
+			try {
+				this.queue.put(END);
+				this.writer.join();
+			} finally {
+				this.writer = null;
+				this.queue.clear();
+			}
+		}
+		
+		if (this.writeError != null) throw this.writeError;
+	}
+	
+	/**
+	 * Discard any captured state and checkpoints waiting to be written. 
+	 * Invoked when the model is reset. A checkpoint already being written is
+	 * finished.
+	 */
+	public synchronized void reset() {
+		
+		this.submitted.set(0);
+		for (int w = 0; w < this.numWorkers; w++) {
+			this.chunks[w] = null;
+		}
+		this.queue.clear();
+		try {
+			this.finish();
+		} catch (IOException ioe) {
+			/* A new simulation is starting, errors are discarded. */
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+		this.writeError = null;
+		this.retained.clear();
+	}
+	
+	/**
+	 * Start the writer thread.
+	 */
+	private void startWriter() {
+		
+		this.writer = new Thread(new Runnable() {
+			
+			@Override
+			public void run() {
+				
+				try {
+					
+					Snapshot snapshot;
+					while ((snapshot = queue.take()) != END) {
+						
+						/* Keep consuming snapshots after errors, so that the 
+						 * simulation is not blocked. */
+						if (writeError != null) continue;
+						
+						try {
+							write(snapshot);
+						} catch (IOException ioe) {
+							writeError = ioe;
+						}
+					}
+					
+				} catch (InterruptedException ie) {
+					/* Writer was asked to stop. */
+				}
+			}
+		}, "CheckpointWriter");
+		
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+	
+	/**
+	 * Write a snapshot to a checkpoint file, and delete checkpoints which are
+	 * no longer to be retained.
+	 * 
+	 * @param snapshot Snapshot to write.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private void write(Snapshot snapshot) throws IOException {
+		
+		Path file = Paths.get(this.keep == 1 
+				? this.filename : this.filename + "." + snapshot.iter);
+		Path tmpFile = Paths.get(file + ".tmp");
+		
+		/* Streamed statistics must be in their file before the checkpoint
+		 * is, since they are not saved in it. */
+		int statsIters = snapshot.iter + 1;
+		if (this.streamedStats != null) {
+			this.streamedStats.flush();
+			statsIters = 0;
+		}
+		
+		/* Determine offsets. */
+		long statsOffset = Checkpoint.HEADER_SIZE;
+		long grassOffset = 
+				statsOffset + (long) Checkpoint.STATS_ROW_SIZE * statsIters;
+		long tableOffset = grassOffset + (long) Integer.BYTES * this.size;
+		
+		FileChannel channel = FileChannel.open(tmpFile, 
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		
+		try {
+			
+			/* Header and statistics. */
+			ByteBuffer header = this.allocate(Checkpoint.HEADER_SIZE);
+			header.putInt(Checkpoint.MAGIC).putInt(Checkpoint.VERSION)
+				.putInt(snapshot.iter)
+				.putInt(snapshot.gridX)
+				.putInt(snapshot.gridY)
+				.putInt(this.numWorkers)
+				.putLong(statsOffset).putLong(grassOffset).putLong(tableOffset)
+				.putInt(statsIters);
+			this.writeFully(channel, header);
+			this.writeStats(channel, snapshot.model, statsIters);
+			
+			/* Grass state, with worker ranges in order. */
+			for (CheckpointChunk chunk : snapshot.chunks) {
+				ByteBuffer grass = this.allocate(chunk.getGrassSize());
+				chunk.encodeGrass(grass);
+				this.writeFully(channel, grass);
+			}
+			
+			/* Chunk table. */
+			ByteBuffer table = this.allocate(
+					Checkpoint.CHUNK_ENTRY_SIZE * this.numWorkers);
+			long chunkOffset = tableOffset + table.capacity();
+			for (CheckpointChunk chunk : snapshot.chunks) {
+				table.putLong(chunkOffset).putLong(chunk.getAgentsSize());
+				chunkOffset += chunk.getAgentsSize();
+			}
+			this.writeFully(channel, table);
+			
+			/* Agents and random number generator state of each worker. */
+			for (CheckpointChunk chunk : snapshot.chunks) {
+				ByteBuffer agents = this.allocate((int) chunk.getAgentsSize());
+				chunk.encodeAgents(agents);
+				this.writeFully(channel, agents);
+			}
+			
+			channel.force(true);
+			
+		} finally {
+			channel.close();
+		}
+		
+		/* Replace previous checkpoint file, if any. */
+		try {
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, 
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException amnse) {
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+		
+		/* Delete oldest checkpoints. */
+		if (this.keep > 1) {
+			this.retained.remove(file);
+			this.retained.addLast(file);
+			while (this.retained.size() > this.keep) {
+				Files.deleteIfExists(this.retained.removeFirst());
+			}
+		}
+	}
+	
+	/**
+	 * Write the statistics history to the current position of a channel, 
+	 * encoding a block of rows at a time, so that memory use does not depend
+	 * on the number of iterations.
+	 * 
+	 * @param channel Channel where to write statistics.
+	 * @param model Model from which to obtain the statistics history.
+	 * @param statsIters Number of iterations whose statistics are to be 
+	 * written.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private void writeStats(FileChannel channel, IModelQuerier model, 
+			int statsIters) throws IOException {
+		
+		ByteBuffer rows = this.allocate(
+				Checkpoint.STATS_ROW_SIZE * STATS_BLOCK_ROWS);
+		
+		for (int i = 0; i < statsIters; i++) {
+			IterationStats iterStats = model.getStats(i);
+			for (StatType st : StatType.values()) {
+				rows.putLong(iterStats.getStat(st).longValue());
+			}
+			if (!rows.hasRemaining() || i == statsIters - 1) {
+				rows.flip();
+				while (rows.hasRemaining()) {
+					channel.write(rows);
+				}
+				rows.clear();
+			}
+		}
+	}
+	
+	/**
+	 * Allocate a buffer with the byte order of checkpoint files.
+	 * 
+	 * @param size Buffer size.
+	 * @return A new buffer.
+	 */
+	private ByteBuffer allocate(int size) {
+		return ByteBuffer.allocate(size).order(Checkpoint.ORDER);
+	}
+	
+	/**
+	 * Write the whole contents of a buffer to the current position of a 
+	 * channel. Any bytes not explicitly put in the buffer are written as 
+	 * zeros.
+	 * 
+	 * @param channel Channel where to write buffer.
+	 * @param buffer Buffer to write.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private void writeFully(FileChannel channel, ByteBuffer buffer) 
+			throws IOException {
+		
+		buffer.clear();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+}
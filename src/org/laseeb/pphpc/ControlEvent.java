@@ -51,6 +51,10 @@ public enum ControlEvent {
 	/** After half iteration point. */
 	AFTER_HALF_ITERATION,
 	
+	/** Before a checkpoint or spatial frame is captured, at the end of an 
+	 * iteration. */
+	BEFORE_CHECKPOINT,
+	
 	/** After iteration is finished. */
 	AFTER_END_ITERATION,
 	
@@ -50,6 +50,7 @@ public class Controller implements IController {
 	private ISyncPoint afterAddAgentsSync;
 	private ISyncPoint afterFirstStatsSync;
 	private ISyncPoint afterHalfIterSync;
+	private ISyncPoint beforeCheckpointSync;
 	private ISyncPoint afterEndIterSync;
 	private ISyncPoint afterEndSimSync;
 	
@@ -79,7 +80,7 @@ public class Controller implements IController {
 	}
 
 	/**
-	 * @see IController#setWorkerSynchronizers(ISyncPoint, ISyncPoint, ISyncPoint, ISyncPoint, ISyncPoint, ISyncPoint, ISyncPoint, ISyncPoint)
+	 * @see IController#setWorkerSynchronizers(ISyncPoint, ISyncPoint, ISyncPoint, ISyncPoint, ISyncPoint, ISyncPoint, ISyncPoint, ISyncPoint, ISyncPoint)
 	 */
 	@Override
 	public void setWorkerSynchronizers(
@@ -89,6 +90,7 @@ public class Controller implements IController {
 			ISyncPoint afterAddAgentsSync, 
 			ISyncPoint afterFirstStatsSync, 
 			ISyncPoint afterHalfIterSync,
+			ISyncPoint beforeCheckpointSync,
 			ISyncPoint afterEndIterSync,
 			ISyncPoint afterEndSimSync) {
 
@@ -99,9 +101,21 @@ public class Controller implements IController {
 		this.afterAddAgentsSync = afterAddAgentsSync;
 		this.afterFirstStatsSync = afterFirstStatsSync;
 		this.afterHalfIterSync = afterHalfIterSync;
+		this.beforeCheckpointSync = beforeCheckpointSync;
 		this.afterEndIterSync = afterEndIterSync;
 		this.afterEndSimSync = afterEndSimSync;
 		
+		/* Record arrival skew and emit flight recorder events at sync. 
+		 * points, if required. */
+		BarrierSkews skews = this.model.getBarrierSkews();
+		for (ISyncPoint syncPoint : new ISyncPoint[] { beforeInitCellsSync,
+				afterInitCellsSync, afterAddCellsNeighsSync, 
+				afterAddAgentsSync, afterFirstStatsSync, afterHalfIterSync, 
+				beforeCheckpointSync, afterEndIterSync, afterEndSimSync }) {
+			if (skews != null) syncPoint.recordSkew(skews);
+			if (this.model.isJfrEvents()) syncPoint.emitJfrEvents();
+		}
+		
 		/* Setup control event observer to update model iterations. */
 		IControlEventObserver updateModelIteration = new IControlEventObserver() {
 			@Override
@@ -141,6 +155,40 @@ public class Controller implements IController {
 		/* Register observer to stop simulation when it finishes. */
 		this.afterEndSimSync.registerObserver(stopSim);
 		
+		/* Register observer to emit flight recorder events for iterations, 
+		 * if required. Must be registered after the model iteration is 
+		 * updated, so that statistics of the finished iteration are 
+		 * available. */
+		if (this.model.isJfrEvents()) {
+			IControlEventObserver emitIterationEvent = new IControlEventObserver() {
+				
+				/* Event of the current iteration. */
+				private IterationEvent iterEvent;
+				
+				@Override
+				public void update(ControlEvent event, IController controller) {
+					
+					if (event == ControlEvent.AFTER_END_ITERATION 
+							&& this.iterEvent != null) {
+						this.iterEvent.end();
+						if (this.iterEvent.shouldCommit()) {
+							int iter = model.getCurrentIteration() - 1;
+							IterationStats stats = model.getStats(iter);
+							this.iterEvent.iteration = iter;
+							this.iterEvent.sheep = stats.getSheepCount();
+							this.iterEvent.wolves = stats.getWolvesCount();
+							this.iterEvent.grassAlive = stats.getGrassAlive();
+							this.iterEvent.commit();
+						}
+					}
+					this.iterEvent = new IterationEvent();
+					this.iterEvent.begin();
+				}
+			};
+			this.afterFirstStatsSync.registerObserver(emitIterationEvent);
+			this.afterEndIterSync.registerObserver(emitIterationEvent);
+		}
+		
 	}
 	
 	/**
@@ -168,6 +216,9 @@ public class Controller implements IController {
 			case AFTER_HALF_ITERATION:
 				this.afterHalfIterSync.registerObserver(observer);
 				break;
+			case BEFORE_CHECKPOINT:
+				this.beforeCheckpointSync.registerObserver(observer);
+				break;
 			case AFTER_END_ITERATION:
 				this.afterEndIterSync.registerObserver(observer);
 				break;
@@ -238,6 +289,16 @@ public class Controller implements IController {
 		
 	}
 
+	/**
+	 * @see IController#workerNotifyBeforeCheckpoint()
+	 */
+	@Override
+	public void workerNotifyBeforeCheckpoint() throws InterruptedWorkException {
+		
+		this.beforeCheckpointSync.syncNotify(this);
+		
+	}
+
 	/**
 	 * @see IController#workerNotifyEndIteration()
 	 */
@@ -286,6 +347,7 @@ public class Controller implements IController {
 		this.afterAddAgentsSync.stopNow();
 		this.afterFirstStatsSync.stopNow();
 		this.afterHalfIterSync.stopNow();
+		this.beforeCheckpointSync.stopNow();
 		this.afterEndIterSync.stopNow();
 		this.afterEndSimSync.stopNow();
 		
@@ -313,6 +375,7 @@ public class Controller implements IController {
 			this.afterAddAgentsSync.reset();
 			this.afterFirstStatsSync.reset();
 			this.afterHalfIterSync.reset();
+			this.beforeCheckpointSync.reset();
 			this.afterEndIterSync.reset();
 			this.afterEndSimSync.reset();
 
@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Simulation grid state shared by {@link CsrSimEngine} instances. Instead of 
+ * cell objects holding lists of agent objects, agents are kept in global 
+ * primitive arrays grouped by cell, in a compressed sparse row (CSR) layout: 
+ * the agents in cell <tt>c</tt> are found in positions 
+ * <tt>start[c]</tt> to <tt>start[c] + len[c] - 1</tt> of the agent arrays.
+ * 
+ * Two layouts are kept, one being read while the other is being built. 
+ * During agent movement each agent records its destination cell, and each 
+ * worker counts the agents moving into each block of cells. The new layout is
+ * then rebuilt during the agent actions step: space for each block of cells
+ * is reserved according to these counts (a counting sort by block), and each
+ * cell gathers the agents moving into it from the cells in its neighborhood.
+ * 
+ * @author Nuno Fachada
+ */
+public class CsrGrid {
+	
+	/* Log2 of the number of cells in a layout block. */
+	public static final int BLOCK_BITS = 10;
+	
+	/* Kernels which operate on the grid arrays. */
+	private static final ICsrKernels KERNELS = createKernels();
+
+	/* Number of cells. */
+	private int size;
+	
+	/* Number of simulation workers. */
+	private int numWorkers;
+	
+	/* Number of layout blocks. */
+	private int numBlocks;
+	
+	/* Grass state of each cell (counter or iteration in which grass becomes
+	 * alive, depending on grass regrowth being event-driven or not). */
+	private int[] grass;
+	
+	/* Agent energy, for both layouts. */
+	private int[][] energy;
+	
+	/* Is agent a wolf?, for both layouts. */
+	private boolean[][] wolf;
+	
+	/* Position of the first agent of each cell, for both layouts. */
+	private int[][] start;
+	
+	/* Number of agents in each cell, for both layouts. */
+	private int[][] len;
+	
+	/* Destination cell of each agent in the layout being read (negative if 
+	 * agent is dead). */
+	private int[] dest;
+	
+	/* Last iteration in which agents moved into each cell. */
+	private int[] mark;
+	
+	/* Number of agents moving into each layout block, per worker. */
+	private int[][] blockHist;
+	
+	/* Number of positions already taken in each layout block of the layout 
+	 * being built. */
+	private AtomicIntegerArray blockFill;
+	
+	/* Initial agents, per worker: cell, energy and type. */
+	private int[][] initCell;
+	private int[][] initEnergy;
+	private boolean[][] initWolf;
+	private int[] initCount;
+	
+	/* Was the initial layout built? */
+	private boolean initLayoutReady;
+	
+	/**
+	 * Create a new CSR grid.
+	 * 
+	 * @param size Number of cells.
+	 * @param numWorkers Number of simulation workers.
+	 */
+	public CsrGrid(int size, int numWorkers) {
+		
+		this.size = size;
+		this.numWorkers = numWorkers;
+		this.numBlocks = ((size - 1) >> BLOCK_BITS) + 1;
+		
+		this.grass = new int[size];
+		this.energy = new int[2][0];
+		this.wolf = new boolean[2][0];
+		this.start = new int[2][size];
+		this.len = new int[2][size];
+		this.dest = new int[0];
+		this.mark = new int[size];
+		this.blockHist = new int[numWorkers][this.numBlocks];
+		this.blockFill = new AtomicIntegerArray(this.numBlocks);
+		
+		this.initCell = new int[numWorkers][0];
+		this.initEnergy = new int[numWorkers][0];
+		this.initWolf = new boolean[numWorkers][0];
+		this.initCount = new int[numWorkers];
+		
+		this.initLayoutReady = false;
+	}
+	
+	/**
+	 * Return the kernels which operate on the grid arrays. Vectorized kernels
+	 * are used if the vector API is available (i.e. if the JVM was started 
+	 * with <tt>--add-modules jdk.incubator.vector</tt>), otherwise scalar
+	 * kernels are used.
+	 * 
+	 * @return The kernels which operate on the grid arrays.
+	 */
+	public static ICsrKernels getKernels() {
+		return KERNELS;
+	}
+	
+	/**
+	 * Select the kernels which operate on the grid arrays.
+	 * 
+	 * @return The vectorized kernels if the vector API is available, the 
+	 * scalar kernels otherwise.
+	 */
+	private static ICsrKernels createKernels() {
+		try {
+			return (ICsrKernels) Class.forName("org.laseeb.pphpc.VectorCsrKernels")
+					.getDeclaredConstructor().newInstance();
+		} catch (Exception | LinkageError e) {
+			return new ScalarCsrKernels();
+		}
+	}
+	
+	/**
+	 * Reset the grid. Grass state is set by the simulation engines when cells
+	 * are initialized.
+	 */
+	public void reset() {
+		Arrays.fill(this.mark, 0);
+		Arrays.fill(this.initCount, 0);
+		for (int[] hist : this.blockHist) Arrays.fill(hist, 0);
+		this.initLayoutReady = false;
+	}
+	
+	/**
+	 * Return the number of cells.
+	 * 
+	 * @return The number of cells.
+	 */
+	public int getSize() {
+		return this.size;
+	}
+	
+	/**
+	 * Return the number of simulation workers.
+	 * 
+	 * @return The number of simulation workers.
+	 */
+	public int getNumWorkers() {
+		return this.numWorkers;
+	}
+	
+	/**
+	 * Return the number of layout blocks.
+	 * 
+	 * @return The number of layout blocks.
+	 */
+	public int getNumBlocks() {
+		return this.numBlocks;
+	}
+
+	/**
+	 * Return the grass state array.
+	 * 
+	 * @return The grass state array.
+	 */
+	public int[] getGrass() {
+		return this.grass;
+	}
+
+	/**
+	 * Return the agent energy array of the given layout. The returned array
+	 * may be replaced by a larger one when {@link #ensureCapacity(int, int)}
+	 * is invoked.
+	 * 
+	 * @param layout Layout (0 or 1).
+	 * @return The agent energy array of the given layout.
+	 */
+	public synchronized int[] getEnergy(int layout) {
+		return this.energy[layout];
+	}
+
+	/**
+	 * Return the agent type array of the given layout. The returned array
+	 * may be replaced by a larger one when {@link #ensureCapacity(int, int)}
+	 * is invoked.
+	 * 
+	 * @param layout Layout (0 or 1).
+	 * @return The agent type array of the given layout.
+	 */
+	public synchronized boolean[] getWolf(int layout) {
+		return this.wolf[layout];
+	}
+
+	/**
+	 * Return the agent start position of each cell in the given layout.
+	 * 
+	 * @param layout Layout (0 or 1).
+	 * @return The agent start position of each cell in the given layout.
+	 */
+	public int[] getStart(int layout) {
+		return this.start[layout];
+	}
+
+	/**
+	 * Return the number of agents in each cell in the given layout.
+	 * 
+	 * @param layout Layout (0 or 1).
+	 * @return The number of agents in each cell in the given layout.
+	 */
+	public int[] getLen(int layout) {
+		return this.len[layout];
+	}
+
+	/**
+	 * Return the agent destination array. The returned array may be replaced
+	 * by a larger one when {@link #ensureDestCapacity(int)} is invoked.
+	 * 
+	 * @return The agent destination array.
+	 */
+	public synchronized int[] getDest() {
+		return this.dest;
+	}
+
+	/**
+	 * Return the array with the last iteration in which agents moved into each
+	 * cell.
+	 * 
+	 * @return The array with the last iteration in which agents moved into 
+	 * each cell.
+	 */
+	public int[] getMark() {
+		return this.mark;
+	}
+
+	/**
+	 * Return the number of agents moving into each layout block counted by 
+	 * the given worker.
+	 * 
+	 * @param wId Worker ID.
+	 * @return The number of agents moving into each layout block counted by 
+	 * the given worker.
+	 */
+	public int[] getBlockHist(int wId) {
+		return this.blockHist[wId];
+	}
+
+	/**
+	 * Return the number of positions already taken in each layout block of 
+	 * the layout being built.
+	 * 
+	 * @return The number of positions already taken in each layout block of 
+	 * the layout being built.
+	 */
+	public AtomicIntegerArray getBlockFill() {
+		return this.blockFill;
+	}
+	
+	/**
+	 * Make sure the agent arrays of the given layout can hold the given 
+	 * number of agents. Contents of the agent arrays are not kept if they 
+	 * need to grow.
+	 * 
+	 * @param layout Layout (0 or 1).
+	 * @param capacity Required number of agents.
+	 */
+	public synchronized void ensureCapacity(int layout, int capacity) {
+		if (this.energy[layout].length < capacity) {
+			int newCapacity = Math.max(capacity, 
+					this.energy[layout].length + (this.energy[layout].length >> 1));
+			this.energy[layout] = new int[newCapacity];
+			this.wolf[layout] = new boolean[newCapacity];
+		}
+	}
+
+	/**
+	 * Make sure the agent destination array can hold the given number of
+	 * agents. Contents of the array are not kept if it needs to grow.
+	 * 
+	 * @param capacity Required number of agents.
+	 */
+	public synchronized void ensureDestCapacity(int capacity) {
+		if (this.dest.length < capacity) {
+			this.dest = new int[capacity];
+		}
+	}
+	
+	/**
+	 * Keep an initial agent. Initial agents are placed in the grid by 
+	 * {@link #buildInitLayout(int)}.
+	 * 
+	 * @param wId ID of worker which created the agent.
+	 * @param idx Space-independent index of cell where to put the agent.
+	 * @param agentEnergy Agent energy.
+	 * @param agentWolf Is agent a wolf?
+	 */
+	public void putInitAgent(int wId, int idx, int agentEnergy, boolean agentWolf) {
+		
+		int n = this.initCount[wId];
+		
+		/* Grow worker arrays if necessary. */
+		if (n == this.initCell[wId].length) {
+			int newCapacity = Math.max(64, n << 1);
+			this.initCell[wId] = Arrays.copyOf(this.initCell[wId], newCapacity);
+			this.initEnergy[wId] = Arrays.copyOf(this.initEnergy[wId], newCapacity);
+			this.initWolf[wId] = Arrays.copyOf(this.initWolf[wId], newCapacity);
+		}
+		
+		this.initCell[wId][n] = idx;
+		this.initEnergy[wId][n] = agentEnergy;
+		this.initWolf[wId][n] = agentWolf;
+		this.initCount[wId] = n + 1;
+	}
+	
+	/**
+	 * Place the initial agents in the given layout, if not already done. 
+	 * Agents are sorted by cell with a counting sort, keeping the order in 
+	 * which they were created by each worker, and taking workers in ID order.
+	 * Must be invoked after all workers kept their initial agents.
+	 * 
+	 * @param layout Layout where to place the initial agents, i.e. the 
+	 * layout read in the iteration after the initial one (0 unless the 
+	 * simulation is restored from a checkpoint).
+	 */
+	public synchronized void buildInitLayout(int layout) {
+		
+		if (this.initLayoutReady) return;
+		
+		int[] layoutStart = this.start[layout];
+		int[] layoutLen = this.len[layout];
+		int total = 0;
+
+		/* Count agents in each cell. */
+		Arrays.fill(layoutLen, 0);
+		for (int w = 0; w < this.numWorkers; w++) {
+			for (int i = 0; i < this.initCount[w]; i++) {
+				layoutLen[this.initCell[w][i]]++;
+			}
+			total += this.initCount[w];
+		}
+		
+		/* Determine start position of each cell. */
+		int pos = 0;
+		for (int c = 0; c < this.size; c++) {
+			layoutStart[c] = pos;
+			pos += layoutLen[c];
+		}
+		
+		/* Place agents. */
+		this.ensureCapacity(layout, total);
+		int[] layoutEnergy = this.energy[layout];
+		boolean[] layoutWolf = this.wolf[layout];
+		Arrays.fill(layoutLen, 0);
+		for (int w = 0; w < this.numWorkers; w++) {
+			for (int i = 0; i < this.initCount[w]; i++) {
+				int c = this.initCell[w][i];
+				int a = layoutStart[c] + layoutLen[c]++;
+				layoutEnergy[a] = this.initEnergy[w][i];
+				layoutWolf[a] = this.initWolf[w][i];
+			}
+		}
+		
+		this.initLayoutReady = true;
+	}
+
+}
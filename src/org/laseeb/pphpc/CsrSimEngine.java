@@ -0,0 +1,746 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Simulation engine where agents are kept in the global primitive arrays of a
+ * {@link CsrGrid}, grouped by cell. This avoids creating cell and agent 
+ * objects, and the agent lists kept by each cell.
+ * 
+ * The simulation dynamics are the same as with {@link CellSimEngine}. In 
+ * particular, agents moving into a cell are gathered by increasing index of 
+ * the cell they come from, which is the same order given by a single-threaded
+ * simulation with cell objects. Since cells only read the agents of their
+ * neighbors and write their own agents, the engine does not require cells to
+ * be processed in a specific order.
+ * 
+ * @author Nuno Fachada
+ */
+public class CsrSimEngine implements ISimEngine {
+	
+	/* Shared grid state. */
+	private CsrGrid grid;
+	
+	/* Simulation space. */
+	private ISpace space;
+	
+	/* Model parameters. */
+	private ModelParams params;
+	
+	/* Grass initialization strategy. */
+	private ICellGrassInitStrategy grassInitStrategy;
+	
+	/* Cells work provider. */
+	private IWorkProvider cellsWorkProvider;
+	
+	/* Cells work. */
+	private IWork cellsWork;
+	
+	/* ID of the worker which owns this engine. */
+	private int wId;
+	
+	/* Kernels which operate on the grid arrays. */
+	private ICsrKernels kernels;
+	
+	/* Shuffle agents before they act? */
+	private boolean shuffle;
+	
+	/* Grass regrowth events scheduled by this engine, if grass regrowth is 
+	 * event-driven. */
+	private GrassTimerWheel grassWheel;
+	
+	/* Number of cells processed by this engine so far. */
+	private int cellsProcessed;
+	
+	/* Cells processed by this engine which currently hold agents. */
+	private ActiveCellList activeCells;
+	
+	/* Iteration in which the simulation starts (non-zero if restored from 
+	 * a checkpoint). */
+	private int startIter;
+	
+	/* First and last (exclusive) layout blocks whose fill counters are reset 
+	 * by this engine. */
+	private int firstBlock;
+	private int lastBlock;
+
+	/* Start position of each layout block in the layout being built. */
+	private int[] blockStart;
+	
+	/* Neighbors of the cell being processed. */
+	private int[] neighbors;
+	
+	/* Cells from where agents can move into the cell being processed, sorted
+	 * by index and without repetitions. */
+	private int[] sources;
+	
+	/* Energy and type of the agents in the cell being processed. */
+	private int[] cellEnergy;
+	private boolean[] cellWolf;
+	
+	/* Partial statistics kept while processing cells. */
+	private int sheepCount;
+	private int wolvesCount;
+	private long sheepEnergy;
+	private long wolvesEnergy;
+	
+	/**
+	 * Create a new CSR simulation engine.
+	 * 
+	 * @param model The MVC model.
+	 * @param grid Shared grid state.
+	 * @param grassInitStrategy Grass initialization strategy.
+	 * @param cellsWorkProvider Cells work provider.
+	 * @param cellsWork Cells work.
+	 */
+	public CsrSimEngine(IModel model, CsrGrid grid, 
+			ICellGrassInitStrategy grassInitStrategy,
+			IWorkProvider cellsWorkProvider, IWork cellsWork) {
+		
+		this.grid = grid;
+		this.space = model.getSpace();
+		this.params = model.getParams();
+		this.grassInitStrategy = grassInitStrategy;
+		this.cellsWorkProvider = cellsWorkProvider;
+		this.cellsWork = cellsWork;
+		this.wId = cellsWork.getWorkId();
+		this.kernels = CsrGrid.getKernels();
+		this.shuffle = model.isShuffle();
+		this.grassWheel = model.isEventGrass() 
+				? new GrassTimerWheel(this.params.getGrassRestart()) : null;
+		this.activeCells = new ActiveCellList();
+		this.startIter = model.getCurrentIteration();
+		
+		int numBlocks = grid.getNumBlocks();
+		int numWorkers = grid.getNumWorkers();
+		this.firstBlock = (int) ((long) numBlocks * this.wId / numWorkers);
+		this.lastBlock = (int) ((long) numBlocks * (this.wId + 1) / numWorkers);
+		this.blockStart = new int[numBlocks];
+		
+		this.neighbors = new int[this.space.getNeighborhoodSize()];
+		this.sources = new int[this.space.getNeighborhoodSize()];
+		this.cellEnergy = new int[64];
+		this.cellWolf = new boolean[64];
+	}
+
+	/**
+	 * @see ISimEngine#initCells(RandomGenerator)
+	 */
+	@Override
+	public void initCells(RandomGenerator rng) {
+		
+		int token;
+		int[] grass = this.grid.getGrass();
+		int grassRestart = this.params.getGrassRestart();
+		
+		while ((token = this.cellsWorkProvider.getNextToken(this.cellsWork)) >= 0) {
+			this.cellsProcessed++;
+			
+			/* With event-driven regrowth, the grass state is the iteration in 
+			 * which grass becomes alive, and the initial iteration is zero, so 
+			 * the initial state is the same in both cases. */
+			grass[token] = this.grassInitStrategy.getInitGrass(grassRestart, rng);
+			if (this.grassWheel != null) this.grassWheel.addCell(grass[token]);
+		}
+
+		this.cellsWorkProvider.resetWork(this.cellsWork);
+	}
+
+	/**
+	 * @see ISimEngine#restoreCells(Checkpoint)
+	 */
+	@Override
+	public void restoreCells(Checkpoint checkpoint) {
+		
+		int token;
+		int iter = checkpoint.getIteration();
+		int[] grass = this.grid.getGrass();
+		
+		if (this.grassWheel != null) this.grassWheel.setIteration(iter);
+		
+		while ((token = this.cellsWorkProvider.getNextToken(this.cellsWork)) >= 0) {
+			this.cellsProcessed++;
+			
+			/* With event-driven regrowth, the grass state is the iteration in 
+			 * which grass becomes alive. */
+			int counter = checkpoint.getGrass(token);
+			if (this.grassWheel != null) {
+				grass[token] = iter + counter;
+				this.grassWheel.addCell(counter);
+			} else {
+				grass[token] = counter;
+			}
+		}
+
+		this.cellsWorkProvider.resetWork(this.cellsWork);
+	}
+
+	/**
+	 * Does nothing, neighbors are determined by the simulation space when 
+	 * required.
+	 * 
+	 * @see ISimEngine#setCellNeighbors()
+	 */
+	@Override
+	public void setCellNeighbors() {}
+
+	/**
+	 * @see ISimEngine#putInitAgent(int, IAgent)
+	 */
+	@Override
+	public void putInitAgent(int idx, IAgent agent) {
+		this.grid.putInitAgent(this.wId, idx, agent.getEnergy(), agent instanceof Wolf);
+	}
+
+	/**
+	 * Restored agents are kept as initial agents, which keep their order 
+	 * within each cell if each cell is restored by a single worker.
+	 * 
+	 * @see ISimEngine#restoreAgent(int, IAgent)
+	 */
+	@Override
+	public void restoreAgent(int idx, IAgent agent) {
+		this.putInitAgent(idx, agent);
+	}
+
+	/**
+	 * Also keeps the cells which hold agents.
+	 * 
+	 * @see ISimEngine#getFirstStats(IterationStats)
+	 */
+	@Override
+	public void getFirstStats(IterationStats stats) {
+		
+		int token;
+		
+		/* Place initial agents in the layout read in the next iteration, if 
+		 * another worker has not done it yet. */
+		int layout = this.startIter & 1;
+		this.grid.buildInitLayout(layout);
+		
+		int[] start = this.grid.getStart(layout);
+		int[] len = this.grid.getLen(layout);
+		int[] energy = this.grid.getEnergy(layout);
+		boolean[] wolf = this.grid.getWolf(layout);
+		
+		int runStart = 0;
+		int runEnd = 0;
+		
+		this.clearStats();
+		while ((token = this.cellsWorkProvider.getNextToken(this.cellsWork)) >= 0) {
+			this.cellsProcessed++;
+			
+			/* Get grass statistics for runs of consecutive cells. */
+			if (token != runEnd) {
+				this.getGrassStats(runStart, runEnd, stats);
+				runStart = token;
+			}
+			runEnd = token + 1;
+			
+			for (int a = start[token], end = a + len[token]; a < end; a++) {
+				this.countAgent(energy[a], wolf[a]);
+			}
+			if (len[token] > 0) this.activeCells.add(token);
+		}
+		this.getGrassStats(runStart, runEnd, stats);
+		if (this.grassWheel != null) this.grassWheel.getStats(stats);
+		this.updateStats(stats);
+
+		this.cellsWorkProvider.resetWork(this.cellsWork);
+	}
+
+	/**
+	 * @see ISimEngine#moveAgentsGrowGrass(int, RandomGenerator, IWorkerTimer)
+	 */
+	@Override
+	public void moveAgentsGrowGrass(int iter, RandomGenerator rng, 
+			IWorkerTimer timer) {
+		
+		/* Layout being read in this iteration. */
+		int layout = (iter - 1) & 1;
+
+		int[] start = this.grid.getStart(layout);
+		int[] len = this.grid.getLen(layout);
+		int[] energy = this.grid.getEnergy(layout);
+		this.grid.ensureDestCapacity(energy.length);
+		int[] dest = this.grid.getDest();
+		int[] mark = this.grid.getMark();
+		int[] hist = this.grid.getBlockHist(this.wId);
+		AtomicIntegerArray blockFill = this.grid.getBlockFill();
+		int neighSize = this.neighbors.length;
+		
+		/* Prepare layout blocks for the agent actions step. */
+		Arrays.fill(hist, 0);
+		for (int b = this.firstBlock; b < this.lastBlock; b++) {
+			blockFill.set(b, 0);
+		}
+		
+		/* ************************* */
+		/* ** 1 - Agent movement. ** */
+		/* ************************* */
+		
+		/* Only cells which hold agents need to be visited. */
+		this.cellsProcessed += this.activeCells.size();
+		for (int i = 0; i < this.activeCells.size(); i++) {
+			
+			int cell = this.activeCells.get(i);
+			int end = start[cell] + len[cell];
+			this.space.getNeighbors(cell, this.neighbors);
+			
+			/* Decrement energy of agents which are still alive. */
+			this.kernels.decEnergy(energy, start[cell], end);
+			
+			for (int a = start[cell]; a < end; a++) {
+				
+				/* Move agent if he's still alive. */
+				if (energy[a] > 0) {
+					int to = this.neighbors[rng.nextInt(neighSize)];
+					dest[a] = to;
+					mark[to] = iter;
+					hist[to >> CsrGrid.BLOCK_BITS]++;
+				} else {
+					dest[a] = -1;
+				}
+			}
+		}
+		timer.mark(TimedPhase.MOVE_AGENTS);
+		
+		/* ************************* */
+		/* *** 2 - Grass growth. *** */
+		/* ************************* */
+		
+		if (this.grassWheel != null) {
+
+			/* Grass regrowth is event-driven, just advance the timer wheel. */
+			this.grassWheel.advance(iter);
+			
+		} else {
+			
+			int token;
+			int runStart = 0;
+			int runEnd = 0;
+			int[] grass = this.grid.getGrass();
+
+			/* Regenerate grass in all cells, if required, processing runs of
+			 * consecutive cells at once. */
+			while ((token = this.cellsWorkProvider.getNextToken(this.cellsWork)) >= 0) {
+				this.cellsProcessed++;
+				if (token != runEnd) {
+					this.kernels.regenerateGrass(grass, runStart, runEnd);
+					runStart = token;
+				}
+				runEnd = token + 1;
+			}
+			this.kernels.regenerateGrass(grass, runStart, runEnd);
+			
+			this.cellsWorkProvider.resetWork(this.cellsWork);
+		}
+		timer.mark(TimedPhase.GROW_GRASS);
+	}
+
+	/**
+	 * @see ISimEngine#agentActionsGetStats(int, RandomGenerator, IterationStats)
+	 */
+	@Override
+	public void agentActionsGetStats(int iter, RandomGenerator rng, IterationStats stats) {
+		
+		int token;
+
+		/* Layout being read and layout being built in this iteration. */
+		int fromLayout = (iter - 1) & 1;
+		int toLayout = iter & 1;
+		
+		/* Reserve space for each layout block, considering that each agent 
+		 * moving into a block may give birth to another agent. */
+		int total = 0;
+		for (int b = 0; b < this.blockStart.length; b++) {
+			this.blockStart[b] = total;
+			for (int w = 0; w < this.grid.getNumWorkers(); w++) {
+				total += 2 * this.grid.getBlockHist(w)[b];
+			}
+		}
+		this.grid.ensureCapacity(toLayout, total);
+		
+		int[] fromStart = this.grid.getStart(fromLayout);
+		int[] fromLen = this.grid.getLen(fromLayout);
+		int[] fromEnergy = this.grid.getEnergy(fromLayout);
+		boolean[] fromWolf = this.grid.getWolf(fromLayout);
+		int[] toStart = this.grid.getStart(toLayout);
+		int[] toLen = this.grid.getLen(toLayout);
+		int[] toEnergy = this.grid.getEnergy(toLayout);
+		boolean[] toWolf = this.grid.getWolf(toLayout);
+		int[] dest = this.grid.getDest();
+		int[] mark = this.grid.getMark();
+		AtomicIntegerArray blockFill = this.grid.getBlockFill();
+		
+		/* Run of consecutive cells, for grass statistics. */
+		int runStart = 0;
+		int runEnd = 0;
+
+		/* Active cells will be determined again. */
+		this.activeCells.clear();
+		this.clearStats();
+		
+		/* Cycle through cells in order to perform step 3 and 4 of simulation. */
+		while ((token = this.cellsWorkProvider.getNextToken(this.cellsWork)) >= 0) {
+			this.cellsProcessed++;
+			
+			/* Grass statistics are obtained for runs of consecutive cells, 
+			 * after agents in these cells have acted. */
+			if (token != runEnd) {
+				this.getGrassStats(runStart, runEnd, stats);
+				runStart = token;
+			}
+			runEnd = token + 1;
+			
+			/* Cells into which no agents moved hold no agents. */
+			if (mark[token] != iter) {
+				toLen[token] = 0;
+				continue;
+			}
+			
+			/* Gather agents which moved into this cell. */
+			int numSources = this.getSources(token);
+			int n = 0;
+			for (int s = 0; s < numSources; s++) {
+				int from = this.sources[s];
+				for (int a = fromStart[from], end = a + fromLen[from]; a < end; a++) {
+					if (dest[a] == token) {
+						if (n == this.cellEnergy.length) this.growCellAgents();
+						this.cellEnergy[n] = fromEnergy[a];
+						this.cellWolf[n] = fromWolf[a];
+						n++;
+					}
+				}
+			}
+			
+			/* ************************** */
+			/* *** 3 - Agent actions. *** */
+			/* ************************** */
+			
+			int numAgents = this.agentActions(token, n, iter, rng);
+			
+			/* ****************************** */
+			/* *** 4 - Gather statistics. *** */
+			/* ****************************** */
+			
+			/* Keep agents which are alive or were born in this iteration in 
+			 * the layout being built. */
+			int count = numAgents - n;
+			for (int i = 0; i < n; i++) {
+				if (this.cellEnergy[i] > 0) count++;
+			}
+			int block = token >> CsrGrid.BLOCK_BITS;
+			int pos = this.blockStart[block] + blockFill.getAndAdd(block, count);
+			toStart[token] = pos;
+			toLen[token] = count;
+			for (int i = 0; i < numAgents; i++) {
+				if (i >= n || this.cellEnergy[i] > 0) {
+					toEnergy[pos] = this.cellEnergy[i];
+					toWolf[pos] = this.cellWolf[i];
+					this.countAgent(this.cellEnergy[i], this.cellWolf[i]);
+					pos++;
+				}
+			}
+			
+			/* Keep cell for the next movement step if it still holds 
+			 * agents. */
+			if (count > 0) this.activeCells.add(token);
+		}
+		
+		/* Grass statistics for the last run of cells. */
+		this.getGrassStats(runStart, runEnd, stats);
+		
+		/* Add grass statistics if grass regrowth is event-driven. */
+		if (this.grassWheel != null) this.grassWheel.getStats(stats);
+		
+		this.updateStats(stats);
+
+		this.cellsWorkProvider.resetWork(this.cellsWork);
+	}
+	
+	/**
+	 * @see ISimEngine#saveCells(CheckpointChunk)
+	 */
+	@Override
+	public void saveCells(CheckpointChunk chunk) {
+		
+		int iter = chunk.getIteration();
+		int layout = iter & 1;
+		int[] grass = this.grid.getGrass();
+		int[] start = this.grid.getStart(layout);
+		int[] len = this.grid.getLen(layout);
+		int[] energy = this.grid.getEnergy(layout);
+		boolean[] wolf = this.grid.getWolf(layout);
+		
+		this.cellsProcessed += chunk.getTo() - chunk.getFrom();
+		for (int idx = chunk.getFrom(); idx < chunk.getTo(); idx++) {
+			chunk.addCell(this.grassWheel != null 
+					? Math.max(0, grass[idx] - iter) : grass[idx]);
+			for (int a = start[idx], end = a + len[idx]; a < end; a++) {
+				chunk.addAgent(energy[a], wolf[a]);
+			}
+		}
+	}
+	
+	/**
+	 * @see ISimEngine#saveFrame(FrameChunk)
+	 */
+	@Override
+	public void saveFrame(FrameChunk chunk) {
+		
+		int iter = chunk.getIteration();
+		int layout = iter & 1;
+		int[] start = this.grid.getStart(layout);
+		int[] len = this.grid.getLen(layout);
+		boolean[] wolf = this.grid.getWolf(layout);
+		
+		this.cellsProcessed += chunk.getTo() - chunk.getFrom();
+		for (int idx = chunk.getFrom(); idx < chunk.getTo(); idx++) {
+			int wolves = 0;
+			for (int a = start[idx], end = a + len[idx]; a < end; a++) {
+				if (wolf[a]) wolves++;
+			}
+			chunk.addCell(len[idx] - wolves, wolves, this.isGrassAlive(idx, iter));
+		}
+	}
+	
+	/**
+	 * @see ISimEngine#getCellsProcessed()
+	 */
+	@Override
+	public int getCellsProcessed() {
+		return this.cellsProcessed;
+	}
+	
+	/**
+	 * Perform the actions of the agents in the cell being processed. Agents
+	 * born in this step are placed after the existing agents.
+	 * 
+	 * @param cell Cell being processed.
+	 * @param n Number of agents in cell.
+	 * @param iter Current iteration.
+	 * @param rng Random number generator.
+	 * @return Number of agents in cell, including newborns.
+	 */
+	private int agentActions(int cell, int n, int iter, RandomGenerator rng) {
+		
+		int numAgents = n;
+		int[] energy = this.cellEnergy;
+		boolean[] wolf = this.cellWolf;
+		
+		/* Shuffle agents in the same way as Collections.shuffle(). */
+		if (this.shuffle) {
+			for (int i = n; i > 1; i--) {
+				int j = rng.nextInt(i);
+				int e = energy[i - 1];
+				boolean w = wolf[i - 1];
+				energy[i - 1] = energy[j];
+				wolf[i - 1] = wolf[j];
+				energy[j] = e;
+				wolf[j] = w;
+			}
+		}
+		
+		/* Cycle through agents. */
+		for (int i = 0; i < n; i++) {
+			
+			/* Only agents which are alive act. */
+			int e = energy[i];
+			if (e <= 0) continue;
+			
+			int reproduceThreshold;
+			int reproduceProb;
+			
+			if (wolf[i]) {
+				
+				/* Wolves eat the first sheep which is still alive. */
+				for (int j = 0; j < n; j++) {
+					if (!wolf[j] && energy[j] > 0) {
+						energy[j] = 0;
+						e += this.params.getWolvesGainFromFood();
+						break;
+					}
+				}
+				reproduceThreshold = this.params.getWolvesReproduceThreshold();
+				reproduceProb = this.params.getWolvesReproduceProb();
+				
+			} else {
+				
+				/* Sheep eat grass if it's alive. */
+				if (this.isGrassAlive(cell, iter)) {
+					this.eatGrass(cell, iter);
+					e += this.params.getSheepGainFromFood();
+				}
+				reproduceThreshold = this.params.getSheepReproduceThreshold();
+				reproduceProb = this.params.getSheepReproduceProb();
+				
+			}
+			
+			/* Maybe perform reproduction, giving half of the energy to the 
+			 * newborn. */
+			if (e > reproduceThreshold && rng.nextInt(100) < reproduceProb) {
+				if (numAgents == energy.length) {
+					this.growCellAgents();
+					energy = this.cellEnergy;
+					wolf = this.cellWolf;
+				}
+				energy[numAgents] = e / 2;
+				wolf[numAgents] = wolf[i];
+				e -= e / 2;
+				numAgents++;
+			}
+			
+			energy[i] = e;
+		}
+		
+		return numAgents;
+	}
+	
+	/**
+	 * Determine the cells from where agents can move into the given cell, 
+	 * i.e. its neighbors (neighborhoods are assumed to be symmetric), sorted
+	 * by index and without repetitions.
+	 * 
+	 * @param cell Cell being processed.
+	 * @return Number of source cells.
+	 */
+	private int getSources(int cell) {
+
+		int num = 0;
+		
+		this.space.getNeighbors(cell, this.neighbors);
+		
+		/* Insertion sort, skipping repeated neighbors (which can occur in 
+		 * very small spaces). */
+		for (int neigh : this.neighbors) {
+			int i = num - 1;
+			while (i >= 0 && this.sources[i] > neigh) i--;
+			if (i >= 0 && this.sources[i] == neigh) continue;
+			System.arraycopy(this.sources, i + 1, this.sources, i + 2, num - i - 1);
+			this.sources[i + 1] = neigh;
+			num++;
+		}
+		return num;
+	}
+
+	/**
+	 * Is grass alive in the given cell?
+	 * 
+	 * @param cell Cell index.
+	 * @param iter Current iteration.
+	 * @return True if grass is alive, false otherwise.
+	 */
+	private boolean isGrassAlive(int cell, int iter) {
+		int grass = this.grid.getGrass()[cell];
+		return this.grassWheel != null ? grass <= iter : grass == 0;
+	}
+	
+	/**
+	 * Eat grass in the given cell.
+	 * 
+	 * @param cell Cell index.
+	 * @param iter Current iteration.
+	 */
+	private void eatGrass(int cell, int iter) {
+		if (this.grassWheel != null) {
+			this.grid.getGrass()[cell] = iter + this.params.getGrassRestart();
+			this.grassWheel.grassEaten();
+		} else {
+			this.grid.getGrass()[cell] = this.params.getGrassRestart();
+		}
+	}
+	
+	/**
+	 * Get grass statistics for a run of consecutive cells. Does nothing if 
+	 * grass regrowth is event-driven, in which case grass statistics are kept 
+	 * by the timer wheel.
+	 * 
+	 * @param from First cell in run.
+	 * @param to Last cell in run (exclusive).
+	 * @param stats Statistics object to update.
+	 */
+	private void getGrassStats(int from, int to, IterationStats stats) {
+		if (this.grassWheel == null && from < to) {
+			int[] grass = this.grid.getGrass();
+			stats.updateGrassAlive(this.kernels.countZeros(grass, from, to));
+			stats.updateGrassCountdown(this.kernels.sum(grass, from, to));
+		}
+	}
+	
+	/**
+	 * Double the capacity of the arrays which keep the agents of the cell 
+	 * being processed.
+	 */
+	private void growCellAgents() {
+		this.cellEnergy = Arrays.copyOf(this.cellEnergy, this.cellEnergy.length << 1);
+		this.cellWolf = Arrays.copyOf(this.cellWolf, this.cellWolf.length << 1);
+	}
+	
+	/**
+	 * Clear partial agent statistics.
+	 */
+	private void clearStats() {
+		this.sheepCount = 0;
+		this.wolvesCount = 0;
+		this.sheepEnergy = 0;
+		this.wolvesEnergy = 0;
+	}
+	
+	/**
+	 * Add an agent to the partial agent statistics.
+	 * 
+	 * @param energy Agent energy.
+	 * @param wolf Is agent a wolf?
+	 */
+	private void countAgent(int energy, boolean wolf) {
+		if (wolf) {
+			this.wolvesCount++;
+			this.wolvesEnergy += energy;
+		} else {
+			this.sheepCount++;
+			this.sheepEnergy += energy;
+		}
+	}
+	
+	/**
+	 * Add partial agent statistics to the given statistics object.
+	 * 
+	 * @param stats Statistics object to update.
+	 */
+	private void updateStats(IterationStats stats) {
+		stats.updateSheepCount(this.sheepCount);
+		stats.updateSheepEnergy(this.sheepEnergy);
+		stats.updateWolvesCount(this.wolvesCount);
+		stats.updateWolvesEnergy(this.wolvesEnergy);
+	}
+
+}
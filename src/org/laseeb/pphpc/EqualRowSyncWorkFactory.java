@@ -62,6 +62,7 @@ public class EqualRowSyncWorkFactory extends AbstractMultiThreadWorkFactory {
 				new BlockingSyncPoint(ControlEvent.AFTER_INIT_AGENTS, controller, this.numThreads), 
 				new NonBlockingSyncPoint(ControlEvent.AFTER_FIRST_STATS, this.numThreads), 
 				new BlockingSyncPoint(ControlEvent.AFTER_HALF_ITERATION, controller, this.numThreads), 
+				new BlockingSyncPoint(ControlEvent.BEFORE_CHECKPOINT, controller, this.numThreads), 
 				new BlockingSyncPoint(ControlEvent.AFTER_END_ITERATION, controller, this.numThreads), 
 				new NonBlockingSyncPoint(ControlEvent.AFTER_END_SIMULATION, this.numThreads));
 		
@@ -85,6 +86,17 @@ public class EqualRowSyncWorkFactory extends AbstractMultiThreadWorkFactory {
 		return new CellPutAgentAsync();
 	}
 
+	/**
+	 * Row-level synchronization is performed while cell work tokens are being
+	 * fetched, so cells must be processed in the given order.
+	 * 
+	 * @see IWorkFactory#requiresOrderedCellWork()
+	 */
+	@Override
+	public boolean requiresOrderedCellWork() {
+		return true;
+	}
+
 	/**
 	 * @see AbstractMultiThreadWorkFactory#doGetWorkProvider(int, WorkType, IModel, IController)
 	 */
@@ -112,6 +112,8 @@ public class EqualWorkFactory extends AbstractMultiThreadWorkFactory {
 						this.numThreads), 
 				new BlockingSyncPoint(ControlEvent.AFTER_HALF_ITERATION, 
 						controller, this.numThreads), 
+				new BlockingSyncPoint(ControlEvent.BEFORE_CHECKPOINT, 
+						controller, this.numThreads), 
 				new BlockingSyncPoint(ControlEvent.AFTER_END_ITERATION, 
 						controller, this.numThreads), 
 				new NonBlockingSyncPoint(ControlEvent.AFTER_END_SIMULATION, 
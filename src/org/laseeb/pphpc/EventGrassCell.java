@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+/**
+ * A PPHPC model cell with event-driven grass regrowth. Instead of keeping a 
+ * grass counter which is decremented in every iteration, the cell keeps the 
+ * iteration in which its grass will be alive again. Regrowth of eaten grass 
+ * is scheduled by the simulation workers in a {@link GrassTimerWheel}, which
+ * also keeps grass statistics. As such, grass statistics are not gathered 
+ * at the cell level.
+ * 
+ * @author Nuno Fachada
+ */
+public class EventGrassCell extends Cell {
+	
+	/* The MVC model, which keeps the current iteration. */
+	private IModelQuerier model;
+	
+	/* Iteration in which grass will be alive. */
+	private int grassAliveAt;
+
+	/**
+	 * Create a new grid cell with event-driven grass regrowth.
+	 * 
+	 * @param model The MVC model, which keeps the current iteration.
+	 * @param grassRestart Grass restart simulation parameter.
+	 * @param initialGrass Initial grass value.
+	 * @param putInitAgentsStrategy Strategy for putting initial agents in 
+	 * this cell.
+	 * @param putExistingAgentStrategy Strategy for putting existing agents in
+	 * this cell.
+	 */
+	public EventGrassCell(IModelQuerier model, int grassRestart, 
+			int initialGrass, ICellPutAgentStrategy putInitAgentsStrategy,
+			ICellPutAgentStrategy putExistingAgentStrategy) {
+		
+		super(grassRestart, 0, putInitAgentsStrategy, putExistingAgentStrategy);
+		this.model = model;
+		this.grassAliveAt = model.getCurrentIteration() + initialGrass;
+	}
+
+	/**
+	 * @see ICell#isGrassAlive()
+	 */
+	@Override
+	public boolean isGrassAlive() {
+		return this.grassAliveAt <= this.model.getCurrentIteration();
+	}
+
+	/**
+	 * @see ICell#eatGrass()
+	 */
+	@Override
+	public void eatGrass() {
+		this.grassAliveAt = this.model.getCurrentIteration() 
+				+ this.getGrassRestart();
+	}
+
+	/**
+	 * Does nothing, grass regrowth is implicit in the passage of iterations.
+	 * 
+	 * @see ICell#regenerateGrass()
+	 */
+	@Override
+	public void regenerateGrass() {}
+
+	/**
+	 * @see ICell#getGrass()
+	 */
+	@Override
+	public int getGrass() {
+		return Math.max(0, 
+				this.grassAliveAt - this.model.getCurrentIteration());
+	}
+
+	/**
+	 * Does nothing, grass statistics are kept by {@link GrassTimerWheel}.
+	 * 
+	 * @see ICell#getGrassStats(IterationStats)
+	 */
+	@Override
+	public void getGrassStats(IterationStats stats) {}
+
+}
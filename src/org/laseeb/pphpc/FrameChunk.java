@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * A band of rows of a downsampled spatial frame, captured by a simulation 
+ * worker. Each raster pixel covers a square block of cells, and holds the 
+ * number of sheep, the number of wolves and the number of cells with live 
+ * grass in that block. Cells must be added in index order.
+ * 
+ * @see SpatialFrames
+ * @author Nuno Fachada
+ */
+public class FrameChunk {
+	
+	/* Iteration of the frame. */
+	private int iter;
+	
+	/* Horizontal grid size. */
+	private int gridX;
+	
+	/* Number of cells in each side of a raster pixel. */
+	private int scale;
+	
+	/* Raster width. */
+	private int width;
+	
+	/* First raster row in band. */
+	private int firstRow;
+	
+	/* Number of raster rows in band. */
+	private int numRows;
+	
+	/* First cell in band. */
+	private int from;
+	
+	/* Last cell in band (exclusive). */
+	private int to;
+	
+	/* Number of sheep in each pixel. */
+	private int[] sheep;
+	
+	/* Number of wolves in each pixel. */
+	private int[] wolves;
+	
+	/* Number of cells with live grass in each pixel. */
+	private int[] grass;
+	
+	/* Horizontal position of next cell in grid. */
+	private int x;
+	
+	/* Vertical position of next cell in band. */
+	private int y;
+	
+	/**
+	 * Create a new frame chunk.
+	 * 
+	 * @param iter Iteration of the frame.
+	 * @param gridX Horizontal grid size.
+	 * @param gridY Vertical grid size.
+	 * @param scale Number of cells in each side of a raster pixel.
+	 * @param firstRow First raster row in band.
+	 * @param numRows Number of raster rows in band.
+	 */
+	public FrameChunk(int iter, int gridX, int gridY, int scale, 
+			int firstRow, int numRows) {
+		
+		this.iter = iter;
+		this.gridX = gridX;
+		this.scale = scale;
+		this.width = SpatialFrames.rasterSize(gridX, scale);
+		this.firstRow = firstRow;
+		this.numRows = numRows;
+		this.from = Math.min(firstRow * scale, gridY) * gridX;
+		this.to = Math.min((firstRow + numRows) * scale, gridY) * gridX;
+		this.sheep = new int[numRows * this.width];
+		this.wolves = new int[numRows * this.width];
+		this.grass = new int[numRows * this.width];
+	}
+	
+	/**
+	 * Get the iteration of the frame.
+	 * 
+	 * @return Iteration of the frame.
+	 */
+	public int getIteration() {
+		return this.iter;
+	}
+	
+	/**
+	 * Get the first cell in band.
+	 * 
+	 * @return First cell in band.
+	 */
+	public int getFrom() {
+		return this.from;
+	}
+	
+	/**
+	 * Get the last cell in band (exclusive).
+	 * 
+	 * @return Last cell in band (exclusive).
+	 */
+	public int getTo() {
+		return this.to;
+	}
+	
+	/**
+	 * Get the first raster row in band.
+	 * 
+	 * @return First raster row in band.
+	 */
+	public int getFirstRow() {
+		return this.firstRow;
+	}
+	
+	/**
+	 * Get the number of raster rows in band.
+	 * 
+	 * @return Number of raster rows in band.
+	 */
+	public int getNumRows() {
+		return this.numRows;
+	}
+	
+	/**
+	 * Add the next cell in band.
+	 * 
+	 * @param numSheep Number of sheep in cell.
+	 * @param numWolves Number of wolves in cell.
+	 * @param grassAlive Is grass alive in cell?
+	 */
+	public void addCell(int numSheep, int numWolves, boolean grassAlive) {
+		
+		int pixel = (this.y / this.scale) * this.width + this.x / this.scale;
+		this.sheep[pixel] += numSheep;
+		this.wolves[pixel] += numWolves;
+		if (grassAlive) this.grass[pixel]++;
+		
+		this.x++;
+		if (this.x == this.gridX) {
+			this.x = 0;
+			this.y++;
+		}
+	}
+	
+	/**
+	 * Encode and compress the sheep, wolves and grass rasters of this band, 
+	 * as described in {@link SpatialFrames}.
+	 * 
+	 * @return Compressed rasters.
+	 */
+	public byte[] encode() {
+		
+		int n = this.numRows * this.width;
+		ByteBuffer raw = ByteBuffer.allocate(3 * Integer.BYTES * n)
+				.order(SpatialFrames.ORDER);
+		raw.asIntBuffer().put(this.sheep).put(this.wolves).put(this.grass);
+		
+		/* Favour speed, since this is done during the simulation. */
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		byte[] compressed = new byte[raw.capacity() + 64];
+		int length = 0;
+		try {
+			deflater.setInput(raw.array());
+			deflater.finish();
+			while (!deflater.finished()) {
+				if (length == compressed.length) {
+					compressed = Arrays.copyOf(compressed, 
+							compressed.length << 1);
+				}
+				length += deflater.deflate(compressed, length, 
+						compressed.length - length);
+			}
+		} finally {
+			deflater.end();
+		}
+		return Arrays.copyOf(compressed, length);
+	}
+
+}
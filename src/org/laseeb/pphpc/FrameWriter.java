@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Saves spatial frames periodically during a simulation, in the format 
+ * described in {@link SpatialFrames}. The raster is split in horizontal 
+ * bands, one per worker. After all workers synchronize at the end of an 
+ * iteration in which a frame is due, each worker downsamples and compresses
+ * its band in parallel with {@link #capture(int, int, ISimEngine)}. The last 
+ * worker to do so puts the complete frame in a queue, from where a 
+ * background writer thread takes it and appends it to the file while the 
+ * simulation goes on, so that frames are always written in iteration order.
+ * If the writer is still busy with the previous frame when a new one is 
+ * complete, the simulation waits for it. The simulation is not affected in 
+ * iterations in which no frame is due.
+ * 
+ * @author Nuno Fachada
+ */
+public class FrameWriter {
+	
+	/* Marks the end of the frame queue. */
+	private static final Frame END = new Frame(0, null, null);
+	
+	/* Spatial frames file. */
+	private String filename;
+	
+	/* Interval, in iterations, between frames. */
+	private int interval;
+	
+	/* Number of cells in each side of a raster pixel. */
+	private int scale;
+	
+	/* Horizontal grid size. */
+	private int gridX;
+	
+	/* Vertical grid size. */
+	private int gridY;
+	
+	/* Number of workers. */
+	private int numWorkers;
+	
+	/* Band captured by each worker. */
+	private FrameChunk[] bands;
+	
+	/* Compressed band captured by each worker. */
+	private byte[][] data;
+	
+	/* Number of workers which captured their band. */
+	private AtomicInteger captured;
+	
+	/* Frames waiting to be written. */
+	private BlockingQueue<Frame> queue;
+	
+	/* Writer thread. */
+	private Thread writer;
+	
+	/* Error which occurred in the writer thread, if any. */
+	private volatile IOException writeError;
+	
+	/* Channel of the spatial frames file, open after the first frame. Only 
+	 * used by the writer thread. */
+	private FileChannel channel;
+	
+	/**
+	 * Complete spatial frame, waiting to be written by the writer thread.
+	 */
+	private static class Frame {
+		
+		/* Iteration. */
+		private int iter;
+		
+		/* Band captured by each worker. */
+		private FrameChunk[] bands;
+		
+		/* Compressed band captured by each worker. */
+		private byte[][] data;
+		
+		/**
+		 * Create a new frame.
+		 * 
+		 * @param iter Iteration.
+		 * @param bands Band captured by each worker.
+		 * @param data Compressed band captured by each worker.
+		 */
+		Frame(int iter, FrameChunk[] bands, byte[][] data) {
+			this.iter = iter;
+			this.bands = bands;
+			this.data = data;
+		}
+	}
+	
+	/**
+	 * Create a new spatial frame writer.
+	 * 
+	 * @param filename Spatial frames file.
+	 * @param interval Interval, in iterations, between frames.
+	 * @param scale Number of cells in each side of a raster pixel.
+	 * @param gridX Horizontal grid size.
+	 * @param gridY Vertical grid size.
+	 * @param numWorkers Number of workers.
+	 */
+	public FrameWriter(String filename, int interval, int scale, int gridX, 
+			int gridY, int numWorkers) {
+		
+		this.filename = filename;
+		this.interval = interval;
+		this.scale = scale;
+		this.gridX = gridX;
+		this.gridY = gridY;
+		this.numWorkers = numWorkers;
+		this.bands = new FrameChunk[numWorkers];
+		this.data = new byte[numWorkers][];
+		this.captured = new AtomicInteger(0);
+		this.queue = new ArrayBlockingQueue<Frame>(1);
+	}
+	
+	/**
+	 * Is a frame due at the end of the given iteration?
+	 * 
+	 * @param iter Iteration.
+	 * @return True if a frame is due, false otherwise.
+	 */
+	public boolean isDue(int iter) {
+		return iter % this.interval == 0;
+	}
+	
+	/**
+	 * Capture the band of the current frame assigned to a worker, and hand
+	 * the frame over to be written in the background if this is the last 
+	 * worker to do so. Must be invoked by all workers after all of them 
+	 * performed agent actions in the current iteration, and before any of 
+	 * them starts the next one. The last worker waits if the writer is still
+	 * busy with the previous frame.
+	 * 
+	 * @param wId Worker ID.
+	 * @param iter Current iteration.
+	 * @param engine Simulation engine of the worker.
+	 * @throws IOException If an error occurred while writing a previous 
+	 * frame.
+	 * @throws InterruptedException If the worker is interrupted while 
+	 * waiting for the writer.
+	 */
+	public void capture(int wId, int iter, ISimEngine engine) 
+			throws IOException, InterruptedException {
+		
+		if (this.writeError != null) throw this.writeError;
+		
+		int height = SpatialFrames.rasterSize(this.gridY, this.scale);
+		int firstRow = Checkpoint.chunkStart(height, this.numWorkers, wId);
+		FrameChunk band = new FrameChunk(iter, this.gridX, this.gridY, 
+				this.scale, firstRow, 
+				Checkpoint.chunkStart(height, this.numWorkers, wId + 1) 
+					- firstRow);
+		
+		engine.saveFrame(band);
+		this.data[wId] = band.encode();
+		this.bands[wId] = band;
+		
+		/* Last worker to capture its band completes the frame. Other workers 
+		 * can't capture bands of the next frame before it is done, since they
+		 * must first synchronize with it. */
+		if (this.captured.incrementAndGet() == this.numWorkers) {
+			
+			Frame frame = new Frame(iter, this.bands.clone(), this.data.clone());
+			for (int w = 0; w < this.numWorkers; w++) {
+				this.bands[w] = null;
+				this.data[w] = null;
+			}
+			this.captured.set(0);
+			
+			synchronized (this) {
+				if (this.writer == null) this.startWriter();
+			}
+			this.queue.put(frame);
+		}
+	}
+	
+	/**
+	 * Wait for the writer thread to write all captured frames, and close 
+	 * the spatial frames file, if open.
+	 * 
+	 * @throws IOException If an error occurred while writing a frame.
+	 * @throws InterruptedException If interrupted while waiting for the 
+	 * writer.
+	 */
+	public synchronized void finish() throws IOException, InterruptedException {
+		
+		if (this.writer != null) {
+			try {
+				this.queue.put(END);
+				this.writer.join();
+			} finally {
+				this.writer = null;
+				this.queue.clear();
+			}
+		}
+		
+		if (this.writeError != null) throw this.writeError;
+	}
+	
+	/**
+	 * Discard any band being captured and frames waiting to be written. The
+	 * next simulation overwrites the spatial frames file. Invoked when the 
+	 * model is reset. A frame already being written is finished.
+	 */
+	public synchronized void reset() {
+		
+		this.captured.set(0);
+		for (int w = 0; w < this.numWorkers; w++) {
+			this.bands[w] = null;
+			this.data[w] = null;
+		}
+		this.queue.clear();
+		try {
+			this.finish();
+		} catch (IOException ioe) {
+			/* The file is overwritten anyway. */
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+		this.writeError = null;
+	}
+	
+	/**
+	 * Start the writer thread.
+	 */
+	private void startWriter() {
+		
+		this.writer = new Thread(new Runnable() {
+			
+			@Override
+			public void run() {
+				
+				try {
+					
+					Frame frame;
+					while ((frame = queue.take()) != END) {
+						
+						/* Keep consuming frames after errors, so that the 
+						 * simulation is not blocked. */
+						if (writeError != null) continue;
+						
+						try {
+							write(frame);
+						} catch (IOException ioe) {
+							writeError = ioe;
+						}
+					}
+					
+				} catch (InterruptedException ie) {
+					/* Writer was asked to stop. */
+					
+				} finally {
+					
+					/* Close the spatial frames file. */
+					if (channel != null) {
+						try {
+							channel.close();
+						} catch (IOException ioe) {
+							if (writeError == null) writeError = ioe;
+						}
+						channel = null;
+					}
+				}
+			}
+		}, "FrameWriter");
+		
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+	
+	/**
+	 * Append a frame to the spatial frames file, creating it if necessary.
+	 * 
+	 * @param f Frame to write.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private void write(Frame f) throws IOException {
+		
+		/* Create file and write header with the first frame. */
+		if (this.channel == null) {
+			this.channel = FileChannel.open(Paths.get(this.filename), 
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			ByteBuffer header = this.allocate(SpatialFrames.HEADER_SIZE);
+			header.putInt(SpatialFrames.MAGIC).putInt(SpatialFrames.VERSION)
+				.putInt(this.gridX).putInt(this.gridY).putInt(this.scale)
+				.putInt(SpatialFrames.rasterSize(this.gridX, this.scale))
+				.putInt(SpatialFrames.rasterSize(this.gridY, this.scale));
+			this.writeFully(header);
+		}
+		
+		int size = 2 * Integer.BYTES;
+		for (int w = 0; w < this.numWorkers; w++) {
+			size += 3 * Integer.BYTES + f.data[w].length;
+		}
+		
+		ByteBuffer frame = this.allocate(size);
+		frame.putInt(f.iter).putInt(this.numWorkers);
+		for (int w = 0; w < this.numWorkers; w++) {
+			frame.putInt(f.bands[w].getFirstRow())
+				.putInt(f.bands[w].getNumRows())
+				.putInt(f.data[w].length)
+				.put(f.data[w]);
+		}
+		this.writeFully(frame);
+	}
+	
+	/**
+	 * Allocate a buffer with the byte order of spatial frames files.
+	 * 
+	 * @param size Buffer size.
+	 * @return A new buffer.
+	 */
+	private ByteBuffer allocate(int size) {
+		return ByteBuffer.allocate(size).order(SpatialFrames.ORDER);
+	}
+	
+	/**
+	 * Append the whole contents of a buffer to the spatial frames file. Any 
+	 * bytes not explicitly put in the buffer are written as zeros.
+	 * 
+	 * @param buffer Buffer to write.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		
+		buffer.clear();
+		while (buffer.hasRemaining()) {
+			this.channel.write(buffer);
+		}
+	}
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+/**
+ * A hashed timer wheel which keeps track of grass regrowth events for the 
+ * cells initialized by a simulation worker. Instead of decrementing the grass
+ * counter of every cell in each iteration, the iteration in which eaten grass
+ * becomes alive again is scheduled in the wheel. Grass statistics are 
+ * maintained incrementally, so their cost scales with the number of eat events
+ * and not with the grid size.
+ * 
+ * Each simulation worker keeps its own timer wheel, so no synchronization is
+ * performed. Statistics produced by a single timer wheel are partial, and
+ * are only meaningful when added to the statistics of the remaining timer 
+ * wheels.
+ * 
+ * @author Nuno Fachada
+ */
+public class GrassTimerWheel {
+	
+	/* Grass restart simulation parameter, which is also the wheel size. */
+	private int grassRestart;
+	
+	/* Number of regrowth events scheduled for each wheel slot. */
+	private int[] wheel;
+	
+	/* Number of cells registered with this wheel. */
+	private int numCells;
+	
+	/* Number of scheduled regrowth events, i.e. of cells with dead grass. */
+	private int pending;
+	
+	/* Total grass countdown. */
+	private long countdown;
+	
+	/* Current iteration. */
+	private int iter;
+	
+	/**
+	 * Create a new grass timer wheel.
+	 * 
+	 * @param grassRestart Grass restart simulation parameter.
+	 */
+	public GrassTimerWheel(int grassRestart) {
+		this.grassRestart = grassRestart;
+		this.wheel = new int[grassRestart];
+		this.reset();
+	}
+	
+	/**
+	 * Register a newly initialized cell with this timer wheel.
+	 * 
+	 * @param grass Initial grass counter of the cell (zero if grass is alive).
+	 */
+	public void addCell(int grass) {
+		
+		this.numCells++;
+		
+		/* If grass is not alive, schedule its regrowth. */
+		if (grass > 0) {
+			this.schedule(grass);
+		}
+	}
+	
+	/**
+	 * Set the current iteration of a timer wheel without registered cells.
+	 * Used when cells are restored from a checkpoint taken at the given 
+	 * iteration.
+	 * 
+	 * @param iter Current iteration.
+	 */
+	public void setIteration(int iter) {
+		this.iter = iter;
+	}
+	
+	/**
+	 * Advance the timer wheel to the given iteration. This corresponds to the
+	 * grass growth step of the simulation, and must be invoked once per 
+	 * iteration.
+	 * 
+	 * @param iter Iteration to advance to.
+	 */
+	public void advance(int iter) {
+		
+		this.iter = iter;
+		
+		/* The counter of each cell with dead grass is decremented by one... */
+		this.countdown -= this.pending;
+		
+		/* ...and grass whose counter reached zero is alive again. */
+		int slot = iter % this.grassRestart;
+		this.pending -= this.wheel[slot];
+		this.wheel[slot] = 0;
+	}
+	
+	/**
+	 * Notify the timer wheel that grass was eaten in the current iteration.
+	 */
+	public void grassEaten() {
+		this.schedule(this.grassRestart);
+	}
+	
+	/**
+	 * Add the grass statistics kept by this timer wheel to the given 
+	 * statistics object.
+	 * 
+	 * @param stats Statistics object to be populated.
+	 */
+	public void getStats(IterationStats stats) {
+		stats.updateGrassAlive(this.numCells - this.pending);
+		stats.updateGrassCountdown(this.countdown);
+	}
+	
+	/**
+	 * Reset the timer wheel, unregistering all cells.
+	 */
+	public void reset() {
+		for (int i = 0; i < this.wheel.length; i++) {
+			this.wheel[i] = 0;
+		}
+		this.numCells = 0;
+		this.pending = 0;
+		this.countdown = 0;
+		this.iter = 0;
+	}
+	
+	/**
+	 * Schedule the regrowth of grass in a cell.
+	 * 
+	 * @param grass Number of iterations, from the current one, after which 
+	 * grass will be alive again.
+	 */
+	private void schedule(int grass) {
+		this.wheel[(this.iter + grass) % this.grassRestart]++;
+		this.pending++;
+		this.countdown += grass;
+	}
+
+}
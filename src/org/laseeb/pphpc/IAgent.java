@@ -26,7 +26,7 @@
 
 package org.laseeb.pphpc;
 
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Interface for PPHPC agent implementations.
@@ -70,7 +70,7 @@ public interface IAgent extends Cloneable, Comparable<IAgent> {
 	 * @param cell Cell where agent is currently in.
 	 * @param rng A random number generator for the agent to use.
 	 */
-	public void act(ICell cell, Random rng);
+	public void act(ICell cell, RandomGenerator rng);
 
 	/**
 	 * Returns the agent-specific reproduction threshold.
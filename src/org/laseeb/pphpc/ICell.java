@@ -27,7 +27,7 @@
 package org.laseeb.pphpc;
 
 import java.util.List;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * A PPHPC model cell, part of a larger simulation grid.
@@ -53,6 +53,14 @@ public interface ICell {
 	 */
 	public void regenerateGrass();
 
+	/**
+	 * Return the grass counter, i.e. the number of iterations until grass is
+	 * alive again.
+	 * 
+	 * @return The grass counter, zero if grass is alive.
+	 */
+	public int getGrass();
+
 	/**
 	 * Return the grass restart simulation parameter.
 	 * 
@@ -97,6 +105,21 @@ public interface ICell {
 	 */
 	public void getStats(IterationStats stats);
 
+	/**
+	 * Get grass statistics for this cell. Cells which hold no agents only 
+	 * need to have their grass statistics gathered.
+	 * 
+	 * @param stats Statistics object to be populated.
+	 */
+	public void getGrassStats(IterationStats stats);
+	
+	/**
+	 * Does this cell currently hold any agents (alive or not)?
+	 * 
+	 * @return True if this cell holds agents, false otherwise.
+	 */
+	public boolean hasAgents();
+
 	/**
 	 * Perform actions for the agents in this cell.
 	 * 
@@ -104,7 +127,7 @@ public interface ICell {
 	 * stochastically.
 	 * @param shuffle If true, agents in this cell will be shuffled before they act.
 	 */
-	public void agentActions(Random rng, boolean shuffle);
+	public void agentActions(RandomGenerator rng, boolean shuffle);
 
 	/**
 	 * Set the neighborhood for this cell.
@@ -119,7 +142,7 @@ public interface ICell {
 	 * 
 	 * @param rng A random number generator so that the agents move randomly.
 	 */
-	public void agentsMove(Random rng);
+	public void agentsMove(RandomGenerator rng);
 
 
 }
\ No newline at end of file
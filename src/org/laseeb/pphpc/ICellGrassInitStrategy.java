@@ -26,7 +26,7 @@
 
 package org.laseeb.pphpc;
 
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Grass initialization strategy.
@@ -43,6 +43,6 @@ public interface ICellGrassInitStrategy {
 	 * initialization strategies.
 	 * @return The initial grass state.
 	 */
-	public int getInitGrass(int grassRestart, Random rng);
+	public int getInitGrass(int grassRestart, RandomGenerator rng);
 
 }
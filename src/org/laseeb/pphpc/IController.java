@@ -42,6 +42,8 @@ public interface IController {
 	 * @param afterInitAgentsSync Synchronizes after initializing agents.
 	 * @param afterFirstStatsSync Synchronizes after getting first stats.
 	 * @param afterHalfIterSync Synchronizes after half iteration.
+	 * @param beforeCheckpointSync Synchronizes before a checkpoint is 
+	 * captured.
 	 * @param afterEndIterSync Synchronizes after an iteration is finished.
 	 * @param afterEndSimSync Synchronizes after the simulation finishes.
 	 */
@@ -49,7 +51,8 @@ public interface IController {
 			ISyncPoint afterInitCellsSync,
 			ISyncPoint afterSetCellNeighsSync, ISyncPoint afterInitAgentsSync,
 			ISyncPoint afterFirstStatsSync, ISyncPoint afterHalfIterSync,
-			ISyncPoint afterEndIterSync, ISyncPoint afterEndSimSync);
+			ISyncPoint beforeCheckpointSync, ISyncPoint afterEndIterSync, 
+			ISyncPoint afterEndSimSync);
 
 	/**
 	 * Registers a control event observer.
@@ -101,6 +104,15 @@ public interface IController {
 	 */
 	public void workerNotifyHalfIteration() throws InterruptedWorkException;
 
+	/**
+	 * Used by workers to synchronize before capturing a checkpoint. 
+	 * Checkpoints are captured after agent actions and before the 
+	 * iteration is finished.
+	 * 
+	 * @throws InterruptedWorkException If work is interrupted.
+	 */
+	public void workerNotifyBeforeCheckpoint() throws InterruptedWorkException;
+
 	/**
 	 * Used by workers to synchronize after an iteration is finished.
 	 * 
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+/**
+ * Kernels which operate on ranges of the primitive arrays kept by a 
+ * {@link CsrGrid}. Ranges are given by a start position (inclusive) and an 
+ * end position (exclusive).
+ * 
+ * @author Nuno Fachada
+ */
+public interface ICsrKernels {
+	
+	/**
+	 * Decrement the grass counters which are above zero.
+	 * 
+	 * @param grass Grass counters.
+	 * @param from Start position.
+	 * @param to End position.
+	 */
+	public void regenerateGrass(int[] grass, int from, int to);
+	
+	/**
+	 * Decrement the energy of agents which are alive.
+	 * 
+	 * @param energy Agent energy.
+	 * @param from Start position.
+	 * @param to End position.
+	 */
+	public void decEnergy(int[] energy, int from, int to);
+	
+	/**
+	 * Count the number of zeros in the given range, e.g. the number of cells
+	 * with grass alive.
+	 * 
+	 * @param values Values to check.
+	 * @param from Start position.
+	 * @param to End position.
+	 * @return Number of zeros in the given range.
+	 */
+	public int countZeros(int[] values, int from, int to);
+	
+	/**
+	 * Sum the values in the given range, e.g. the grass countdown.
+	 * 
+	 * @param values Values to sum.
+	 * @param from Start position.
+	 * @param to End position.
+	 * @return Sum of the values in the given range.
+	 */
+	public long sum(int[] values, int from, int to);
+	
+	/**
+	 * Return a short description of this kernel set.
+	 * 
+	 * @return A short description of this kernel set.
+	 */
+	public String getDescription();
+
+}
@@ -26,6 +26,8 @@
 
 package org.laseeb.pphpc;
 
+import java.io.IOException;
+
 /**
  * Interface for classes which provide management of global simulation statistics.
  * 
@@ -53,12 +55,43 @@ public interface IGlobalStats {
 	/**
 	 * Update global statistics for a specified iteration. The given 
 	 * iteration statistics are added to the global statistics for the 
-	 * specified iteration.
+	 * specified iteration. Each worker updates the statistics once per
+	 * iteration.
 	 * 
+	 * @param wId ID of the worker which produced the statistics.
 	 * @param iter Iteration.
 	 * @param stats Statistics to add.
 	 */
-	public void updateStats(int iter, IterationStats stats);
+	public void updateStats(int wId, int iter, IterationStats stats);
+	
+	/**
+	 * Notify the global statistics that all workers updated the statistics 
+	 * for the specified iteration. Invoked once per iteration, before any
+	 * worker updates the statistics for the next iteration.
+	 * 
+	 * @param iter Iteration.
+	 */
+	public void commitStats(int iter);
+	
+	/**
+	 * Set the complete global statistics for a specified iteration, 
+	 * replacing any statistics updated by workers. Used when restoring a 
+	 * simulation from a checkpoint, before workers are started.
+	 * 
+	 * @param iter Iteration.
+	 * @param stats Global statistics for the specified iteration.
+	 */
+	public void restoreStats(int iter, IterationStats stats);
+
+	/**
+	 * Export statistics to a file, with one line of tab-separated values per
+	 * iteration (see {@link IterationStats#toTsv(int)}).
+	 * 
+	 * @param filename Statistics filename.
+	 * @param numCells Number of cells in the simulation.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public void export(String filename, int numCells) throws IOException;
 
 	/**
 	 * Reset statistics (see all statistics in all iteration to zero).
@@ -26,7 +26,7 @@
 
 package org.laseeb.pphpc;
 
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Interface which defines methods for model manipulation.
@@ -41,7 +41,8 @@ public interface IModelManipulator {
 	public void reset();
 	
 	/**
-	 * Increment iteration.
+	 * Increment iteration. Must be invoked after all workers updated the 
+	 * statistics for the current iteration.
 	 */
 	public void incrementIteration();
 	
@@ -73,7 +74,9 @@ public interface IModelManipulator {
 	public void export(String filename);
 
 	/**
-	 * Get a model cell from the specified space-independent index.
+	 * Get a model cell from the specified space-independent index. Cells are
+	 * not available if the model keeps agents in a compressed sparse row 
+	 * layout.
 	 * 
 	 * @param idx Space-independent index from where to fetch the cell.
 	 * @return A model cell from the specified space-independent index.
@@ -83,7 +86,7 @@ public interface IModelManipulator {
 	/**
 	 * Set the neighbors of the model cell located at the specified space-independent 
 	 * index. This method can only be called once after all cells have been initialized
-	 * with {@link #initCellAt(int, Random)}.
+	 * with {@link #initCellAt(int, RandomGenerator)}.
 	 * 
 	 * @param idx Space-independent index of the cell in which the neighbors will be set.
 	 */
@@ -95,17 +98,37 @@ public interface IModelManipulator {
 	 * @param idx Space-independent index where to place the cell.
 	 * @param rng Random number generator with which to initialize the cell.
 	 */
-	public void initCellAt(int idx, Random rng);
+	public void initCellAt(int idx, RandomGenerator rng);
+
+	/**
+	 * Initialize a model cell at the specified space-independent index with
+	 * a given grass counter, restored from a checkpoint.
+	 * 
+	 * @param idx Space-independent index where to place the cell.
+	 * @param grass Grass counter, i.e. the number of iterations until grass 
+	 * is alive (zero if grass is alive).
+	 */
+	public void restoreCellAt(int idx, int grass);
+
+	/**
+	 * Create the simulation engine for a simulation worker.
+	 * 
+	 * @param cellsWorkProvider Cells work provider of the simulation worker.
+	 * @param cellsWork Cells work of the simulation worker.
+	 * @return A new simulation engine.
+	 */
+	public ISimEngine createSimEngine(IWorkProvider cellsWorkProvider, IWork cellsWork);
 
 	/**
 	 * Update global statistics for a specified iteration. The given 
 	 * iteration statistics are added to the global statistics for the 
 	 * specified iteration.
 	 * 
+	 * @param wId ID of the worker which produced the statistics.
 	 * @param iter Iteration.
 	 * @param iterStats Statistics to add.
 	 */
-	public void updateStats(int iter, IterationStats iterStats);
+	public void updateStats(int wId, int iter, IterationStats iterStats);
 	
 	/**
 	 * Return the simulation space.
@@ -26,7 +26,7 @@
 
 package org.laseeb.pphpc;
 
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Interface which defines methods for model querying.
@@ -92,14 +92,16 @@ public interface IModelQuerier extends IModelEventObservable {
 
 	/**
 	 * Create a random number generator. The type of RNG and the base seed are specified 
-	 * at model instantiation time.
+	 * at model instantiation time. The generator of each worker only depends on the seed
+	 * and on the worker ID, so each worker should only call this method once per 
+	 * simulation.
 	 * 
 	 * @param wId Worker ID, required so that each thread gets an independent random number 
 	 * generator (not really independent, but good enough for the purpose).
 	 * @return A new random number generator.
 	 * @throws Exception If for some reason, with wasn't possible to create the RNG.
 	 */
-	public Random createRNG(int wId) throws Exception;
+	public RandomGenerator createRNG(int wId) throws Exception;
 
 	/**
 	 * Shuffle agents before they act?
@@ -108,6 +110,62 @@ public interface IModelQuerier extends IModelEventObservable {
 	 * false otherwise.
 	 */
 	public boolean isShuffle();
+	
+	/**
+	 * Is grass regrowth event-driven?
+	 * 
+	 * @return Returns true if grass regrowth is scheduled in timer wheels 
+	 * when grass is eaten, false if grass counters are decremented in every
+	 * iteration.
+	 */
+	public boolean isEventGrass();
+	
+	/**
+	 * Get the checkpoint from which the simulation is restored when started.
+	 * 
+	 * @return The checkpoint from which the simulation is restored, or null
+	 * if the simulation starts from the beginning.
+	 */
+	public Checkpoint getResumeCheckpoint();
+	
+	/**
+	 * Get the object which saves checkpoints of this model.
+	 * 
+	 * @return The object which saves checkpoints of this model, or null if 
+	 * checkpoints are not saved.
+	 */
+	public Checkpointer getCheckpointer();
+	
+	/**
+	 * Get the object which saves spatial frames of this model.
+	 * 
+	 * @return The object which saves spatial frames of this model, or null 
+	 * if spatial frames are not saved.
+	 */
+	public FrameWriter getFrameWriter();
+	
+	/**
+	 * Get the time spent by workers in each phase.
+	 * 
+	 * @return The time spent by workers in each phase, or null if workers 
+	 * are not timed.
+	 */
+	public PhaseTimings getPhaseTimings();
+	
+	/**
+	 * Get the arrival skew of workers at synchronization points.
+	 * 
+	 * @return The arrival skew of workers at synchronization points, or null
+	 * if arrival skew is not recorded.
+	 */
+	public BarrierSkews getBarrierSkews();
+	
+	/**
+	 * Are JDK Flight Recorder events emitted?
+	 * 
+	 * @return True if JDK Flight Recorder events are emitted, false otherwise.
+	 */
+	public boolean isJfrEvents();
 
 	
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Simulation engines perform the simulation steps on the cells given to a 
+ * simulation worker by its cell work provider. Each simulation worker owns an
+ * engine, created by the model with 
+ * {@link IModelManipulator#createSimEngine(IWorkProvider, IWork)}. Engines
+ * differ in how cells and agents are represented in memory.
+ * 
+ * Each method consumes all the tokens available to the worker from the cell
+ * work provider, and resets the cell work afterwards.
+ * 
+ * @author Nuno Fachada
+ */
+public interface ISimEngine {
+	
+	/**
+	 * Initialize the cells given to the simulation worker.
+	 * 
+	 * @param rng Random number generator with which to initialize the cells.
+	 */
+	public void initCells(RandomGenerator rng);
+	
+	/**
+	 * Initialize the cells given to the simulation worker with the grass 
+	 * state kept in a checkpoint. Used instead of {@link #initCells(RandomGenerator)}
+	 * when the simulation is restored from a checkpoint.
+	 * 
+	 * @param checkpoint Checkpoint from which to restore the simulation.
+	 */
+	public void restoreCells(Checkpoint checkpoint);
+	
+	/**
+	 * Set the neighbors of the cells given to the simulation worker.
+	 */
+	public void setCellNeighbors();
+	
+	/**
+	 * Put an initial agent in the cell located at the specified 
+	 * space-independent index, which does not have to be given to the 
+	 * simulation worker.
+	 * 
+	 * @param idx Space-independent index of cell where to put the agent.
+	 * @param agent Agent to put in cell.
+	 */
+	public void putInitAgent(int idx, IAgent agent);
+	
+	/**
+	 * Put an agent restored from a checkpoint in the cell located at the 
+	 * specified space-independent index, which does not have to be given to 
+	 * the simulation worker. Agents are kept in the order in which they are 
+	 * put in each cell, and each cell must be restored by a single worker.
+	 * 
+	 * @param idx Space-independent index of cell where to put the agent.
+	 * @param agent Agent to put in cell.
+	 */
+	public void restoreAgent(int idx, IAgent agent);
+	
+	/**
+	 * Get the initial statistics of the cells given to the simulation 
+	 * worker.
+	 * 
+	 * @param stats Statistics object to update.
+	 */
+	public void getFirstStats(IterationStats stats);
+	
+	/**
+	 * Perform the first half of a simulation iteration, i.e. agent movement 
+	 * and grass growth. The end of each step is marked with the given timer
+	 * ({@link TimedPhase#MOVE_AGENTS} and {@link TimedPhase#GROW_GRASS}), 
+	 * or the end of both with {@link TimedPhase#MOVE_GROW_GRASS} if they are
+	 * performed in the same pass over the cells.
+	 * 
+	 * @param iter Current iteration.
+	 * @param rng Random number generator used for agent movement.
+	 * @param timer Timer of the simulation worker.
+	 */
+	public void moveAgentsGrowGrass(int iter, RandomGenerator rng, 
+			IWorkerTimer timer);
+	
+	/**
+	 * Perform the second half of a simulation iteration, i.e. agent actions
+	 * and statistics gathering.
+	 * 
+	 * @param iter Current iteration.
+	 * @param rng Random number generator used for agent actions.
+	 * @param stats Statistics object to update.
+	 */
+	public void agentActionsGetStats(int iter, RandomGenerator rng, IterationStats stats);
+	
+	/**
+	 * Save the state of a range of cells, which do not have to be given to 
+	 * the simulation worker, at the end of the iteration of the given 
+	 * checkpoint chunk. Can only be invoked after all workers performed agent
+	 * actions in that iteration, and before any worker starts the next one.
+	 * 
+	 * @param chunk Checkpoint chunk which specifies the range of cells and 
+	 * where to save their state.
+	 */
+	public void saveCells(CheckpointChunk chunk);
+	
+	/**
+	 * Add the state of a band of cells, which do not have to be given to the
+	 * simulation worker, to a spatial frame at the end of the current 
+	 * iteration. Can only be invoked after all workers performed agent 
+	 * actions in the current iteration, and before any worker starts the 
+	 * next one.
+	 * 
+	 * @param chunk Frame chunk which specifies the band of cells and where to 
+	 * add their state.
+	 */
+	public void saveFrame(FrameChunk chunk);
+	
+	/**
+	 * Get the number of cells processed by the engine so far, in all 
+	 * methods, whether the cells were given by the cell work provider or
+	 * visited for other reasons (e.g. because they hold agents). Advancing 
+	 * event-driven grass regrowth does not process cells.
+	 * 
+	 * @return Number of cells processed so far.
+	 */
+	public int getCellsProcessed();
+
+}
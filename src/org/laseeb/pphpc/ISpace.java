@@ -41,6 +41,25 @@ public interface ISpace {
 	 */
 	public void setNeighbors(ICell[] cells, int idx);
 	
+	/**
+	 * Get the space-independent indexes of the neighbors of the cell located
+	 * at the specified space-independent index. Neighbors are given in the 
+	 * same order used by {@link #setNeighbors(ICell[], int)}.
+	 * 
+	 * @param idx Space-independent index of cell to get the neighbors of.
+	 * @param neighbors Array where to place the neighbor indexes, with a 
+	 * length of at least {@link #getNeighborhoodSize()}.
+	 */
+	public void getNeighbors(int idx, int[] neighbors);
+	
+	/**
+	 * Return the number of cells in a neighborhood, including the cell at the
+	 * center of the neighborhood.
+	 * 
+	 * @return The number of cells in a neighborhood.
+	 */
+	public int getNeighborhoodSize();
+	
 	/**
 	 * Return the number of dimensions of this space.
 	 * 
@@ -57,4 +57,19 @@ public interface ISyncPoint extends IControlEventObservable {
 	 */
 	public void reset();
 	
+	/**
+	 * Record the arrival skew of workers at this synchronization point. Only
+	 * synchronization points which block workers record skew.
+	 * 
+	 * @param skews Where to record arrival skew.
+	 */
+	public void recordSkew(BarrierSkews skews);
+	
+	/**
+	 * Emit a JDK Flight Recorder {@link SyncWaitEvent} each time a worker 
+	 * waits at this synchronization point. Only synchronization points which
+	 * block workers emit events.
+	 */
+	public void emitJfrEvents();
+	
 }
@@ -77,6 +77,16 @@ public interface IWorkFactory {
 	 */
 	public IGlobalStats createGlobalStats(int iters);
 	
+	/**
+	 * Must cells be processed in the exact order given by the cell work 
+	 * provider? If not, simulation workers may process agent movement only 
+	 * for the cells which currently hold agents.
+	 * 
+	 * @return True if cells must be processed in the order given by the cell
+	 * work provider, false otherwise.
+	 */
+	public boolean requiresOrderedCellWork();
+	
 	/**
 	 * Return number of workers for which this work factory will create work-related
 	 * objects.
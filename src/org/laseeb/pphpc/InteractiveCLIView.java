@@ -202,6 +202,12 @@ public class InteractiveCLIView extends AbstractModelEventObserver implements IV
 		
 		this.totalTime += System.currentTimeMillis() - this.lastStart;
 		System.out.println("\nTotal simulation time: " + (this.totalTime / 1000.0f) + " s");
+		if (this.model.getPhaseTimings() != null) {
+			System.out.print(this.model.getPhaseTimings().report());
+		}
+		if (this.model.getBarrierSkews() != null) {
+			System.out.print(this.model.getBarrierSkews().report());
+		}
 		if (!this.userStopRequest)
 			System.out.print(commandQuery);
 		
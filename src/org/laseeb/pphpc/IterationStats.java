@@ -110,6 +110,15 @@ public class IterationStats {
 		this.sheepCount++;
 	}
 
+	/**
+	 * Update number of sheep.
+	 * 
+	 * @param sheepCount Partial number of sheep.
+	 */
+	public void updateSheepCount(int sheepCount) {
+		this.sheepCount += sheepCount;
+	}
+
 	/**
 	 * Get number of wolves.
 	 * 
@@ -126,6 +135,15 @@ public class IterationStats {
 		this.wolvesCount++;
 	}
 
+	/**
+	 * Update number of wolves.
+	 * 
+	 * @param wolvesCount Partial number of wolves.
+	 */
+	public void updateWolvesCount(int wolvesCount) {
+		this.wolvesCount += wolvesCount;
+	}
+
 	/**
 	 * Get quantity of grass.
 	 * 
@@ -142,6 +160,15 @@ public class IterationStats {
 		this.grassAlive++;
 	}
 	
+	/**
+	 * Update quantity of alive grass.
+	 * 
+	 * @param grassAlive Partial quantity of alive grass.
+	 */
+	public void updateGrassAlive(int grassAlive) {
+		this.grassAlive += grassAlive;
+	}
+	
 	/**
 	 * Get total sheep energy.
 	 * 
@@ -156,7 +183,7 @@ public class IterationStats {
 	 * 
 	 * @param energy Partial sheep energy.
 	 */
-	public void updateSheepEnergy(int energy) {
+	public void updateSheepEnergy(long energy) {
 		this.sheepEnergy += energy;
 	}
 
@@ -174,7 +201,7 @@ public class IterationStats {
 	 * 
 	 * @param energy Partial wolves energy.
 	 */
-	public void updateWolvesEnergy(int energy) {
+	public void updateWolvesEnergy(long energy) {
 		this.wolvesEnergy += energy;
 	}
 
@@ -192,8 +219,57 @@ public class IterationStats {
 	 * 
 	 * @param countdown Partial grass countdown.
 	 */
-	public void updateGrassCountdown(int countdown) {
+	public void updateGrassCountdown(long countdown) {
 		this.grassCountdown += countdown;
 	}
 
+	/**
+	 * Get a specific statistic.
+	 * 
+	 * @param st Type of statistic.
+	 * @return The requested statistic.
+	 */
+	public Number getStat(StatType st) {
+		
+		switch (st) {
+			case SHEEP_COUNT:
+				return this.sheepCount;
+			case WOLVES_COUNT:
+				return this.wolvesCount;
+			case GRASS_ALIVE:
+				return this.grassAlive;
+			case SHEEP_ENERGY:
+				return this.sheepEnergy;
+			case WOLVES_ENERGY:
+				return this.wolvesEnergy;
+			case GRASS_COUNTDOWN:
+				return this.grassCountdown;
+		}
+		return 0;
+	}
+	
+	/**
+	 * Return these statistics as a line of tab-separated values, in the 
+	 * format used for exporting statistics: number of sheep, number of wolves,
+	 * quantity of grass alive, average sheep energy, average wolves energy and
+	 * average grass countdown. The line terminator is not included.
+	 * 
+	 * @param numCells Number of cells in the simulation.
+	 * @return These statistics as a line of tab-separated values.
+	 */
+	public String toTsv(int numCells) {
+		
+		float avgSheepEnergy = this.sheepCount > 0 
+				? this.sheepEnergy / (float) this.sheepCount
+				: 0;
+		float avgWolvesEnergy = this.wolvesCount > 0 
+				? this.wolvesEnergy / (float) this.wolvesCount
+				: 0;
+		float avgGrassCountdown = this.grassCountdown / (float) numCells;
+		
+		return this.sheepCount + "\t" + this.wolvesCount + "\t" 
+				+ this.grassAlive + "\t" + avgSheepEnergy + "\t" 
+				+ avgWolvesEnergy + "\t" + avgGrassCountdown;
+	}
+
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+/**
+ * Worker timer which emits a {@link PhaseEvent} for each phase, and passes 
+ * phases on to another timer. Events are only created while the phase event
+ * is enabled in a JDK Flight Recorder recording.
+ * 
+ * @author Nuno Fachada
+ */
+public class JfrWorkerTimer implements IWorkerTimer {
+	
+	/* Timer to which phases are passed on. */
+	private IWorkerTimer timer;
+	
+	/* Worker ID. */
+	private int wId;
+	
+	/* The MVC model. */
+	private IModelQuerier model;
+	
+	/* Simulation engine of the worker, which counts the cells it processes. */
+	private ISimEngine engine;
+	
+	/* Partial statistics of the worker. */
+	private IterationStats stats;
+	
+	/* Event of the current phase, null if not being recorded. */
+	private PhaseEvent event;
+	
+	/* Iteration the worker is performing. */
+	private int iteration;
+	
+	/* Cells processed before the current phase. */
+	private int cells;
+	
+	/**
+	 * Create a new JDK Flight Recorder worker timer.
+	 * 
+	 * @param timer Timer to which phases are passed on.
+	 * @param wId Worker ID.
+	 * @param model The MVC model.
+	 * @param engine Simulation engine of the worker.
+	 * @param stats Partial statistics of the worker.
+	 */
+	public JfrWorkerTimer(IWorkerTimer timer, int wId, IModelQuerier model, 
+			ISimEngine engine, IterationStats stats) {
+		this.timer = timer;
+		this.wId = wId;
+		this.model = model;
+		this.engine = engine;
+		this.stats = stats;
+	}
+
+	/**
+	 * @see IWorkerTimer#start()
+	 */
+	@Override
+	public void start() {
+		this.timer.start();
+		this.iteration = this.model.getCurrentIteration();
+		this.begin();
+	}
+
+	/**
+	 * @see IWorkerTimer#mark(TimedPhase)
+	 */
+	@Override
+	public void mark(TimedPhase phase) {
+		
+		this.timer.mark(phase);
+		
+		PhaseEvent event = this.event;
+		if (event != null) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.worker = this.wId;
+				event.phase = phase.getShortName();
+				event.iteration = this.iteration;
+				event.cells = this.engine.getCellsProcessed() - this.cells;
+				event.agents = this.stats.getSheepCount() 
+						+ this.stats.getWolvesCount();
+				event.commit();
+			}
+		}
+		
+		/* Keep track of iterations. */
+		if (phase == TimedPhase.INIT || phase == TimedPhase.END_ITERATION_WAIT) {
+			this.iteration++;
+		}
+		this.begin();
+	}
+	
+	/**
+	 * Begin the event of the next phase, if phase events are enabled.
+	 */
+	private void begin() {
+		
+		PhaseEvent event = new PhaseEvent();
+		if (event.isEnabled()) {
+			this.cells = this.engine.getCellsProcessed();
+			event.begin();
+			this.event = event;
+		} else {
+			this.event = null;
+		}
+	}
+
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A view which registers a {@link SimulationMXBean} in the platform MBean
+ * server, so that the simulation can be monitored and controlled with JMX 
+ * tools such as JConsole or VisualVM.
+ * 
+ * This view never starts the simulation by itself, so it is passive and can be
+ * used together with any active view, e.g. OneGoCLI.
+ * 
+ * @author Nuno Fachada
+ */
+public class JmxView extends AbstractModelEventObserver implements IView, SimulationMXBean {
+	
+	/* Name under which the MBean is registered. */
+	public static final String OBJECT_NAME = "org.laseeb.pphpc:type=Simulation";
+	
+	/* Sampling period for rates, in milliseconds. */
+	private static final long SAMPLE_PERIOD = 1000;
+
+	/* The model object. */
+	private IModelQuerier model;
+	
+	/* The controller object. */
+	private IController controller;
+	
+	/* Rates measured in the last sampling period. */
+	private volatile double itersPerSec;
+	private volatile double agentUpdatesPerSec;
+	private volatile double allocRate = -1;
+	
+	/* Values at the previous sample. */
+	private long lastSampleTime;
+	private int lastIter;
+	private Map<Long, Long> lastAllocBytes;
+	
+	/**
+	 * Create a JMX view object.
+	 */
+	public JmxView() {}
+
+	/**
+	 * @see IView#init(IModelQuerier, IController, PredPrey)
+	 */
+	@Override
+	public void init(IModelQuerier model, IController controller, PredPrey pp) {
+		
+		this.model = model;
+		this.controller = controller;
+		
+		/* Register the MBean. */
+		MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+		try {
+			mbs.registerMBean(this, new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			throw new IllegalStateException(
+					"Unable to register JMX MBean: " + e.getMessage(), e);
+		}
+		
+		/* Reset rates when a simulation starts. */
+		model.registerObserver(ModelEvent.START, this);
+		
+		/* Periodically sample rates in a background thread. */
+		ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "JmxSampler");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		this.lastSampleTime = System.nanoTime();
+		sampler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				sample();
+			}
+		}, SAMPLE_PERIOD, SAMPLE_PERIOD, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @see IView#getType()
+	 */
+	@Override
+	public ViewType getType() {
+		return ViewType.PASSIVE;
+	}
+	
+	/**
+	 * @see AbstractModelEventObserver#updateOnStart()
+	 */
+	@Override
+	protected synchronized void updateOnStart() {
+		this.lastIter = 0;
+	}
+	
+	/**
+	 * Sample rates since the previous sample.
+	 */
+	private synchronized void sample() {
+		
+		long now = System.nanoTime();
+		double secs = (now - this.lastSampleTime) / 1e9;
+		this.lastSampleTime = now;
+		
+		/* Iteration and agent update rates. The number of agent updates is
+		 * estimated from the population in the latest iteration. */
+		int iter = this.model.getCurrentIteration();
+		int iters = Math.max(0, iter - this.lastIter);
+		this.lastIter = iter;
+		this.itersPerSec = iters / secs;
+		IterationStats stats = this.getLatestStats();
+		long agents = stats != null 
+				? (long) stats.getSheepCount() + stats.getWolvesCount() : 0;
+		this.agentUpdatesPerSec = iters * agents / secs;
+		
+		/* Allocation rate, if supported by the JVM. */
+		ThreadMXBean tmx = ManagementFactory.getThreadMXBean();
+		if (tmx instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean stmx = (com.sun.management.ThreadMXBean) tmx;
+			if (stmx.isThreadAllocatedMemorySupported() 
+					&& stmx.isThreadAllocatedMemoryEnabled()) {
+				
+				/* Add up bytes allocated by each live thread since the 
+				 * previous sample (all of them, for new threads). */
+				long[] ids = stmx.getAllThreadIds();
+				long[] bytes = stmx.getThreadAllocatedBytes(ids);
+				Map<Long, Long> allocBytes = new HashMap<Long, Long>();
+				long delta = 0;
+				for (int i = 0; i < ids.length; i++) {
+					if (bytes[i] < 0) continue;
+					Long last = this.lastAllocBytes != null 
+							? this.lastAllocBytes.get(ids[i]) : null;
+					delta += bytes[i] - (last != null ? last : 0);
+					allocBytes.put(ids[i], bytes[i]);
+				}
+				if (this.lastAllocBytes != null) this.allocRate = delta / secs;
+				this.lastAllocBytes = allocBytes;
+			}
+		}
+	}
+
+	/**
+	 * @see SimulationMXBean#getStatus()
+	 */
+	@Override
+	public String getStatus() {
+		if (this.controller.isPaused()) return "paused";
+		if (this.controller.isRunning()) return "running";
+		return "stopped";
+	}
+
+	/**
+	 * @see SimulationMXBean#getCurrentIteration()
+	 */
+	@Override
+	public int getCurrentIteration() {
+		return this.model.getCurrentIteration();
+	}
+
+	/**
+	 * @see SimulationMXBean#getIterations()
+	 */
+	@Override
+	public int getIterations() {
+		return this.model.getParams().getIters();
+	}
+
+	/**
+	 * @see SimulationMXBean#getNumWorkers()
+	 */
+	@Override
+	public int getNumWorkers() {
+		return this.controller.getNumWorkers();
+	}
+
+	/**
+	 * @see SimulationMXBean#getIterationsPerSecond()
+	 */
+	@Override
+	public double getIterationsPerSecond() {
+		return this.itersPerSec;
+	}
+
+	/**
+	 * @see SimulationMXBean#getAgentUpdatesPerSecond()
+	 */
+	@Override
+	public double getAgentUpdatesPerSecond() {
+		return this.agentUpdatesPerSec;
+	}
+
+	/**
+	 * @see SimulationMXBean#getLatestStats()
+	 */
+	@Override
+	public IterationStats getLatestStats() {
+		
+		/* Statistics may not be available (e.g. no iterations yet, or 
+		 * already discarded in streaming mode). */
+		try {
+			return this.model.getLatestStats();
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @see SimulationMXBean#getPhaseTimes()
+	 */
+	@Override
+	public Map<String, double[]> getPhaseTimes() {
+		
+		Map<String, double[]> times = new LinkedHashMap<String, double[]>();
+		PhaseTimings phaseTimings = this.model.getPhaseTimings();
+		if (phaseTimings == null) return times;
+		
+		for (TimedPhase phase : TimedPhase.values()) {
+			double[] ms = new double[phaseTimings.getNumWorkers()];
+			for (int i = 0; i < ms.length; i++) {
+				ms[i] = phaseTimings.getNanos(i, phase) / 1e6;
+			}
+			times.put(phase.getShortName(), ms);
+		}
+		return times;
+	}
+
+	/**
+	 * @see SimulationMXBean#getHeapUsed()
+	 */
+	@Override
+	public long getHeapUsed() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * @see SimulationMXBean#getAllocationRate()
+	 */
+	@Override
+	public double getAllocationRate() {
+		return this.allocRate;
+	}
+
+	/**
+	 * @see SimulationMXBean#pauseContinue()
+	 */
+	@Override
+	public void pauseContinue() {
+		try {
+			this.controller.pauseContinue();
+		} catch (IllegalSimStateException e) {
+			throw new IllegalStateException(e.getMessage());
+		}
+	}
+
+	/**
+	 * @see SimulationMXBean#stop()
+	 */
+	@Override
+	public void stop() {
+		try {
+			this.controller.stop();
+		} catch (IllegalSimStateException e) {
+			throw new IllegalStateException(e.getMessage());
+		}
+	}
+
+	/**
+	 * @see SimulationMXBean#export(String)
+	 */
+	@Override
+	public void export(String filename) {
+		this.controller.export(filename);
+	}
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative long values with logarithmic buckets, in the
+ * style of HDR histograms: each power of two is split in 
+ * {@link #SUB_BUCKETS} linear sub-buckets, so that values are recorded with
+ * a relative error below 1 / {@link #SUB_BUCKETS} using a fixed, small amount
+ * of memory. Values are recorded lock-free and can be recorded concurrently 
+ * by several threads.
+ * 
+ * @author Nuno Fachada
+ */
+public class LogHistogram {
+	
+	/** Number of linear sub-buckets in each power of two. */
+	public static final int SUB_BUCKETS = 8;
+	
+	/* Number of bits required to index sub-buckets. */
+	private static final int SUB_BITS = 
+			Integer.numberOfTrailingZeros(SUB_BUCKETS);
+	
+	/* Number of buckets required for all non-negative long values. */
+	private static final int NUM_BUCKETS = bucket(Long.MAX_VALUE) + 1;
+	
+	/* Count of values in each bucket. */
+	private AtomicLongArray counts;
+	
+	/* Sum of all values. */
+	private AtomicLong sum;
+	
+	/* Largest value. */
+	private AtomicLong max;
+	
+	/**
+	 * Create a new empty histogram.
+	 */
+	public LogHistogram() {
+		this.counts = new AtomicLongArray(NUM_BUCKETS);
+		this.sum = new AtomicLong();
+		this.max = new AtomicLong();
+	}
+	
+	/**
+	 * Record a value. Negative values are recorded as zero.
+	 * 
+	 * @param value Value to record.
+	 */
+	public void record(long value) {
+		
+		if (value < 0) value = 0;
+		
+		this.counts.incrementAndGet(bucket(value));
+		this.sum.addAndGet(value);
+		
+		long m;
+		while ((m = this.max.get()) < value 
+				&& !this.max.compareAndSet(m, value));
+	}
+	
+	/**
+	 * Remove all recorded values.
+	 */
+	public void reset() {
+		for (int b = 0; b < NUM_BUCKETS; b++) {
+			this.counts.set(b, 0);
+		}
+		this.sum.set(0);
+		this.max.set(0);
+	}
+	
+	/**
+	 * Get the number of recorded values.
+	 * 
+	 * @return Number of recorded values.
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int b = 0; b < NUM_BUCKETS; b++) {
+			count += this.counts.get(b);
+		}
+		return count;
+	}
+	
+	/**
+	 * Get the mean of recorded values.
+	 * 
+	 * @return Mean of recorded values, or zero if no values were recorded.
+	 */
+	public double getMean() {
+		long count = this.getCount();
+		return count > 0 ? (double) this.sum.get() / count : 0;
+	}
+	
+	/**
+	 * Get the largest recorded value.
+	 * 
+	 * @return Largest recorded value, or zero if no values were recorded.
+	 */
+	public long getMax() {
+		return this.max.get();
+	}
+	
+	/**
+	 * Get an approximation of the value below which the given fraction of 
+	 * recorded values lies, namely the upper bound of the bucket where that
+	 * value was recorded (but never larger than the largest recorded value).
+	 * 
+	 * @param fraction Fraction of recorded values, between 0 and 1.
+	 * @return Value below which the given fraction of recorded values lies,
+	 * or zero if no values were recorded.
+	 */
+	public long getPercentile(double fraction) {
+		
+		long count = this.getCount();
+		if (count == 0) return 0;
+		
+		long rank = Math.max(1, (long) Math.ceil(fraction * count));
+		long seen = 0;
+		for (int b = 0; b < NUM_BUCKETS; b++) {
+			seen += this.counts.get(b);
+			if (seen >= rank) {
+				return Math.min(bucketUpper(b), this.getMax());
+			}
+		}
+		return this.getMax();
+	}
+	
+	/**
+	 * Get the number of buckets.
+	 * 
+	 * @return Number of buckets.
+	 */
+	public int getNumBuckets() {
+		return NUM_BUCKETS;
+	}
+	
+	/**
+	 * Get the count of values in a bucket.
+	 * 
+	 * @param b Bucket index.
+	 * @return Count of values in bucket.
+	 */
+	public long getBucketCount(int b) {
+		return this.counts.get(b);
+	}
+	
+	/**
+	 * Get the smallest value of a bucket.
+	 * 
+	 * @param b Bucket index.
+	 * @return Smallest value of bucket.
+	 */
+	public static long bucketLower(int b) {
+		if (b < 2 * SUB_BUCKETS) return b;
+		int shift = b / SUB_BUCKETS - 1;
+		return (long) (b % SUB_BUCKETS + SUB_BUCKETS) << shift;
+	}
+	
+	/**
+	 * Get the largest value of a bucket.
+	 * 
+	 * @param b Bucket index.
+	 * @return Largest value of bucket.
+	 */
+	public static long bucketUpper(int b) {
+		return b + 1 < NUM_BUCKETS ? bucketLower(b + 1) - 1 : Long.MAX_VALUE;
+	}
+	
+	/**
+	 * Get the bucket of a value. Values smaller than twice the number of 
+	 * sub-buckets have their own bucket.
+	 * 
+	 * @param value A non-negative value.
+	 * @return Bucket index.
+	 */
+	private static int bucket(long value) {
+		
+		if (value < 2 * SUB_BUCKETS) return (int) value;
+		
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+		return (shift + 1) * SUB_BUCKETS 
+				+ (int) ((value >>> shift) - SUB_BUCKETS);
+	}
+
+}
@@ -27,7 +27,6 @@
 package org.laseeb.pphpc;
 
 import java.util.Random;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.uncommons.maths.binary.BinaryUtils;
 import org.uncommons.maths.random.DefaultSeedGenerator;
@@ -43,6 +42,9 @@ import org.uncommons.maths.random.SeedGenerator;
  * Note: After testing this RNG with Dieharder it's actually not that bad. 
  * Randu fails much more tests. I'd still wouldn't recommend it though.
  * 
+ * The RNG state is not locked, so instances must only be used by one thread
+ * at a time, as is the case of the generators of simulation workers.
+ * 
  * @author Nuno Fachada
  */
 public class ModMidSquareRNG extends Random implements RepeatableRNG {
@@ -59,9 +61,6 @@ public class ModMidSquareRNG extends Random implements RepeatableRNG {
 	/* The RNG state. */
 	private long state;
 
-	/* Lock to prevent concurrent modification of the RNG's internal state. */
-	private final ReentrantLock lock = new ReentrantLock();
-
 	/**
 	 * Creates a new ModMidSquare RNG and seeds it using the default seeding strategy.
 	 */
@@ -109,14 +108,7 @@ public class ModMidSquareRNG extends Random implements RepeatableRNG {
 	 */
 	@Override
 	protected int next(int bits) {
-		try {
-			lock.lock();
-			
-			this.state = ((this.state + 2) * (this.state + 1)) >> 1;
-			return ((int) (this.state & 0xFFFFFFFF)) >>> (32 - bits);
-
-		} finally {
-			lock.unlock();
-		}
+		this.state = ((this.state + 2) * (this.state + 1)) >> 1;
+		return ((int) (this.state & 0xFFFFFFFF)) >>> (32 - bits);
 	}
 }
\ No newline at end of file
@@ -26,16 +26,13 @@
 
 package org.laseeb.pphpc;
 
-import java.io.FileWriter;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
-
-import org.uncommons.maths.random.SeedGenerator;
+import java.util.random.RandomGenerator;
 
 /**
  * A concrete implementation of the simulation model, in the MVC sense.
@@ -50,9 +47,15 @@ public class Model implements IModel {
 	/* Model parameters. */
 	private ModelParams params;
 	
-	/* Model cells. */
+	/* Model cells, if agents are kept in cell objects. */
 	private ICell cells[];
 	
+	/* Grid state, if agents are kept in a compressed sparse row layout. */
+	private CsrGrid csrGrid;
+	
+	/* Can agent movement be performed only on the cells which hold agents? */
+	private boolean sparseMove;
+	
 	/* Current iteration. */
 	private int currentIteration;
 	
@@ -80,38 +83,97 @@ public class Model implements IModel {
 	/* Shuffle agents before they act? */
 	private boolean shuffle;
 	
-	/* Type of random number generator used in this model. */
-	private RNGType rngType;
+	/* Is grass regrowth event-driven? */
+	private boolean eventGrass;
+	
+	/* Random number generator streams of the workers. */
+	private RNGStreams rngStreams;
+	
+	/* Size of the per-worker random number buffers (zero if unbuffered). */
+	private int rngBufferSize;
+	
+	/* Checkpoint from which to restore the simulation. */
+	private Checkpoint resume;
+	
+	/* Saves checkpoints of this model. */
+	private Checkpointer checkpointer;
+	
+	/* Saves spatial frames of this model. */
+	private FrameWriter frameWriter;
+	
+	/* Time spent by workers in each phase. */
+	private PhaseTimings phaseTimings;
+	
+	/* Arrival skew of workers at synchronization points. */
+	private BarrierSkews barrierSkews;
 	
-	/* Random number generator seed. */
-	private BigInteger seed;
+	/* Emit JDK Flight Recorder events? */
+	private boolean jfrEvents;
 	
 	/**
 	 * Create a new simulation model.
 	 * 
 	 * @param params Model parameters.
 	 * @param wFactory Work factory used to execute the simulation.
+	 * @param globalStats Global simulation statistics.
 	 * @param shuffle Shuffle agents before they act?
+	 * @param eventGrass Is grass regrowth event-driven?
+	 * @param csr Keep agents in a compressed sparse row layout instead of 
+	 * cell objects?
 	 * @param rngType Type of random number generator used in this model.
 	 * @param seed Random number generator seed. 
+	 * @param legacySeeds Derive the seeds of worker generators as in earlier
+	 * versions (slower, but reproduces their simulations)?
+	 * @param rngBufferSize Size of the buffer of pre-generated random numbers
+	 * of each worker, or zero if workers use their generators directly.
+	 * @param resume Checkpoint from which to restore the simulation, or 
+	 * null to start the simulation from the beginning.
+	 * @param checkpointer Saves checkpoints of this model, or null if 
+	 * checkpoints are not to be saved.
+	 * @param frameWriter Saves spatial frames of this model, or null if 
+	 * spatial frames are not to be saved.
+	 * @param phaseTimings Time spent by workers in each phase, or null if 
+	 * workers are not to be timed.
+	 * @param barrierSkews Arrival skew of workers at synchronization points,
+	 * or null if arrival skew is not to be recorded.
+	 * @param jfrEvents Emit JDK Flight Recorder events?
 	 */
-	public Model(ModelParams params, IWorkFactory wFactory, boolean shuffle, 
-			RNGType rngType, BigInteger seed) {
+	public Model(ModelParams params, IWorkFactory wFactory, 
+			IGlobalStats globalStats, boolean shuffle, boolean eventGrass, 
+			boolean csr, RNGType rngType, BigInteger seed, boolean legacySeeds,
+			int rngBufferSize,
+			Checkpoint resume,
+			Checkpointer checkpointer, FrameWriter frameWriter, 
+			PhaseTimings phaseTimings, BarrierSkews barrierSkews, 
+			boolean jfrEvents) {
 		
 		this.params = params;
 		this.space = new VonNeumann2DTorusSpace(
 				params.getGridX(), params.getGridY());
-		this.globalStats = wFactory.createGlobalStats(params.getIters());
+		this.globalStats = globalStats;
 		this.putInitAgentStrategy = wFactory.createPutInitAgentStrategy();
 		this.putExistingAgentStrategy = 
 				wFactory.createPutExistingAgentStrategy();
 		this.grassInitStrategy = new CellGrassInitCoinRandCounter();
 		this.currentIteration = 0;
 		this.size = space.getSize();
-		this.cells = new ICell[this.size];
+		if (csr) {
+			this.csrGrid = new CsrGrid(this.size, wFactory.getNumWorkers());
+		} else {
+			this.cells = new ICell[this.size];
+		}
+		this.sparseMove = !wFactory.requiresOrderedCellWork();
 		this.shuffle = shuffle;
-		this.rngType = rngType;
-		this.seed = seed;
+		this.eventGrass = eventGrass;
+		this.rngStreams = new RNGStreams(rngType, seed, legacySeeds, 
+				wFactory.getNumWorkers());
+		this.rngBufferSize = rngBufferSize;
+		this.resume = resume;
+		this.checkpointer = checkpointer;
+		this.frameWriter = frameWriter;
+		this.phaseTimings = phaseTimings;
+		this.barrierSkews = barrierSkews;
+		this.jfrEvents = jfrEvents;
 
 	}
 	
@@ -123,6 +185,62 @@ public class Model implements IModel {
 		return shuffle;
 	}
 
+	/**
+	 * @see IModelQuerier#isEventGrass()
+	 */
+	@Override
+	public boolean isEventGrass() {
+		return eventGrass;
+	}
+
+	/**
+	 * @see IModelQuerier#getResumeCheckpoint()
+	 */
+	@Override
+	public Checkpoint getResumeCheckpoint() {
+		return this.resume;
+	}
+
+	/**
+	 * @see IModelQuerier#getCheckpointer()
+	 */
+	@Override
+	public Checkpointer getCheckpointer() {
+		return this.checkpointer;
+	}
+
+	/**
+	 * @see IModelQuerier#getFrameWriter()
+	 */
+	@Override
+	public FrameWriter getFrameWriter() {
+		return this.frameWriter;
+	}
+
+	/**
+	 * @see IModelQuerier#getPhaseTimings()
+	 */
+	@Override
+	public PhaseTimings getPhaseTimings() {
+		return this.phaseTimings;
+	}
+
+	/**
+	 * @see IModelQuerier#getBarrierSkews()
+	 */
+	@Override
+	public BarrierSkews getBarrierSkews() {
+		return this.barrierSkews;
+	}
+
+	/**
+	 * @see IModelQuerier#isJfrEvents()
+	 */
+	@Override
+	public boolean isJfrEvents() {
+		return this.jfrEvents;
+	}
+
 	/**
 	 * @see IModelQuerier#getSize()
 	 */
@@ -168,33 +286,84 @@ public class Model implements IModel {
 	 */
 	@Override
 	public void incrementIteration() {
+		this.globalStats.commitStats(this.currentIteration);
 		this.currentIteration++;
 		this.updateObservers(ModelEvent.NEW_ITERATION);		
 	}
 
 	/**
-	 * @see IModelManipulator#initCellAt(int, Random)
+	 * @see IModelManipulator#initCellAt(int, RandomGenerator)
 	 */
 	@Override
-	public void initCellAt(int idx, Random rng) {
+	public void initCellAt(int idx, RandomGenerator rng) {
+		this.restoreCellAt(idx, this.grassInitStrategy.getInitGrass(
+				params.getGrassRestart(), rng));
+	}
+	
+	/**
+	 * @see IModelManipulator#restoreCellAt(int, int)
+	 */
+	@Override
+	public void restoreCellAt(int idx, int grass) {
 		if (this.cells[idx] == null) {
-			this.cells[idx] = new Cell(params.getGrassRestart(), 
-					this.grassInitStrategy.getInitGrass(params.getGrassRestart(), 
-							rng),
-					this.putInitAgentStrategy, this.putExistingAgentStrategy);
+			if (this.eventGrass) {
+				this.cells[idx] = new EventGrassCell(this, 
+						params.getGrassRestart(), grass,
+						this.putInitAgentStrategy, this.putExistingAgentStrategy);
+			} else {
+				this.cells[idx] = new Cell(params.getGrassRestart(), grass,
+						this.putInitAgentStrategy, this.putExistingAgentStrategy);
+			}
 		} else {
 			throw new IllegalStateException("Cell " + idx + " already set!");
 		}
 	}
 	
+	/**
+	 * @see IModelManipulator#createSimEngine(IWorkProvider, IWork)
+	 */
+	@Override
+	public ISimEngine createSimEngine(IWorkProvider cellsWorkProvider, 
+			IWork cellsWork) {
+		
+		if (this.csrGrid != null) {
+			return new CsrSimEngine(this, this.csrGrid, this.grassInitStrategy,
+					cellsWorkProvider, cellsWork);
+		} else {
+			return new CellSimEngine(this, cellsWorkProvider, cellsWork, 
+					this.sparseMove);
+		}
+	}
+	
 	/**
 	 * @see IModelManipulator#reset()
 	 */
 	@Override
 	public void reset() {
-		Arrays.fill(this.cells, null);
+		/* Checkpoints still being written read the statistics history, so 
+		 * they are finished first. */
+		if (this.checkpointer != null) this.checkpointer.reset();
+		if (this.cells != null) Arrays.fill(this.cells, null);
+		if (this.csrGrid != null) this.csrGrid.reset();
 		this.globalStats.reset();
 		this.currentIteration = 0;
+		if (this.frameWriter != null) this.frameWriter.reset();
+		if (this.phaseTimings != null) this.phaseTimings.reset();
+		if (this.barrierSkews != null) this.barrierSkews.reset();
+		this.rngStreams.reset();
+		
+		/* When restoring from a checkpoint, the simulation starts at the 
+		 * checkpoint iteration, whose statistics are obtained again by the
+		 * workers. Statistics of previous iterations are restored, unless 
+		 * they were streamed, in which case they are kept in the file. */
+		if (this.resume != null) {
+			this.currentIteration = this.resume.getIteration();
+			if (this.resume.hasStats()) {
+				for (int i = 0; i < this.currentIteration; i++) {
+					this.globalStats.restoreStats(i, this.resume.getStats(i));
+				}
+			}
+		}
 	}
 	
 	/**
@@ -210,6 +379,33 @@ public class Model implements IModel {
 	 */
 	@Override
 	public void stop() {
+		
+		/* Wait for checkpoints still being written in the background. */
+		if (this.checkpointer != null) {
+			try {
+				this.checkpointer.finish();
+			} catch (Exception e) {
+				this.registerException(e, "Saving checkpoint");
+			}
+		}
+		
+		/* Close spatial frames file. */
+		if (this.frameWriter != null) {
+			try {
+				this.frameWriter.finish();
+			} catch (Exception e) {
+				this.registerException(e, "Saving spatial frames");
+			}
+		}
+		
+		/* Export arrival skew histograms. */
+		if (this.barrierSkews != null) {
+			try {
+				this.barrierSkews.export();
+			} catch (Exception e) {
+				this.registerException(e, "Exporting barrier skew histograms");
+			}
+		}
 		this.updateObservers(ModelEvent.STOP);
 	}
 	
@@ -235,37 +431,8 @@ public class Model implements IModel {
 	@Override
 	public void export(String filename) {
 		
-		FileWriter out = null;
 		try {
-			out = new FileWriter(filename);
-				
-			for (int i = 0; i <= params.getIters() ; i++) {
-				
-				int sheepCount = this.globalStats.getStats(
-						StatType.SHEEP_COUNT, i).intValue();
-				int wolvesCount = this.globalStats.getStats(
-						StatType.WOLVES_COUNT, i).intValue();
-				int grassAlive = this.globalStats.getStats(
-						StatType.GRASS_ALIVE, i).intValue();
-				float avgSheepEnergy = sheepCount > 0 
-						? this.globalStats.getStats(StatType.SHEEP_ENERGY, i).longValue() 
-								/ (float) sheepCount
-						: 0;
-				float avgWolvesEnergy = wolvesCount > 0 
-						? this.globalStats.getStats(StatType.WOLVES_ENERGY, i).longValue() 
-								/ (float) wolvesCount
-						: 0;
-				float avgGrassCountdown = this.globalStats.getStats(StatType.GRASS_COUNTDOWN, i).longValue()
-						/ (float) this.getSize();
-				
-				out.write(sheepCount + "\t" + wolvesCount + "\t" 
-						+ grassAlive + "\t" + avgSheepEnergy + "\t" 
-						+ avgWolvesEnergy + "\t" + avgGrassCountdown + "\n");
-			}
-			
-			if (out != null) {
-				out.close();
-			}
+			this.globalStats.export(filename, this.getSize());
 		} catch (Exception e) {
 			this.registerException(e, "Exporting statistics to file '" 
 					+ filename + "'");
@@ -297,13 +464,14 @@ public class Model implements IModel {
 	 * @see IModelQuerier#createRNG(int)
 	 */
 	@Override
-	public Random createRNG(int modifier) throws Exception {
+	public RandomGenerator createRNG(int wId) throws Exception {
 		
-		/* Instantiate the seed generator for the PPHPC model. */
-		SeedGenerator seedGen = new ModelSeedGenerator(modifier, this.seed);
+		/* Get the random number generator of the worker... */
+		RandomGenerator rng = this.rngStreams.get(wId);
 		
-		/* Create and return the random number generator. */
-		return rngType.createRNG(seedGen);
+		/* ...and return it, buffered if required. */
+		return this.rngBufferSize > 0 
+				? new BufferedRandomGenerator(rng, this.rngBufferSize) : rng;
 	}
 	
 	/**
@@ -349,11 +517,11 @@ public class Model implements IModel {
 	}
 
 	/**
-	 * @see IModelManipulator#updateStats(int, IterationStats)
+	 * @see IModelManipulator#updateStats(int, int, IterationStats)
 	 */
 	@Override
-	public void updateStats(int iter, IterationStats iterStats) {
-		this.globalStats.updateStats(iter, iterStats);
+	public void updateStats(int wId, int iter, IterationStats iterStats) {
+		this.globalStats.updateStats(wId, iter, iterStats);
 	}
 	
 	/**
@@ -28,6 +28,11 @@ package org.laseeb.pphpc;
 
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Properties;
 
 /**
@@ -36,6 +41,13 @@ import java.util.Properties;
  * @author Nuno Fachada
  */
 public class ModelParams {
+	
+	/** Standard PPHPC configurations bundled with the simulator, named after
+	 * the grid size and parameter set. */
+	public static final String[] PRESETS = { 
+		"100v1", "200v1", "400v1", "800v1", "1600v1", "3200v1", 
+		"100v2", "200v2", "400v2", "800v2", "1600v2", "3200v2" };
+	
 	/*
 	 * Model parameters.
 	 */
@@ -60,12 +72,37 @@ public class ModelParams {
 	 * @throws IOException If it wasn't possible to open the given parameters file.
 	 */
 	public ModelParams(String paramsFile) throws IOException {
+		this(load(new FileReader(paramsFile)));
+	}
+	
+	/**
+	 * Create a simulation parameters object with one of the standard PPHPC
+	 * configurations bundled with the simulator.
+	 * 
+	 * @param preset Name of the configuration, e.g. "400v1" for the 400x400 
+	 * grid with parameter set 1.
+	 * @return Simulation parameters of the given configuration.
+	 * @throws IOException If the configuration does not exist or can't be read.
+	 * @see #PRESETS
+	 */
+	public static ModelParams fromPreset(String preset) throws IOException {
 		
-		Properties properties = new Properties();
-		FileReader in = null;
-		in = new FileReader(paramsFile);
-		properties.load(in);
-		in.close();
+		InputStream in = ModelParams.class.getResourceAsStream(
+				"configs/config" + preset + ".txt");
+		if (in == null) {
+			throw new IOException("Unknown preset '" + preset 
+					+ "', available presets are " + Arrays.toString(PRESETS));
+		}
+		return new ModelParams(load(new InputStreamReader(in, StandardCharsets.UTF_8)));
+	}
+	
+	/**
+	 * Create a simulation parameters object from a set of properties with the
+	 * same keys as a parameters file.
+	 * 
+	 * @param properties Simulation parameters.
+	 */
+	ModelParams(Properties properties) {
 
 		this.initSheep = Integer.parseInt(properties.getProperty("INIT_SHEEP"));
 		this.sheepGainFromFood = Integer.parseInt(properties.getProperty("SHEEP_GAIN_FROM_FOOD"));
@@ -81,6 +118,24 @@ public class ModelParams {
 		this.iters = Integer.parseInt(properties.getProperty("ITERS"));
 	}
 
+	/**
+	 * Load simulation parameters in the parameters file format.
+	 * 
+	 * @param in Reader of simulation parameters, closed after loading.
+	 * @return Simulation parameters.
+	 * @throws IOException If it wasn't possible to read the parameters.
+	 */
+	private static Properties load(Reader in) throws IOException {
+		
+		Properties properties = new Properties();
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		return properties;
+	}
+
 	/**
 	 * Get initial number of sheep.
 	 * 
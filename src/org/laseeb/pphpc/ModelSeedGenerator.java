@@ -41,10 +41,20 @@ import org.uncommons.maths.random.SeedGenerator;
  * the same base seed, as to allow for deterministic parallel streams of
  * pseudo-random numbers.
  * 
+ * By default, seeds are the output of a SplitMix64 generator whose state
+ * is obtained by hashing the base seed and the thread ID, which takes a few
+ * microseconds for seeds of any length. The legacy derivation, which 
+ * repeatedly squares the base seed until it is large enough, can be used to
+ * reproduce simulations performed with earlier versions, but is much slower
+ * for long seeds (e.g. for the Mersenne Twister).
+ * 
  * @author Nuno Fachada
  */
 public class ModelSeedGenerator implements SeedGenerator {
 	
+	/* Increment of the SplitMix64 generator (golden ratio). */
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+	
 	/* Different threads should pass different IDs, so that each
 	 * gets a "different" stream from the RNG. */
 	private long wId;
@@ -52,6 +62,9 @@ public class ModelSeedGenerator implements SeedGenerator {
 	/* Base seed for this seed generator. */
 	private BigInteger seed;
 	
+	/* Use the legacy seed derivation? */
+	private boolean legacy;
+	
 	/**
 	 * Create a new seed generator.
 	 * 
@@ -61,8 +74,23 @@ public class ModelSeedGenerator implements SeedGenerator {
 	 * @param seed Base seed for this seed generator.
 	 */
 	public ModelSeedGenerator(int wId, BigInteger seed) {
+		this(wId, seed, false);
+	}
+	
+	/**
+	 * Create a new seed generator.
+	 * 
+	 * @param wId A thread ID or similar, used for producing different
+	 * seeds for different threads, based on the same {@link #seed}. If only
+	 * one thread is used, pass zero.
+	 * @param seed Base seed for this seed generator.
+	 * @param legacy Use the legacy seed derivation, which produces the same
+	 * seeds as earlier versions?
+	 */
+	public ModelSeedGenerator(int wId, BigInteger seed, boolean legacy) {
 		this.wId = wId;
 		this.seed = seed;
+		this.legacy = legacy;
 	}
 
 	/**
@@ -73,7 +101,67 @@ public class ModelSeedGenerator implements SeedGenerator {
 	 */
 	@Override
 	public byte[] generateSeed(int length) throws SeedException {
+		return this.legacy ? this.generateLegacySeed(length) 
+				: this.generateFastSeed(length);
+	}
+	
+	/**
+	 * SplitMix64 output function, a bijective mix of 64-bit values.
+	 * 
+	 * @param z Value to mix.
+	 * @return Mixed value.
+	 */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * Generate a seed with SplitMix64, starting from a hash of the base seed
+	 * and thread ID.
+	 * 
+	 * @param length Length in bytes of seed to generate.
+	 * @return The generated seed.
+	 */
+	private byte[] generateFastSeed(int length) {
+		
+		/* Hash the base seed, eight bytes at a time. */
+		byte[] seedBytes = this.seed.toByteArray();
+		long state = seedBytes.length;
+		for (int i = 0; i < seedBytes.length; i += 8) {
+			long chunk = 0;
+			for (int j = i; j < Math.min(i + 8, seedBytes.length); j++) {
+				chunk = (chunk << 8) | (seedBytes[j] & 0xFF);
+			}
+			state = mix64(state ^ chunk) + GOLDEN_GAMMA;
+		}
+		
+		/* Each thread starts at an unrelated point of the SplitMix64 
+		 * sequence. */
+		state = mix64(state ^ mix64(this.wId + GOLDEN_GAMMA));
 		
+		/* Generate the seed. */
+		byte[] output = new byte[length];
+		for (int i = 0; i < length; i += 8) {
+			state += GOLDEN_GAMMA;
+			long value = mix64(state);
+			for (int j = i; j < Math.min(i + 8, length); j++) {
+				output[j] = (byte) value;
+				value >>>= 8;
+			}
+		}
+		return output;
+	}
+	
+	/**
+	 * Generate a seed with the legacy derivation.
+	 * 
+	 * @param length Length in bytes of seed to generate.
+	 * @return The generated seed.
+	 * @throws SeedException if something bad happens.
+	 */
+	private byte[] generateLegacySeed(int length) throws SeedException {
 		/* Final seed to be generated. */
 		BigInteger finalSeed = this.seed;
 		
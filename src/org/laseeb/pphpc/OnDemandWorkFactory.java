@@ -87,6 +87,8 @@ public class OnDemandWorkFactory extends AbstractMultiThreadWorkFactory {
 						controller, this.numThreads), 
 				new BlockingSyncPoint(ControlEvent.AFTER_HALF_ITERATION, 
 						controller, this.numThreads), 
+				new BlockingSyncPoint(ControlEvent.BEFORE_CHECKPOINT, 
+						controller, this.numThreads), 
 				new BlockingSyncPoint(ControlEvent.AFTER_END_ITERATION, 
 						controller, this.numThreads), 
 				new NonBlockingSyncPoint(ControlEvent.AFTER_END_SIMULATION, 
@@ -108,7 +108,26 @@ public class OneGoCLIView extends AbstractModelEventObserver implements IView {
 	@Override
 	protected void updateOnStop() {
 		System.out.println("Total simulation time: " + ((System.currentTimeMillis() - this.timing) / 1000.0f) + "\n");
+		if (this.model.getPhaseTimings() != null) {
+			System.out.println(this.model.getPhaseTimings().report());
+		}
+		if (this.model.getBarrierSkews() != null) {
+			System.out.println(this.model.getBarrierSkews().report());
+		}
 		this.controller.export(this.pp.getStatsFile());
+		
+		/* Check simulation output against reference statistics, if 
+		 * required. */
+		ReferenceStats reference = this.pp.getReference();
+		if (reference != null) {
+			double[] devs = reference.deviations(ReferenceStats.read(this.model));
+			double tolerance = this.pp.getCheckTolerance();
+			System.out.println("Check against reference statistics " 
+					+ ReferenceStats.report(devs, tolerance));
+			if (!ReferenceStats.passes(devs, tolerance)) {
+				System.exit(PredPrey.Errors.CHECK.getValue());
+			}
+		}
 		System.exit(PredPrey.Errors.NONE.getValue());
 	}
 
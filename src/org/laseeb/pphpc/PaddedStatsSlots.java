@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+/**
+ * Per-worker slots for partial iteration statistics. Each worker writes into
+ * its own slot, padded so that no two workers share a cache line, and the 
+ * partial statistics are added when all workers are done with an iteration.
+ * 
+ * @author Nuno Fachada
+ */
+public class PaddedStatsSlots {
+	
+	/* Distance between worker slots, in longs (128 bytes, so that adjacent
+	 * cache line prefetching does not cause false sharing either). */
+	private static final int STRIDE = 16;
+	
+	/* Position of each statistic within a worker slot. */
+	private static final int SHEEP_COUNT = 0;
+	private static final int WOLVES_COUNT = 1;
+	private static final int GRASS_ALIVE = 2;
+	private static final int SHEEP_ENERGY = 3;
+	private static final int WOLVES_ENERGY = 4;
+	private static final int GRASS_COUNTDOWN = 5;
+
+	/* Worker slots. Slot of worker w starts at (w + 1) * STRIDE, so the 
+	 * first and last slots are also padded. */
+	private long[] slots;
+	
+	/* Number of workers. */
+	private int numWorkers;
+	
+	/**
+	 * Create new per-worker statistics slots.
+	 * 
+	 * @param numWorkers Number of workers.
+	 */
+	public PaddedStatsSlots(int numWorkers) {
+		this.numWorkers = numWorkers;
+		this.slots = new long[(numWorkers + 2) * STRIDE];
+	}
+	
+	/**
+	 * Keep the partial statistics of a worker, replacing the ones previously
+	 * kept.
+	 * 
+	 * @param wId Worker ID.
+	 * @param stats Partial statistics.
+	 */
+	public void put(int wId, IterationStats stats) {
+		int slot = (wId + 1) * STRIDE;
+		this.slots[slot + SHEEP_COUNT] = stats.getSheepCount();
+		this.slots[slot + WOLVES_COUNT] = stats.getWolvesCount();
+		this.slots[slot + GRASS_ALIVE] = stats.getGrassAlive();
+		this.slots[slot + SHEEP_ENERGY] = stats.getSheepEnergy();
+		this.slots[slot + WOLVES_ENERGY] = stats.getWolvesEnergy();
+		this.slots[slot + GRASS_COUNTDOWN] = stats.getGrassCountdown();
+	}
+	
+	/**
+	 * Add the partial statistics of all workers. Must only be invoked when 
+	 * all workers have kept their partial statistics, and before they keep
+	 * new ones.
+	 * 
+	 * @return The sum of the partial statistics of all workers.
+	 */
+	public IterationStats sum() {
+		
+		long[] totals = new long[GRASS_COUNTDOWN + 1];
+		
+		for (int w = 0; w < this.numWorkers; w++) {
+			int slot = (w + 1) * STRIDE;
+			for (int i = 0; i < totals.length; i++) {
+				totals[i] += this.slots[slot + i];
+			}
+		}
+		
+		return new IterationStats((int) totals[SHEEP_COUNT], 
+				(int) totals[WOLVES_COUNT], (int) totals[GRASS_ALIVE], 
+				totals[SHEEP_ENERGY], totals[WOLVES_ENERGY], 
+				totals[GRASS_COUNTDOWN]);
+	}
+
+}
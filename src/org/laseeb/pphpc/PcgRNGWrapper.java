@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.random.RandomGenerator;
+
+import io.github.pr0methean.betterrandom.prng.BaseRandom;
+import io.github.pr0methean.betterrandom.prng.Pcg128Random;
+import io.github.pr0methean.betterrandom.prng.Pcg64Random;
+
+/**
+ * Wrapper class for the PCG generators of the BetterRandom library. It only
+ * forwards calls to the wrapped generator, so that simulations get the same
+ * random numbers as when using it directly.
+ * 
+ * The wrapper can be serialized, e.g. in checkpoints. Only the current 
+ * state of the wrapped generator, given by {@link BaseRandom#getSeed()}, is
+ * serialized, since serializing the generators themselves requires 
+ * libraries which are not otherwise used. The state has 8 bytes for 
+ * {@link Pcg64Random} and 16 bytes for {@link Pcg128Random}.
+ * 
+ * @author Nuno Fachada
+ */
+public final class PcgRNGWrapper implements RandomGenerator, Serializable {
+	
+	/* Generated serial version UID. */
+	private static final long serialVersionUID = 8143375960528735101L;
+
+	/* The wrapped generator. */
+	private final BaseRandom rng;
+	
+	/**
+	 * Create a new wrapper for a 64-bit PCG generator.
+	 * 
+	 * @param rng The wrapped generator.
+	 */
+	public PcgRNGWrapper(Pcg64Random rng) {
+		this.rng = rng;
+	}
+	
+	/**
+	 * Create a new wrapper for a 128-bit PCG generator.
+	 * 
+	 * @param rng The wrapped generator.
+	 */
+	public PcgRNGWrapper(Pcg128Random rng) {
+		this.rng = rng;
+	}
+
+	/**
+	 * @see RandomGenerator#nextBoolean()
+	 */
+	@Override
+	public boolean nextBoolean() {
+		return this.rng.nextBoolean();
+	}
+
+	/**
+	 * @see RandomGenerator#nextBytes(byte[])
+	 */
+	@Override
+	public void nextBytes(byte[] bytes) {
+		this.rng.nextBytes(bytes);
+	}
+
+	/**
+	 * @see RandomGenerator#nextDouble()
+	 */
+	@Override
+	public double nextDouble() {
+		return this.rng.nextDouble();
+	}
+
+	/**
+	 * @see RandomGenerator#nextFloat()
+	 */
+	@Override
+	public float nextFloat() {
+		return this.rng.nextFloat();
+	}
+
+	/**
+	 * @see RandomGenerator#nextInt()
+	 */
+	@Override
+	public int nextInt() {
+		return this.rng.nextInt();
+	}
+
+	/**
+	 * @see RandomGenerator#nextInt(int)
+	 */
+	@Override
+	public int nextInt(int bound) {
+		return this.rng.nextInt(bound);
+	}
+
+	/**
+	 * @see RandomGenerator#nextLong()
+	 */
+	@Override
+	public long nextLong() {
+		return this.rng.nextLong();
+	}
+	
+	/* Serialize the state of the wrapped generator instead of the wrapper. */
+	private Object writeReplace() {
+		return new SerializedForm(this.rng.getSeed());
+	}
+	
+	/* Wrappers are only deserialized through their serialized form. */
+	private void readObject(ObjectInputStream in) throws InvalidObjectException {
+		throw new InvalidObjectException("Serialized form required.");
+	}
+	
+	/**
+	 * Serialized form of the wrapper, i.e. the state of the wrapped 
+	 * generator.
+	 */
+	private static final class SerializedForm implements Serializable {
+		
+		/* Generated serial version UID. */
+		private static final long serialVersionUID = -6407512797233178210L;
+		
+		/* State of the wrapped generator. */
+		private final byte[] state;
+		
+		/**
+		 * Create the serialized form of a wrapper.
+		 * 
+		 * @param state State of the wrapped generator.
+		 */
+		SerializedForm(byte[] state) {
+			this.state = state;
+		}
+		
+		/* Restore the wrapper when deserialized, with a generator of the 
+		 * type given by the state size. */
+		private Object readResolve() throws InvalidObjectException {
+			if (this.state.length == Long.BYTES) {
+				return new PcgRNGWrapper(new Pcg64Random(this.state));
+			} else if (this.state.length == 2 * Long.BYTES) {
+				return new PcgRNGWrapper(new Pcg128Random(this.state));
+			}
+			throw new InvalidObjectException("Invalid PCG state size.");
+		}
+	}
+	
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.util.Formatter;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Time spent by each simulation worker in each {@link TimedPhase}. Each 
+ * worker accumulates elapsed times in its own timer, obtained with 
+ * {@link #newTimer(int)}, using only {@link System#nanoTime()} and primitive
+ * arrays. Timers are aggregated in a report after the simulation.
+ * 
+ * @author Nuno Fachada
+ */
+public class PhaseTimings {
+	
+	/* Number of longs used to pad accumulators of different workers, so that
+	 * they are not in the same cache line. */
+	private static final int PADDING = 8;
+	
+	/* Nanoseconds in a millisecond. */
+	private static final double NANOS_PER_MILLI = 1e6;
+	
+	/* Timer of each worker. */
+	private AtomicReferenceArray<WorkerTimer> timers;
+	
+	/**
+	 * Timer which accumulates elapsed times per phase in a primitive array.
+	 */
+	private static class WorkerTimer implements IWorkerTimer {
+		
+		/* Accumulated nanoseconds per phase, padded at both ends. */
+		private long[] nanos = 
+				new long[PADDING + TimedPhase.values().length + PADDING];
+		
+		/* Time at which the last phase ended. */
+		private long last;
+
+		/**
+		 * @see IWorkerTimer#start()
+		 */
+		@Override
+		public void start() {
+			this.last = System.nanoTime();
+		}
+
+		/**
+		 * @see IWorkerTimer#mark(TimedPhase)
+		 */
+		@Override
+		public void mark(TimedPhase phase) {
+			long now = System.nanoTime();
+			this.nanos[PADDING + phase.ordinal()] += now - this.last;
+			this.last = now;
+		}
+		
+		/**
+		 * Get the accumulated time of a phase.
+		 * 
+		 * @param phase Phase.
+		 * @return Accumulated time of phase, in nanoseconds.
+		 */
+		long getNanos(TimedPhase phase) {
+			return this.nanos[PADDING + phase.ordinal()];
+		}
+	}
+	
+	/**
+	 * Create a new phase timings object.
+	 * 
+	 * @param numWorkers Number of workers.
+	 */
+	public PhaseTimings(int numWorkers) {
+		this.timers = new AtomicReferenceArray<WorkerTimer>(numWorkers);
+	}
+	
+	/**
+	 * Create the timer of a worker. Should be invoked by the worker itself, 
+	 * so that the timer is allocated close to its other data.
+	 * 
+	 * @param wId Worker ID.
+	 * @return The timer of the worker.
+	 */
+	public IWorkerTimer newTimer(int wId) {
+		WorkerTimer timer = new WorkerTimer();
+		this.timers.set(wId, timer);
+		return timer;
+	}
+	
+	/**
+	 * Get the time spent by a worker in a phase so far. May be invoked while 
+	 * the simulation is running, in which case the value is approximate.
+	 * 
+	 * @param wId Worker ID.
+	 * @param phase Phase.
+	 * @return Time spent by the worker in the phase, in nanoseconds, or zero
+	 * if the worker has not started yet.
+	 */
+	public long getNanos(int wId, TimedPhase phase) {
+		WorkerTimer timer = this.timers.get(wId);
+		return timer != null ? timer.getNanos(phase) : 0;
+	}
+	
+	/**
+	 * Get the number of workers.
+	 * 
+	 * @return Number of workers.
+	 */
+	public int getNumWorkers() {
+		return this.timers.length();
+	}
+	
+	/**
+	 * Discard the timers of all workers. Invoked when the model is reset.
+	 */
+	public void reset() {
+		for (int w = 0; w < this.timers.length(); w++) {
+			this.timers.set(w, null);
+		}
+	}
+	
+	/**
+	 * Get a report of the time spent by each worker in each phase, in 
+	 * milliseconds, as well as the mean time per phase and the fraction of 
+	 * the mean total time spent in each phase. Should only be invoked after 
+	 * the simulation finishes.
+	 * 
+	 * @return A report of the time spent by each worker in each phase.
+	 */
+	public String report() {
+		
+		TimedPhase[] phases = TimedPhase.values();
+		double[] mean = new double[phases.length];
+		double meanTotal = 0;
+		int numTimers = 0;
+		
+		Formatter report = new Formatter();
+		
+		report.format("Time per phase and worker (ms):%n%6s", "worker");
+		for (TimedPhase phase : phases) {
+			report.format(" %11s", phase.getShortName());
+		}
+		report.format(" %11s%n", "total");
+		
+		for (int w = 0; w < this.timers.length(); w++) {
+			
+			WorkerTimer timer = this.timers.get(w);
+			if (timer == null) continue;
+			numTimers++;
+			
+			double total = 0;
+			report.format("%6d", w);
+			for (TimedPhase phase : phases) {
+				double millis = timer.getNanos(phase) / NANOS_PER_MILLI;
+				mean[phase.ordinal()] += millis;
+				total += millis;
+				report.format(" %11.1f", millis);
+			}
+			meanTotal += total;
+			report.format(" %11.1f%n", total);
+		}
+		
+		if (numTimers == 0) {
+			report.close();
+			return "No phase timings available.\n";
+		}
+		
+		report.format("%6s", "mean");
+		for (TimedPhase phase : phases) {
+			mean[phase.ordinal()] /= numTimers;
+			report.format(" %11.1f", mean[phase.ordinal()]);
+		}
+		meanTotal /= numTimers;
+		report.format(" %11.1f%n%6s", meanTotal, "%");
+		for (TimedPhase phase : phases) {
+			report.format(" %11.1f", meanTotal > 0 
+					? 100 * mean[phase.ordinal()] / meanTotal : 0);
+		}
+		report.format(" %11.1f%n", 100.0);
+		
+		String result = report.toString();
+		report.close();
+		return result;
+	}
+
+}
@@ -63,6 +63,9 @@ import com.beust.jcommander.validators.PositiveInteger;
  */
 public class PredPrey {
 	
+	/* Iterations kept in memory when streaming statistics. */
+	private static final int STATS_BUFFER_SIZE = 1024;
+	
 	/**
 	 *  Enumeration containing program errors. 
 	 * */
@@ -77,7 +80,9 @@ public class PredPrey {
 		/** Error during simulation. */
 		SIM(-3),
 		/** Other errors. */
-		OTHER(-4);
+		OTHER(-4),
+		/** Simulation output does not match the reference statistics. */
+		CHECK(-5);
 		
 		/* Error code. */
 		private int value;
@@ -116,6 +121,22 @@ public class PredPrey {
 			description = "File containing simulation parameters")
 	private String paramsFile = "config.txt";
 	
+	/* Bundled simulation parameters. */
+	@Parameter(names = "--preset", description = "Use the bundled parameters"
+			+ " of a standard configuration instead of a parameters file, e.g."
+			+ " 400v1 for the 400x400 grid with parameter set 1")
+	private String preset = null;
+	
+	/* Check simulation output against reference statistics. */
+	@Parameter(names = "--check", description = "Check simulation output"
+			+ " against the reference statistics of the preset")
+	private boolean check = false;
+	
+	/* Maximum deviation from reference statistics. */
+	@Parameter(names = "--check-tolerance", description = "Maximum deviation"
+			+ " of each statistic from the reference, in standard deviations")
+	private double checkTolerance = 3.0;
+	
 	/* File where to output simulation statistics. */
 	@Parameter(names = "-s", description = "Statistics output file")
 	private String statsFile = "stats.txt";
@@ -129,15 +150,128 @@ public class PredPrey {
 	/* Random number generator implementation. */
 	@Parameter(names = "-g", 
 			description = "Random number generator (AES, " + 
-					"CA, CMWC, JAVA, MT, RANDU, REALLYPOOR or XORSHIFT)", 
+					"CA, CMWC, JAVA, JAVASPLIT, MT, RANDU, MODMIDSQUARE, " +
+					"XORSHIFT, PCG128, PCG64, KISS64, LCG64, L64X128M, " +
+					"L128X256M, XOSHIRO, XOROSHIRO or SPLIT)", 
 			converter =  RNGTypeConverter.class)
 	private RNGType rngType = RNGType.MT; //TODO verify this
 	
+	/* Use the legacy derivation of per-worker seeds. */
+	@Parameter(names = "--legacy-seeds", description = "Derive the seeds of"
+			+ " the random number generators as in earlier versions, which is"
+			+ " slower but reproduces their simulations")
+	private boolean legacySeeds = false;
+	
+	/* Size of the per-worker random number buffers. */
+	@Parameter(names = "--rng-buffer", description = "Pre-generate random"
+			+ " numbers in per-worker buffers of the given size (0 to disable)."
+			+ " Results differ from unbuffered simulations, but remain"
+			+ " reproducible")
+	private int rngBufferSize = 0;
+	
 	/* Shuffle agents before they act? */
 	@Parameter(names = {"-u", "--no-shuffle"}, description = "Disable agent"
 			+ " shuffling before agent actions (faster, but will have"
 			+ " some impact in model dynamics")
 	private boolean noShuffle = false;
+	
+	/* Event-driven grass regrowth? */
+	@Parameter(names = {"-e", "--grass-events"}, description = "Event-driven"
+			+ " grass regrowth, scheduled in timer wheels when grass is eaten"
+			+ " (faster for large grids)")
+	private boolean eventGrass = false;
+	
+	/* Keep agents in a compressed sparse row layout? */
+	@Parameter(names = {"-c", "--csr"}, description = "Keep agents in global"
+			+ " arrays grouped by cell (compressed sparse row layout) instead"
+			+ " of per-cell agent lists (uses less memory)")
+	private boolean csr = false;
+	
+	/* Stream statistics to file while the simulation runs? */
+	@Parameter(names = "--stream-stats", description = "Write statistics to"
+			+ " the statistics output file while the simulation runs (memory"
+			+ " used by statistics does not grow with the number of"
+			+ " iterations)")
+	private boolean streamStats = false;
+	
+	/* Export statistics in binary columnar format? */
+	@Parameter(names = "--binary-stats", description = "Export statistics in"
+			+ " binary columnar format (convert to text with "
+			+ "org.laseeb.pphpc.BinaryStats)")
+	private boolean binaryStats = false;
+	
+	/* Iterations at which to save checkpoints. */
+	@Parameter(names = "--checkpoint-at", description = "Save a checkpoint"
+			+ " of the simulation at the end of the given iterations"
+			+ " (comma-separated)")
+	private List<Integer> checkpointIters = new ArrayList<Integer>();
+	
+	/* Interval between periodic checkpoints. */
+	@Parameter(names = "--checkpoint-every", description = "Save a checkpoint"
+			+ " of the simulation every given number of iterations (0 for no"
+			+ " periodic checkpoints)", 
+			validateWith = PositiveInteger.class)
+	private int checkpointInterval = 0;
+	
+	/* Number of checkpoints to retain. */
+	@Parameter(names = "--checkpoint-keep", description = "Number of"
+			+ " checkpoints to retain; if larger than 1, the iteration is"
+			+ " appended to the name of each checkpoint file", 
+			validateWith = PositiveInteger.class)
+	private int checkpointKeep = 1;
+	
+	/* Checkpoint file. */
+	@Parameter(names = "--checkpoint-file", description = "Checkpoint file,"
+			+ " replaced by each new checkpoint unless more than one is"
+			+ " retained")
+	private String checkpointFile = "checkpoint.bin";
+	
+	/* Checkpoint from which to resume the simulation. */
+	@Parameter(names = "--resume", description = "Resume simulation from the"
+			+ " given checkpoint file (requires the same grid size and number"
+			+ " of threads; the RNG is also restored from the checkpoint)")
+	private String resumeFile = null;
+
+	/* Spatial frames file. */
+	@Parameter(names = "--frames", description = "Save downsampled grass,"
+			+ " sheep and wolves rasters periodically to the given file"
+			+ " (convert to text with org.laseeb.pphpc.SpatialFrames)")
+	private String framesFile = null;
+	
+	/* Interval between spatial frames. */
+	@Parameter(names = "--frame-every", description = "Save a spatial frame"
+			+ " every given number of iterations", 
+			validateWith = PositiveInteger.class)
+	private int frameInterval = 10;
+	
+	/* Downsampling scale of spatial frames. */
+	@Parameter(names = "--frame-scale", description = "Number of cells in"
+			+ " each side of a spatial frame pixel", 
+			validateWith = PositiveInteger.class)
+	private int frameScale = 1;
+
+	/* Time worker phases? */
+	@Parameter(names = "--timing", description = "Report time spent by each"
+			+ " thread in each simulation phase, including barrier waits")
+	private boolean timing = false;
+
+	/* File where to export barrier arrival skew histograms. */
+	@Parameter(names = "--barrier-skew", description = "Record histograms of"
+			+ " thread arrival skew at each synchronization point, report them"
+			+ " at the end and export them to the given file")
+	private String barrierSkewFile = null;
+
+	/* Emit JDK Flight Recorder events? */
+	@Parameter(names = "--jfr", description = "Emit JDK Flight Recorder"
+			+ " events for iterations, thread phases and synchronization point"
+			+ " waits (see pphpc.jfc for event thresholds)")
+	private boolean jfrEvents = false;
+	
+	/* Port of the Prometheus view metrics server. */
+	@Parameter(names = "--metrics-port", description = "Port where the"
+			+ " Prometheus view serves metrics", 
+			validateWith = PositiveInteger.class)
+	private int metricsPort = 9400;
 
 	/* Debug mode. */
 	@Parameter(names = "-d", 
@@ -148,7 +282,8 @@ public class PredPrey {
 	/* List of MVC views to use. */
 	@Parameter(names = {"-v", "--view"}, 
 			description = "Simulation views:" 
-				+ " OneGoCLI (default), InteractiveCLI, InfoWidget", 
+				+ " OneGoCLI (default), InteractiveCLI, InfoWidget, Jmx,"
+				+ " Prometheus", 
 			variableArity = true)
 	private List<String> views = new ArrayList<String>();
 	
@@ -160,8 +295,17 @@ public class PredPrey {
 	/* Simulation parameters. */
 	private ModelParams params;
 	
+	/* Reference statistics to check simulation output against, if any. */
+	private ReferenceStats reference = null;
+	
 	/* Work factory. */
 	private IWorkFactory workFactory;
+	
+	/* The MVC model. */
+	private IModel model;
+	
+	/* The MVC controller. */
+	private IController controller;
 
 	/**
 	 * Main method.
@@ -188,6 +332,38 @@ public class PredPrey {
 	 */
 	public void doMain(String[] args) {
 		
+		/* Create the MVC model and controller. */
+		this.setup(args);
+		
+		/* Create the MVC views. */
+		List<IView> viewObjs = null;
+		try {
+			viewObjs = this.createViews();
+		} catch (Exception e) {
+			System.err.println("Unable to create instance of view: " 
+					+ errMessage(e));
+			System.exit(Errors.ARGS.getValue());			
+		}
+		
+		/* Initialize the MVC views. */
+		try {
+			this.initViews(viewObjs, this.model, this.controller);
+		} catch (Exception e) {
+			System.err.println("Invalid selection of views: " + errMessage(e));
+			System.exit(Errors.ARGS.getValue());			
+		}
+		
+	}
+	
+	/**
+	 * Parse the command line options and create the MVC model and controller,
+	 * terminating the program if options are invalid. Views specified in the
+	 * command line are ignored.
+	 * 
+	 * @param args Command line arguments.
+	 */
+	void setup(String[] args) {
+		
 		/* Setup command line options parser. */
 		JCommander parser = new JCommander(this);
 		parser.setProgramName("java -cp bin" + java.io.File.pathSeparator 
@@ -210,13 +386,57 @@ public class PredPrey {
 			System.exit(Errors.NONE.getValue());
 		}
 		
+		/* Streamed statistics are always written as text. */
+		if (this.streamStats && this.binaryStats) {
+			System.err.println("Streamed statistics cannot be exported in "
+					+ "binary format.");
+			parser.usage();
+			System.exit(Errors.ARGS.getValue());
+		}
+		
+		/* Spatial frames require a positive interval and scale. */
+		if (this.frameInterval < 1 || this.frameScale < 1) {
+			System.err.println("Spatial frame interval and scale must be "
+					+ "positive.");
+			parser.usage();
+			System.exit(Errors.ARGS.getValue());
+		}
+		
+		/* At least one checkpoint must be retained. */
+		if (this.checkpointKeep < 1) {
+			System.err.println("At least one checkpoint must be retained.");
+			parser.usage();
+			System.exit(Errors.ARGS.getValue());
+		}
+		
+		/* Random number buffers can't have a negative size. */
+		if (this.rngBufferSize < 0) {
+			System.err.println("Random number buffer size can't be negative.");
+			parser.usage();
+			System.exit(Errors.ARGS.getValue());
+		}
+		
+		/* Checks require a preset and statistics of all iterations. */
+		if (this.check && (this.preset == null || this.streamStats)) {
+			System.err.println("Checks require a preset and cannot be "
+					+ "performed with streamed statistics.");
+			parser.usage();
+			System.exit(Errors.ARGS.getValue());
+		}
+		
 		/* Get the work factory which corresponds to the command specified
 		 * in the command line. */
 		this.workFactory = this.parStart.getWorkFactory(this);
 		
-		/* Read parameters file. */
+		/* Read parameters file or preset, and reference statistics if 
+		 * required. */
 		try {
-			this.params = new ModelParams(this.paramsFile);
+			this.params = this.preset != null 
+					? ModelParams.fromPreset(this.preset)
+					: new ModelParams(this.paramsFile);
+			if (this.check) {
+				this.reference = new ReferenceStats(this.preset);
+			}
 		} catch (IOException ioe) {
 			System.err.println(errMessage(ioe));
 			System.exit(Errors.PARAMS.getValue());
@@ -226,32 +446,110 @@ public class PredPrey {
 		if (this.seed == null)
 			this.seed = BigInteger.valueOf(System.nanoTime());
 		
-		/* Create the MVC model. */
-		IModel model = new Model(this.params, this.workFactory, 
-				!this.noShuffle, this.rngType, this.seed);
-		
-		/* Obtain the MVC controller. */
-		IController controller = this.workFactory.createSimController(model);
-		
-		/* Create the MVC views. */
-		List<IView> viewObjs = null;
-		try {
-			viewObjs = this.createViews();
-		} catch (Exception e) {
-			System.err.println("Unable to create instance of view: " 
-					+ errMessage(e));
-			System.exit(Errors.ARGS.getValue());			
+		/* Open checkpoint from which to resume the simulation, if any. */
+		Checkpoint resume = null;
+		if (this.resumeFile != null) {
+			try {
+				resume = new Checkpoint(this.resumeFile);
+			} catch (IOException ioe) {
+				System.err.println(errMessage(ioe));
+				System.exit(Errors.ARGS.getValue());
+			}
+			if (resume.getGridX() != this.params.getGridX() 
+					|| resume.getGridY() != this.params.getGridY()
+					|| resume.getNumWorkers() != this.workFactory.getNumWorkers()
+					|| resume.getIteration() > this.params.getIters()) {
+				System.err.println("Checkpoint '" + this.resumeFile + "' ("
+						+ resume.getGridX() + "x" + resume.getGridY() + " grid, "
+						+ resume.getNumWorkers() + " workers, iteration " 
+						+ resume.getIteration() + ") does not match the "
+						+ "simulation parameters and number of threads.");
+				System.exit(Errors.ARGS.getValue());
+			}
+			if (!resume.hasStats() && !this.streamStats) {
+				System.err.println("Checkpoint '" + this.resumeFile + "' was "
+						+ "saved with streamed statistics, which must also be "
+						+ "streamed when resuming.");
+				System.exit(Errors.ARGS.getValue());
+			}
 		}
 		
-		/* Initialize the MVC views. */
-		try {
-			this.initViews(viewObjs, model, controller);
-		} catch (Exception e) {
-			System.err.println("Invalid selection of views: " + errMessage(e));
-			System.exit(Errors.ARGS.getValue());			
+		/* Create the global statistics object. Streamed statistics of the 
+		 * iterations before the checkpoint being resumed, if any, are kept 
+		 * in the file if the checkpoint doesn't have them. */
+		StreamingGlobalStats streamedStats = null;
+		IGlobalStats globalStats;
+		if (this.streamStats) {
+			try {
+				streamedStats = new StreamingGlobalStats(this.statsFile, 
+						this.params.getGridX() * this.params.getGridY(), 
+						this.workFactory.getNumWorkers(), STATS_BUFFER_SIZE,
+						resume != null && !resume.hasStats() 
+							? resume.getIteration() : 0);
+			} catch (IOException ioe) {
+				System.err.println(errMessage(ioe));
+				System.exit(Errors.ARGS.getValue());
+			}
+			globalStats = streamedStats;
+		} else {
+			globalStats = 
+					this.workFactory.createGlobalStats(this.params.getIters());
 		}
+		if (this.binaryStats) {
+			globalStats = 
+					new BinaryExportGlobalStats(globalStats, this.params.getIters());
+		}
+		
+		/* Setup checkpoints, if required. */
+		Checkpointer checkpointer = 
+				this.checkpointIters.isEmpty() && this.checkpointInterval == 0 
+				? null
+				: new Checkpointer(this.checkpointFile, this.checkpointIters, 
+						this.checkpointInterval, this.checkpointKeep,
+						this.params.getGridX() * this.params.getGridY(),
+						this.workFactory.getNumWorkers(), streamedStats);
+		
+		/* Setup spatial frames, if required. */
+		FrameWriter frameWriter = this.framesFile == null ? null
+				: new FrameWriter(this.framesFile, this.frameInterval, 
+						this.frameScale, this.params.getGridX(), 
+						this.params.getGridY(), 
+						this.workFactory.getNumWorkers());
+		
+		/* Create the MVC model. */
+		this.model = new Model(this.params, this.workFactory, globalStats,
+				!this.noShuffle, this.eventGrass, this.csr, this.rngType, 
+				this.seed, this.legacySeeds, this.rngBufferSize, resume, 
+				checkpointer, frameWriter, 
+				this.timing 
+					? new PhaseTimings(this.workFactory.getNumWorkers()) 
+					: null,
+				this.barrierSkewFile != null 
+					? new BarrierSkews(this.barrierSkewFile) : null,
+				this.jfrEvents);
+		
+		/* Obtain the MVC controller. */
+		this.controller = this.workFactory.createSimController(this.model);
 		
 	}
+	
+	/**
+	 * Returns the MVC model created by {@link #setup(String[])}.
+	 * 
+	 * @return The MVC model.
+	 */
+	IModel getModel() {
+		return this.model;
+	}
+	
+	/**
+	 * Returns the MVC controller created by {@link #setup(String[])}.
+	 * 
+	 * @return The MVC controller.
+	 */
+	IController getController() {
+		return this.controller;
+	}
 
 	/**
 	 * Show error message or stack trace, depending on debug parameter.
@@ -370,6 +668,35 @@ public class PredPrey {
 		return this.statsFile;
 	}
 
+	/**
+	 * Returns the reference statistics to check the simulation output 
+	 * against.
+	 * 
+	 * @return The reference statistics, or null if no check was requested.
+	 */
+	public ReferenceStats getReference() {
+		return this.reference;
+	}
+
+	/**
+	 * Returns the maximum deviation of each statistic from the reference
+	 * statistics.
+	 * 
+	 * @return The maximum deviation of each statistic from the reference.
+	 */
+	public double getCheckTolerance() {
+		return this.checkTolerance;
+	}
+
+	/**
+	 * Returns the port where the Prometheus view serves metrics.
+	 * 
+	 * @return The port where the Prometheus view serves metrics.
+	 */
+	public int getMetricsPort() {
+		return this.metricsPort;
+	}
+
 	/**
 	 * Returns the number of threads specified in the command line.
 	 * 
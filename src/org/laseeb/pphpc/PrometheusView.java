@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Formatter;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A view which serves simulation metrics over HTTP in the Prometheus text 
+ * exposition format, at <code>/metrics</code> on the port given by the
+ * <code>--metrics-port</code> option.
+ * 
+ * Simulation workers never wait for this view: an observer of the end of 
+ * iteration synchronization point publishes an immutable snapshot of the 
+ * simulation state, which is read by the HTTP server thread. Rates are 
+ * measured between consecutive scrapes.
+ * 
+ * @author Nuno Fachada
+ */
+public class PrometheusView extends AbstractModelEventObserver 
+		implements IView, IControlEventObserver, HttpHandler {
+	
+	/* Content type of the Prometheus text format. */
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	/**
+	 * An immutable snapshot of the simulation state at the end of an
+	 * iteration.
+	 */
+	private static final class Snapshot {
+		
+		/* Iteration, time at which it finished and its statistics. */
+		final int iter;
+		final long time;
+		final int sheep;
+		final int wolves;
+		final int grassAlive;
+		
+		/* Agent updates since the start of the simulation. */
+		final long agentUpdates;
+		
+		Snapshot(int iter, long time, IterationStats stats, long agentUpdates) {
+			this.iter = iter;
+			this.time = time;
+			this.sheep = stats.getSheepCount();
+			this.wolves = stats.getWolvesCount();
+			this.grassAlive = stats.getGrassAlive();
+			this.agentUpdates = agentUpdates;
+		}
+	}
+	
+	/* The model object. */
+	private IModelQuerier model;
+	
+	/* Snapshot of the latest iteration, null if simulation not started. */
+	private volatile Snapshot latest;
+	
+	/* Latest snapshot in the previous scrape, only accessed by the HTTP
+	 * server thread. */
+	private Snapshot previous;
+	
+	/**
+	 * Create a Prometheus view object.
+	 */
+	public PrometheusView() {}
+
+	/**
+	 * @see IView#init(IModelQuerier, IController, PredPrey)
+	 */
+	@Override
+	public void init(IModelQuerier model, IController controller, PredPrey pp) {
+		
+		this.model = model;
+
+		/* Publish snapshots when the first and every other iteration end. */
+		controller.registerControlEventObserver(ControlEvent.AFTER_FIRST_STATS, this);
+		controller.registerControlEventObserver(ControlEvent.AFTER_END_ITERATION, this);
+		
+		/* Start the HTTP server in a daemon thread. */
+		try {
+			HttpServer server = HttpServer.create(
+					new InetSocketAddress(pp.getMetricsPort()), 0);
+			server.createContext("/metrics", this);
+			server.setExecutor(Executors.newSingleThreadExecutor(
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "MetricsServer");
+							t.setDaemon(true);
+							return t;
+						}
+					}));
+			server.start();
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to start metrics server on port " 
+					+ pp.getMetricsPort() + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @see IView#getType()
+	 */
+	@Override
+	public ViewType getType() {
+		return ViewType.PASSIVE;
+	}
+
+	/**
+	 * Publish a snapshot of the iteration which just finished. Invoked by a 
+	 * single thread at the synchronization point.
+	 * 
+	 * @see IControlEventObserver#update(ControlEvent, IController)
+	 */
+	@Override
+	public void update(ControlEvent event, IController controller) {
+		
+		int iter = this.model.getCurrentIteration() - 1;
+		IterationStats stats = this.model.getStats(iter);
+		Snapshot last = this.latest;
+		
+		/* Count the agents which acted in this iteration, restarting the count
+		 * when a simulation starts. */
+		long agentUpdates = event == ControlEvent.AFTER_END_ITERATION && last != null
+				? last.agentUpdates + last.sheep + last.wolves : 0;
+		
+		this.latest = new Snapshot(iter, System.nanoTime(), stats, agentUpdates);
+	}
+
+	/**
+	 * Serve the metrics.
+	 * 
+	 * @see HttpHandler#handle(HttpExchange)
+	 */
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		
+		byte[] body = this.metrics().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+		exchange.sendResponseHeaders(200, body.length);
+		OutputStream out = exchange.getResponseBody();
+		try {
+			out.write(body);
+		} finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * Produce the metrics in the Prometheus text format.
+	 * 
+	 * @return The metrics.
+	 */
+	private String metrics() {
+		
+		Formatter f = new Formatter(new StringBuilder(), Locale.US);
+		Snapshot snap = this.latest;
+		
+		if (snap != null) {
+			
+			/* Rates since the previous scrape, zero if no iterations were
+			 * performed in the meantime. */
+			double itersPerSec = 0, agentUpdatesPerSec = 0;
+			if (this.previous != null && snap.iter > this.previous.iter) {
+				double secs = (snap.time - this.previous.time) / 1e9;
+				itersPerSec = (snap.iter - this.previous.iter) / secs;
+				agentUpdatesPerSec = 
+						(snap.agentUpdates - this.previous.agentUpdates) / secs;
+			}
+			this.previous = snap;
+			
+			header(f, "pphpc_iteration", "gauge", "Latest finished iteration.");
+			f.format("pphpc_iteration %d%n", snap.iter);
+			header(f, "pphpc_iterations_per_second", "gauge", 
+					"Iterations per second since the previous scrape.");
+			f.format("pphpc_iterations_per_second %f%n", itersPerSec);
+			header(f, "pphpc_agent_updates_total", "counter", 
+					"Agent updates since the start of the simulation.");
+			f.format("pphpc_agent_updates_total %d%n", snap.agentUpdates);
+			header(f, "pphpc_agent_updates_per_second", "gauge", 
+					"Agent updates per second since the previous scrape.");
+			f.format("pphpc_agent_updates_per_second %f%n", agentUpdatesPerSec);
+			header(f, "pphpc_population", "gauge", 
+					"Number of agents in the latest finished iteration.");
+			f.format("pphpc_population{species=\"sheep\"} %d%n", snap.sheep);
+			f.format("pphpc_population{species=\"wolves\"} %d%n", snap.wolves);
+			header(f, "pphpc_grass_alive", "gauge", 
+					"Number of cells with live grass in the latest finished iteration.");
+			f.format("pphpc_grass_alive %d%n", snap.grassAlive);
+		}
+		
+		/* Phase timings, approximate while the simulation is running. */
+		PhaseTimings phaseTimings = this.model.getPhaseTimings();
+		if (phaseTimings != null) {
+			header(f, "pphpc_phase_seconds_total", "counter", 
+					"Time spent by each worker in each simulation phase.");
+			for (TimedPhase phase : TimedPhase.values()) {
+				for (int i = 0; i < phaseTimings.getNumWorkers(); i++) {
+					f.format("pphpc_phase_seconds_total{phase=\"%s\",worker=\"%d\"} %f%n",
+							phase.getShortName(), i, phaseTimings.getNanos(i, phase) / 1e9);
+				}
+			}
+		}
+		
+		/* Garbage collection. */
+		header(f, "pphpc_gc_collections_total", "counter", 
+				"Number of garbage collections.");
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			f.format("pphpc_gc_collections_total{gc=\"%s\"} %d%n", 
+					escape(gc.getName()), Math.max(0, gc.getCollectionCount()));
+		}
+		header(f, "pphpc_gc_seconds_total", "counter", 
+				"Accumulated garbage collection time.");
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			f.format("pphpc_gc_seconds_total{gc=\"%s\"} %f%n", 
+					escape(gc.getName()), Math.max(0, gc.getCollectionTime()) / 1e3);
+		}
+		
+		return f.toString();
+	}
+	
+	/**
+	 * Write the help and type lines of a metric.
+	 * 
+	 * @param f Formatter where to write the lines.
+	 * @param name Metric name.
+	 * @param type Metric type.
+	 * @param help Metric description.
+	 */
+	private static void header(Formatter f, String name, String type, String help) {
+		f.format("# HELP %s %s%n# TYPE %s %s%n", name, help, name, type);
+	}
+	
+	/**
+	 * Escape a label value.
+	 * 
+	 * @param value Label value.
+	 * @return Escaped label value.
+	 */
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.math.BigInteger;
+import java.util.random.RandomGenerator;
+
+import org.uncommons.maths.random.SeedGenerator;
+
+/**
+ * Random number generator streams of the workers of a model. 
+ * 
+ * For RNG types whose generators are created with different seeds, the 
+ * generator of each worker is created when requested, i.e. by the worker 
+ * itself, concurrently with the other workers. For derived RNG types, the
+ * generator of the first worker is created from the seed and the generators
+ * of the remaining workers are derived from it, in worker order, when the 
+ * streams are reset. Workers then obtain their generators without any 
+ * synchronization, and the generator of each worker only depends on the seed
+ * and on the worker ID, independently of the order in which workers ask for
+ * their generators and of previous simulations in the same JVM.
+ * 
+ * Streams must be reset before each simulation, before workers are started.
+ * 
+ * @author Nuno Fachada
+ * @see RNGType#isDerived()
+ */
+public class RNGStreams {
+	
+	/* Type of random number generators. */
+	private final RNGType rngType;
+	
+	/* Random number generator seed. */
+	private final BigInteger seed;
+	
+	/* Use the legacy derivation of per-worker seeds? */
+	private final boolean legacySeeds;
+	
+	/* Number of workers. */
+	private final int numWorkers;
+	
+	/* Generators of derived RNG types, one per worker. */
+	private RandomGenerator[] derived;
+	
+	/* Exception thrown while deriving generators, if any. */
+	private Exception derivationException;
+	
+	/**
+	 * Create a new set of random number generator streams.
+	 * 
+	 * @param rngType Type of random number generators.
+	 * @param seed Random number generator seed.
+	 * @param legacySeeds Derive the seeds of worker generators as in earlier
+	 * versions?
+	 * @param numWorkers Number of workers.
+	 */
+	public RNGStreams(RNGType rngType, BigInteger seed, boolean legacySeeds,
+			int numWorkers) {
+		this.rngType = rngType;
+		this.seed = seed;
+		this.legacySeeds = legacySeeds;
+		this.numWorkers = numWorkers;
+	}
+	
+	/**
+	 * Reset streams, so that workers get generators in their initial state. 
+	 * For derived RNG types, the generators of all workers are created here.
+	 */
+	public void reset() {
+		
+		this.derived = null;
+		this.derivationException = null;
+		
+		if (this.rngType.isDerived()) {
+			RandomGenerator[] rngs = new RandomGenerator[this.numWorkers];
+			try {
+				rngs[0] = this.rngType.createRNG(this.createSeedGenerator(0));
+				for (int i = 1; i < this.numWorkers; i++) {
+					rngs[i] = this.rngType.deriveRNG(rngs[0]);
+				}
+				this.derived = rngs;
+			} catch (Exception e) {
+				/* Rethrown to workers when they ask for their generators. */
+				this.derivationException = e;
+			}
+		}
+	}
+	
+	/**
+	 * Get the random number generator of the given worker. Different workers
+	 * may call this method concurrently, but each worker should call it 
+	 * only once per simulation.
+	 * 
+	 * @param wId Worker ID.
+	 * @return The random number generator of the given worker.
+	 * @throws Exception If some problem occurs while creating the RNG.
+	 */
+	public RandomGenerator get(int wId) throws Exception {
+		
+		if (!this.rngType.isDerived()) {
+			return this.rngType.createRNG(this.createSeedGenerator(wId));
+		}
+		if (this.derivationException != null) {
+			throw this.derivationException;
+		}
+		if (this.derived == null) {
+			throw new IllegalStateException(
+					"Random number generator streams were not reset.");
+		}
+		return this.derived[wId];
+	}
+	
+	/* Create the seed generator for the given worker. */
+	private SeedGenerator createSeedGenerator(int wId) {
+		return new ModelSeedGenerator(wId, this.seed, this.legacySeeds);
+	}
+
+}
@@ -26,11 +26,8 @@
 
 package org.laseeb.pphpc;
 
-import java.util.Random;
-import java.util.SplittableRandom;
+import java.nio.ByteBuffer;
 import java.util.random.RandomGenerator;
-import java.util.random.RandomGenerator.SplittableGenerator;
-import java.util.random.RandomGeneratorFactory;
 
 import org.uncommons.maths.random.AESCounterRNG;
 import org.uncommons.maths.random.CMWC4096RNG;
@@ -59,86 +56,83 @@ public enum RNGType {
 	/** @see org.uncommons.maths.random.AESCounterRNG */
 	AES(false) {
 		@Override
-		public Random createRNG(SeedGenerator seedGen) throws Exception {
+		public RandomGenerator createRNG(SeedGenerator seedGen) throws Exception {
 			return new AESCounterRNG(seedGen);
 		}
 	},
 	/** @see org.uncommons.maths.random.CellularAutomatonRNG */
 	CA(false) {
 		@Override
-		public Random createRNG(SeedGenerator seedGen) throws Exception {
+		public RandomGenerator createRNG(SeedGenerator seedGen) throws Exception {
 			return new CellularAutomatonRNG(seedGen);
 		}
 	},
 	/** @see org.uncommons.maths.random.CMWC4096RNG */
 	CMWC(false) {
 		@Override
-		public Random createRNG(SeedGenerator seedGen) throws Exception {
+		public RandomGenerator createRNG(SeedGenerator seedGen) throws Exception {
 			return new CMWC4096RNG(seedGen);
 		}
 	},
 	/** @see org.uncommons.maths.random.JavaRNG */
 	JAVA(false) {
 		@Override
-		public Random createRNG(SeedGenerator seedGen) throws Exception {
+		public RandomGenerator createRNG(SeedGenerator seedGen) throws Exception {
 			return new JavaRNG(seedGen);
 		}
 	},
-	/** @see SplittableRandom*/
-	JAVASPLIT(false) {
-		JavaRandomWrapper rng;
+	/** @see SplittableRNG */
+	JAVASPLIT(true) {
 		@Override
-		public synchronized Random createRNG(SeedGenerator seedGen) throws Exception {
-			if(!wasSplit()) {
-				splitRNG();
-					rng = new JavaRandomWrapper(
-							RandomGeneratorFactory.of("SplittableRandom").create(seedGen.generateSeed(16)));
-					return rng;
-			} else {				
-				return rng.split();
-			}
+		public RandomGenerator createRNG(SeedGenerator seedGen) throws Exception {
+			return new SplittableRNG(
+					ByteBuffer.wrap(seedGen.generateSeed(8)).getLong());
+		}
+		@Override
+		public RandomGenerator deriveRNG(RandomGenerator rng) {
+			return ((SplittableRNG) rng).split();
 		}
 	},
 	/** @see org.uncommons.maths.random.MersenneTwisterRNG */
 	MT(false) {
 		@Override
-		public Random createRNG(SeedGenerator seedGen) throws Exception {
+		public RandomGenerator createRNG(SeedGenerator seedGen) throws Exception {
 			return new MersenneTwisterRNG(seedGen);
 		}
 	},
 	/** @see RanduRNG */
 	RANDU(false) {
 		@Override
-		public Random createRNG(SeedGenerator seedGen) throws Exception {
+		public RandomGenerator createRNG(SeedGenerator seedGen) throws Exception {
 			return new RanduRNG(seedGen);
 		}
 	},
 	/** @see ModMidSquareRNG */
 	MODMIDSQUARE(false) {
 		@Override
-		public Random createRNG(SeedGenerator seedGen) throws Exception {
+		public RandomGenerator createRNG(SeedGenerator seedGen) throws Exception {
 			return new ModMidSquareRNG(seedGen);
 		}
 	},
 	/** @see org.uncommons.maths.random.XORShiftRNG */
 	XORSHIFT(false) {
 		@Override
-		public Random createRNG(SeedGenerator seedGen) throws Exception {
+		public RandomGenerator createRNG(SeedGenerator seedGen) throws Exception {
 			return new XORShiftRNG(seedGen);
 		}
 	},
 	/** @see io.github.pr0methean.betterrandom.prng.Pcg128Random */
 	PCG128(false) {
 		@Override
-		public Random createRNG(SeedGenerator seedGen) throws Exception {
-			return new Pcg128Random(seedGen.generateSeed(16));
+		public RandomGenerator createRNG(SeedGenerator seedGen) throws Exception {
+			return new PcgRNGWrapper(new Pcg128Random(seedGen.generateSeed(16)));
 		}
 	},
 	/** @see io.github.pr0methean.betterrandom.prng.Pcg64Random */
 	PCG64(false) {
 		@Override
-		public Random createRNG(SeedGenerator seedGen) throws Exception {
-			return new Pcg64Random(seedGen.generateSeed(8));
+		public RandomGenerator createRNG(SeedGenerator seedGen) throws Exception {
+			return new PcgRNGWrapper(new Pcg64Random(seedGen.generateSeed(8)));
 		}
 	},
 
@@ -146,108 +140,125 @@ public enum RNGType {
 	/** @see io.jenetics.prngine.KISS64Random */
 	KISS64(false) {
 		@Override
-		public Random createRNG(SeedGenerator seedGen) throws Exception {
-			return new PrngineRandomWrapper(new KISS64Random(seedGen.generateSeed(32)));
+		public RandomGenerator createRNG(SeedGenerator seedGen) throws Exception {
+			return new KISS64Random(seedGen.generateSeed(32));
 
 		}
 	},
 	/** @see io.jenetics.prngine.LCG64ShiftRandom */
 	LCG64(false) {
 		@Override
-		public Random createRNG(SeedGenerator seedGen) throws Exception {
-			return new PrngineRandomWrapper(new LCG64ShiftRandom());
+		public RandomGenerator createRNG(SeedGenerator seedGen) throws Exception {
+			return new LCG64ShiftRandom(
+					seedGen.generateSeed(LCG64ShiftRandom.SEED_BYTES));
 		}
 	},
 	
 	
 	/** @see org.apache.commons.rng.core.source64.L64X128Mix */
-	L64X128M(false) {
-		ApacheCommonsRNGWrapper rng;
+	L64X128M(true) {
 		@Override
-		public synchronized Random createRNG(SeedGenerator seedGen) throws Exception {
-			if(!wasSplit()) {
-				splitRNG();
-				rng = new ApacheCommonsRNGWrapper(RandomSource.L64_X128_MIX.create(seedGen.generateSeed(16)));
-				return rng;
-			} else {				
-				return rng.split();
-			}
+		public RandomGenerator createRNG(SeedGenerator seedGen) throws Exception {
+			return new ApacheCommonsRNGWrapper(RandomSource.L64_X128_MIX,
+					seedGen.generateSeed(16));
+		}
+		@Override
+		public RandomGenerator deriveRNG(RandomGenerator rng) {
+			return ((ApacheCommonsRNGWrapper) rng).split();
 		}
 	},
 	/** @see org.apache.commons.rng.core.source64.L128X256Mix */
-	L128X256M(false) {
-		ApacheCommonsRNGWrapper rng;
+	L128X256M(true) {
+		@Override
+		public RandomGenerator createRNG(SeedGenerator seedGen) throws Exception {
+			return new ApacheCommonsRNGWrapper(RandomSource.L128_X256_MIX,
+					seedGen.generateSeed(16));
+		}
 		@Override
-		public synchronized Random createRNG(SeedGenerator seedGen) throws Exception {
-			if(!wasSplit()) {
-				splitRNG();
-				rng = new ApacheCommonsRNGWrapper(RandomSource.L128_X256_MIX.create(seedGen.generateSeed(16)));
-				return rng;
-			} else {	
-				return rng.split();
-			}
+		public RandomGenerator deriveRNG(RandomGenerator rng) {
+			return ((ApacheCommonsRNGWrapper) rng).split();
 		}
 	},
 	/** @see org.apache.commons.rng.core.source64.XoShiRo256PlusPlus */
-	XOSHIRO(false) {
-		ApacheCommonsRNGWrapper rng;
+	XOSHIRO(true) {
+		@Override
+		public RandomGenerator createRNG(SeedGenerator seedGen) throws Exception {
+			return new ApacheCommonsRNGWrapper(RandomSource.XO_SHI_RO_256_PP,
+					seedGen.generateSeed(16));
+		}
 		@Override
-		public synchronized Random createRNG(SeedGenerator seedGen) throws Exception {
-			if(!wasSplit()) {
-				splitRNG();
-				rng = new ApacheCommonsRNGWrapper(RandomSource.XO_SHI_RO_256_PP.create(seedGen.generateSeed(16)));
-				return rng;
-			} else {				
-				return rng.jump();
-			}
+		public RandomGenerator deriveRNG(RandomGenerator rng) {
+			return ((ApacheCommonsRNGWrapper) rng).jump();
 		}
 	},
 	/** @see org.apache.commons.rng.core.source64.XoRoShiRo128PlusPlus */
-	XOROSHIRO(false) {
-		ApacheCommonsRNGWrapper rng;
-
+	XOROSHIRO(true) {
 		@Override
-		public synchronized Random createRNG(SeedGenerator seedGen) throws Exception {
-			if(!wasSplit()) {
-				splitRNG();
-				rng = new ApacheCommonsRNGWrapper(RandomSource.XO_RO_SHI_RO_128_PP.create(seedGen.generateSeed(16)));
-				return rng;
-			} else {				
-				return rng.jump();
-			}
+		public RandomGenerator createRNG(SeedGenerator seedGen) throws Exception {
+			return new ApacheCommonsRNGWrapper(RandomSource.XO_RO_SHI_RO_128_PP,
+					seedGen.generateSeed(16));
+		}
+		@Override
+		public RandomGenerator deriveRNG(RandomGenerator rng) {
+			return ((ApacheCommonsRNGWrapper) rng).jump();
 		}
 	}, 
 	/** @see org.apache.commons.rng.core.source64.SplitMix64 */
 	SPLIT(false) {
 		@Override
-		public Random createRNG(SeedGenerator seedGen) throws Exception {
-				return  new ApacheCommonsRNGWrapper(RandomSource.SPLIT_MIX_64.create(seedGen.generateSeed(16)));
+		public RandomGenerator createRNG(SeedGenerator seedGen) throws Exception {
+				return  new ApacheCommonsRNGWrapper(RandomSource.SPLIT_MIX_64, seedGen.generateSeed(16));
 		}
 	};
 
 
 	
-	private boolean split;
-	
-	private RNGType(boolean split) {
-        this.split = split;
-    }
+	/* Are the generators of all workers but the first derived from the 
+	 * generator of the first worker? */
+	private final boolean derived;
 	
-	public boolean wasSplit() {
-        return split;
-    }
+	private RNGType(boolean derived) {
+		this.derived = derived;
+	}
 	
-	public void splitRNG () {
-        this.split = true;
-    }
+	/**
+	 * Are the generators of different workers derived from a single
+	 * generator (by splitting it or jumping ahead in its sequence), instead
+	 * of being created with different seeds?
+	 * 
+	 * @return True if generators of different workers are derived from a
+	 * single generator, false otherwise.
+	 * @see #deriveRNG(RandomGenerator)
+	 */
+	public boolean isDerived() {
+		return this.derived;
+	}
 	
 	/**
 	 * Create the random number generator associated with this RNG type.
+	 * Generators are meant to be owned by a single thread (e.g. a simulation
+	 * worker), and thus the generators implemented in this project do not 
+	 * lock their state.
 	 * 
 	 * @param seedGen Seed generator.
 	 * @return A random number generator associated with this RNG type.
 	 * @throws Exception If some problem occurs while creating the RNG.
 	 */
-	public abstract Random createRNG(SeedGenerator seedGen) throws Exception;
+	public abstract RandomGenerator createRNG(SeedGenerator seedGen) throws Exception;
+	
+	/**
+	 * Derive a new random number generator, statistically independent of
+	 * the given one, by splitting the given generator or by jumping ahead 
+	 * in its sequence. The state of the given generator is modified. Only 
+	 * supported by derived RNG types.
+	 * 
+	 * @param rng A random number generator created by this RNG type.
+	 * @return A new random number generator.
+	 * @see #isDerived()
+	 */
+	public RandomGenerator deriveRNG(RandomGenerator rng) {
+		throw new UnsupportedOperationException(
+				this + " generators can't be derived from each other.");
+	}
 
 }
@@ -27,7 +27,6 @@
 package org.laseeb.pphpc;
 
 import java.util.Random;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.uncommons.maths.binary.BinaryUtils;
 import org.uncommons.maths.random.DefaultSeedGenerator;
@@ -38,6 +37,10 @@ import org.uncommons.maths.random.SeedGenerator;
 /**
  * Implementation of the RANDU random number generator. It is a poor quality
  * generator used to test if it the PPHPC simulation works with poor generators.
+ * 
+ * The RNG state is not locked, so that the runtime of simulations with this
+ * generator is not distorted by locking. Instances must only be used by one
+ * thread at a time, as is the case of the generators of simulation workers.
  *
  * @author Nuno Fachada
  */
@@ -58,9 +61,6 @@ public class RanduRNG extends Random implements RepeatableRNG {
 	/* The RNG state. */
 	private int state;
 
-	/* Lock to prevent concurrent modification of the RNG's internal state. */
-	private final ReentrantLock lock = new ReentrantLock();
-
 	/**
 	 * Creates a new RANDU RNG and seeds it using the default seeding strategy.
 	 */
@@ -109,12 +109,7 @@ public class RanduRNG extends Random implements RepeatableRNG {
 	 */
 	@Override
 	protected int next(int bits) {
-		try {
-			lock.lock();
-			this.state = this.a * this.state;
-			return this.state >>> (32 - bits);
-		} finally {
-			lock.unlock();
-		}
+		this.state = this.a * this.state;
+		return this.state >>> (32 - bits);
 	}
 }
\ No newline at end of file
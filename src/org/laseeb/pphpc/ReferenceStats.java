@@ -0,0 +1,522 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.laseeb.pphpc.PredPrey.Errors;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.beust.jcommander.validators.PositiveInteger;
+
+/**
+ * Reference statistics of a simulation configuration, i.e. the mean and 
+ * standard deviation of each exported statistic (see 
+ * {@link IterationStats#toTsv(int)}) over a number of independent runs, 
+ * sampled every few iterations. References for some of the standard PPHPC
+ * configurations are bundled with the simulator (see {@link ModelParams#PRESETS}).
+ * 
+ * The output of a simulation is checked against a reference by computing, for
+ * each statistic, the root mean square of its deviation from the reference 
+ * mean in the sampled iterations, in units of the reference standard 
+ * deviation. The output of a correct simulation has deviations around 1.
+ * 
+ * A reference is stored in a text file with comment lines (starting with
+ * <tt>#</tt>) with the number of runs (<tt>runs=</tt>) and the sampling 
+ * interval (<tt>step=</tt>), followed by a line per sampled iteration with 
+ * tab-separated values: the iteration, and the mean and standard deviation of
+ * each statistic.
+ * 
+ * Usage, to create a reference from the statistics files of independent runs,
+ * or to check statistics files against a bundled reference:
+ * 
+ * <pre>
+ * java -cp bin:lib/* org.laseeb.pphpc.ReferenceStats -o ref.txt stats1.txt stats2.txt ...
+ * java -cp bin:lib/* org.laseeb.pphpc.ReferenceStats --preset 400v1 stats.txt
+ * </pre>
+ * 
+ * @author Nuno Fachada
+ */
+public class ReferenceStats {
+	
+	/* Number of exported statistics. */
+	static final int NUM_STATS = StatType.values().length;
+	
+	/* Smallest standard deviation, relative to the mean, used when computing
+	 * deviations, so that statistics which are constant in the reference 
+	 * (e.g. initial populations) can be checked. */
+	private static final double MIN_REL_SD = 1e-3;
+	
+	/* Number of runs from which the reference was obtained. */
+	private int runs;
+	
+	/* Sampling interval, in iterations. */
+	private int step;
+	
+	/* Mean and standard deviation of each statistic in each sampled 
+	 * iteration. */
+	private double[][] mean;
+	private double[][] sd;
+	
+	/* Statistics files to check or to create a reference from. */
+	@Parameter(description = "Statistics files")
+	private List<String> statsFiles = new ArrayList<String>();
+	
+	/* Reference file to create. */
+	@Parameter(names = "-o", description = "Create a reference file from the"
+			+ " given statistics files")
+	private String outFile = null;
+	
+	/* Sampling interval of the reference to create. */
+	@Parameter(names = "--step", description = "Sampling interval of the"
+			+ " reference to create, in iterations", 
+			validateWith = PositiveInteger.class)
+	private int outStep = 10;
+	
+	/* Bundled reference to check statistics against. */
+	@Parameter(names = "--preset", description = "Check statistics files"
+			+ " against the reference of the given preset")
+	private String preset = null;
+	
+	/* Reference file to check statistics against. */
+	@Parameter(names = "--reference", description = "Check statistics files"
+			+ " against the given reference file")
+	private String refFile = null;
+	
+	/* Maximum deviation for a check to pass. */
+	@Parameter(names = "--tolerance", description = "Maximum deviation of"
+			+ " each statistic for a check to pass")
+	private double tolerance = 3.0;
+	
+	/* Help option. */
+	@Parameter(names = {"--help", "-h", "-?"}, description = "Show options", 
+			help = true)
+	private boolean help;
+	
+	/**
+	 * Constructor used by the command-line program.
+	 */
+	private ReferenceStats() {}
+	
+	/**
+	 * Load the reference statistics bundled for a preset.
+	 * 
+	 * @param preset Preset name (see {@link ModelParams#PRESETS}).
+	 * @throws IOException If there is no reference for the preset or it can't
+	 * be read.
+	 */
+	public ReferenceStats(String preset) throws IOException {
+		InputStream in = resource(preset);
+		if (in == null) {
+			throw new IOException("No reference statistics for preset '" 
+					+ preset + "'");
+		}
+		this.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Load reference statistics from a file.
+	 * 
+	 * @param refFile Reference statistics file.
+	 * @throws IOException If the file can't be read.
+	 */
+	public ReferenceStats(File refFile) throws IOException {
+		this.load(new FileReader(refFile));
+	}
+	
+	/**
+	 * Are there reference statistics bundled for a preset?
+	 * 
+	 * @param preset Preset name.
+	 * @return True if there are reference statistics for the preset, false 
+	 * otherwise.
+	 */
+	public static boolean exists(String preset) {
+		return ReferenceStats.class.getResource(resourceName(preset)) != null;
+	}
+	
+	/**
+	 * Get the number of runs from which the reference was obtained.
+	 * 
+	 * @return Number of runs.
+	 */
+	public int getRuns() {
+		return this.runs;
+	}
+	
+	/**
+	 * Get the resource name of the reference statistics of a preset.
+	 * 
+	 * @param preset Preset name.
+	 * @return Resource name.
+	 */
+	private static String resourceName(String preset) {
+		return "refs/stats" + preset + ".txt";
+	}
+	
+	/**
+	 * Open the reference statistics bundled for a preset.
+	 * 
+	 * @param preset Preset name.
+	 * @return Stream of reference statistics, or null if there are none.
+	 */
+	private static InputStream resource(String preset) {
+		return ReferenceStats.class.getResourceAsStream(resourceName(preset));
+	}
+
+	/**
+	 * Load reference statistics.
+	 * 
+	 * @param reader Reader of reference statistics, closed after loading.
+	 * @throws IOException If the reference statistics can't be read or are
+	 * invalid.
+	 */
+	private void load(Reader reader) throws IOException {
+		
+		List<double[]> rows = new ArrayList<double[]>();
+		BufferedReader in = new BufferedReader(reader);
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				line = line.trim();
+				if (line.startsWith("#")) {
+					if (line.startsWith("# runs=")) {
+						this.runs = Integer.parseInt(line.substring(7).trim());
+					} else if (line.startsWith("# step=")) {
+						this.step = Integer.parseInt(line.substring(7).trim());
+					}
+				} else if (!line.isEmpty()) {
+					rows.add(parse(line, 1 + 2 * NUM_STATS));
+				}
+			}
+		} finally {
+			in.close();
+		}
+		
+		if (this.step < 1 || rows.isEmpty()) {
+			throw new IOException("Invalid reference statistics");
+		}
+		
+		this.mean = new double[rows.size()][NUM_STATS];
+		this.sd = new double[rows.size()][NUM_STATS];
+		for (int i = 0; i < rows.size(); i++) {
+			double[] row = rows.get(i);
+			if ((int) row[0] != i * this.step) {
+				throw new IOException("Invalid reference statistics: expected"
+						+ " iteration " + i * this.step + ", found " + (int) row[0]);
+			}
+			for (int s = 0; s < NUM_STATS; s++) {
+				this.mean[i][s] = row[1 + 2 * s];
+				this.sd[i][s] = row[2 + 2 * s];
+			}
+		}
+	}
+	
+	/**
+	 * Parse a line of tab-separated values.
+	 * 
+	 * @param line Line to parse.
+	 * @param numValues Expected number of values.
+	 * @return Parsed values.
+	 * @throws IOException If the line doesn't have the expected number of 
+	 * values or they are not numbers.
+	 */
+	private static double[] parse(String line, int numValues) throws IOException {
+		
+		String[] fields = line.trim().split("\\s+");
+		if (fields.length != numValues) {
+			throw new IOException("Expected " + numValues + " values, found " 
+					+ fields.length + ": " + line);
+		}
+		double[] values = new double[numValues];
+		try {
+			for (int i = 0; i < numValues; i++) {
+				values[i] = Double.parseDouble(fields[i]);
+			}
+		} catch (NumberFormatException nfe) {
+			throw new IOException("Invalid value: " + line, nfe);
+		}
+		return values;
+	}
+	
+	/**
+	 * Read a statistics file in the text format.
+	 * 
+	 * @param statsFile Statistics file.
+	 * @return Exported statistics of each iteration.
+	 * @throws IOException If the file can't be read or is invalid.
+	 */
+	public static double[][] read(String statsFile) throws IOException {
+		
+		List<double[]> rows = new ArrayList<double[]>();
+		BufferedReader in = new BufferedReader(new FileReader(statsFile));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (!line.trim().isEmpty()) rows.add(parse(line, NUM_STATS));
+			}
+		} finally {
+			in.close();
+		}
+		return rows.toArray(new double[rows.size()][]);
+	}
+	
+	/**
+	 * Get the exported statistics of each iteration of a simulation, as in
+	 * the text format.
+	 * 
+	 * @param model The MVC model, with the statistics of all iterations.
+	 * @return Exported statistics of each iteration.
+	 */
+	public static double[][] read(IModelQuerier model) {
+		
+		int iters = model.getParams().getIters();
+		double[][] stats = new double[iters + 1][];
+		for (int i = 0; i <= iters; i++) {
+			IterationStats is = model.getStats(i);
+			stats[i] = new double[] { 
+				is.getSheepCount(), 
+				is.getWolvesCount(), 
+				is.getGrassAlive(),
+				is.getSheepCount() > 0 
+					? is.getSheepEnergy() / (double) is.getSheepCount() : 0,
+				is.getWolvesCount() > 0 
+					? is.getWolvesEnergy() / (double) is.getWolvesCount() : 0,
+				is.getGrassCountdown() / (double) model.getSize() };
+		}
+		return stats;
+	}
+	
+	/**
+	 * Get the deviation of each statistic of a simulation from this 
+	 * reference.
+	 * 
+	 * @param stats Exported statistics of each iteration of the simulation.
+	 * @return Root mean square of the deviation of each statistic from the 
+	 * reference mean, in units of the reference standard deviation.
+	 * @throws IllegalArgumentException If the simulation and the reference 
+	 * don't have the same number of iterations.
+	 */
+	public double[] deviations(double[][] stats) {
+		
+		if (stats.length != (this.mean.length - 1) * this.step + 1) {
+			throw new IllegalArgumentException("Simulation has " 
+					+ (stats.length - 1) + " iterations, reference has " 
+					+ (this.mean.length - 1) * this.step);
+		}
+		
+		double[] devs = new double[NUM_STATS];
+		for (int i = 0; i < this.mean.length; i++) {
+			for (int s = 0; s < NUM_STATS; s++) {
+				double sd = Math.max(this.sd[i][s], 
+						Math.max(MIN_REL_SD * Math.abs(this.mean[i][s]), MIN_REL_SD));
+				double z = (stats[i * this.step][s] - this.mean[i][s]) / sd;
+				devs[s] += z * z;
+			}
+		}
+		for (int s = 0; s < NUM_STATS; s++) {
+			devs[s] = Math.sqrt(devs[s] / this.mean.length);
+		}
+		return devs;
+	}
+	
+	/**
+	 * Do the deviations of a simulation from a reference pass a check?
+	 * 
+	 * @param deviations Deviations of the simulation from the reference.
+	 * @param tolerance Maximum deviation of each statistic.
+	 * @return True if no deviation exceeds the tolerance, false otherwise.
+	 */
+	public static boolean passes(double[] deviations, double tolerance) {
+		for (double dev : deviations) {
+			if (!(dev <= tolerance)) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Describe the deviations of a simulation from a reference.
+	 * 
+	 * @param deviations Deviations of the simulation from the reference.
+	 * @param tolerance Maximum deviation of each statistic.
+	 * @return Description of the deviations and check result.
+	 */
+	public static String report(double[] deviations, double tolerance) {
+		
+		StringBuilder sb = new StringBuilder();
+		sb.append(passes(deviations, tolerance) ? "passed" : "FAILED");
+		sb.append(" (deviation of ");
+		for (StatType st : StatType.values()) {
+			if (st.ordinal() > 0) sb.append(", ");
+			sb.append(st.name().toLowerCase()).append(' ').append(
+					String.format(Locale.US, "%.2f", deviations[st.ordinal()]));
+		}
+		sb.append(String.format(Locale.US, "; tolerance %.2f)", tolerance));
+		return sb.toString();
+	}
+	
+	/**
+	 * Create and save reference statistics from independent runs.
+	 * 
+	 * @param runStats Exported statistics of each run, all with the same 
+	 * number of iterations.
+	 * @param step Sampling interval, in iterations.
+	 * @param out Where to save the reference statistics.
+	 */
+	public static void write(List<double[][]> runStats, int step, PrintWriter out) {
+		
+		int n = runStats.size();
+		int iters = runStats.get(0).length - 1;
+		
+		out.println("# PPHPC reference statistics");
+		out.println("# runs=" + n);
+		out.println("# step=" + step);
+		out.print("# iter");
+		for (StatType st : StatType.values()) {
+			String name = st.name().toLowerCase();
+			out.print("\t" + name + "_mean\t" + name + "_sd");
+		}
+		out.println();
+		
+		for (int i = 0; i <= iters; i += step) {
+			out.print(i);
+			for (int s = 0; s < NUM_STATS; s++) {
+				double mean = 0, var = 0;
+				for (double[][] stats : runStats) mean += stats[i][s];
+				mean /= n;
+				for (double[][] stats : runStats) {
+					var += (stats[i][s] - mean) * (stats[i][s] - mean);
+				}
+				var = n > 1 ? var / (n - 1) : 0;
+				out.printf(Locale.US, "\t%.4f\t%.4f", mean, Math.sqrt(var));
+			}
+			out.println();
+		}
+	}
+
+	/**
+	 * Main method.
+	 * 
+	 * @param args Command-line arguments.
+	 */
+	public static void main(String[] args) {
+		new ReferenceStats().doMain(args);
+	}
+
+	/**
+	 * Create a reference or check statistics files, as specified in the 
+	 * command line.
+	 * 
+	 * @param args Command-line arguments.
+	 */
+	private void doMain(String[] args) {
+
+		/* Setup command line options parser. */
+		JCommander parser = new JCommander(this);
+		parser.setProgramName("java -cp bin" + File.pathSeparator + "lib" 
+				+ File.separator + "* " + ReferenceStats.class.getName());
+		
+		/* Parse command line options. */
+		try {
+			parser.parse(args);
+			int modes = (this.outFile != null ? 1 : 0) 
+					+ (this.preset != null ? 1 : 0) 
+					+ (this.refFile != null ? 1 : 0);
+			if (modes != 1) {
+				throw new ParameterException("Specify exactly one of -o,"
+						+ " --preset or --reference");
+			}
+			if (this.statsFiles.isEmpty()) {
+				throw new ParameterException("No statistics files given");
+			}
+		} catch (ParameterException pe) {
+			/* On parsing error, show usage and return. */
+			System.err.println(pe.getMessage());
+			parser.usage();
+			System.exit(Errors.ARGS.getValue());
+		}
+		
+		/* If help option was passed, show help and quit. */
+		if (this.help) {
+			parser.usage();
+			System.exit(Errors.NONE.getValue());
+		}
+		
+		boolean allPassed = true;
+		try {
+			
+			if (this.outFile != null) {
+				
+				/* Create reference. */
+				List<double[][]> runStats = new ArrayList<double[][]>();
+				for (String statsFile : this.statsFiles) {
+					runStats.add(read(statsFile));
+					if (runStats.get(runStats.size() - 1).length 
+							!= runStats.get(0).length) {
+						throw new IOException("Statistics file '" + statsFile 
+								+ "' has a different number of iterations");
+					}
+				}
+				PrintWriter out = new PrintWriter(this.outFile);
+				write(runStats, this.outStep, out);
+				out.close();
+				
+			} else {
+				
+				/* Check statistics files. */
+				ReferenceStats ref = this.preset != null 
+						? new ReferenceStats(this.preset) 
+						: new ReferenceStats(new File(this.refFile));
+				for (String statsFile : this.statsFiles) {
+					double[] devs = ref.deviations(read(statsFile));
+					System.out.println(statsFile + ": " + report(devs, this.tolerance));
+					allPassed &= passes(devs, this.tolerance);
+				}
+			}
+			
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(Errors.OTHER.getValue());
+		}
+		
+		System.exit(allPassed ? Errors.NONE.getValue() : Errors.CHECK.getValue());
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+/**
+ * Plain loop implementation of the CSR kernels, used when the vector API is
+ * not available.
+ * 
+ * @author Nuno Fachada
+ */
+public class ScalarCsrKernels implements ICsrKernels {
+
+	/**
+	 * @see ICsrKernels#regenerateGrass(int[], int, int)
+	 */
+	@Override
+	public void regenerateGrass(int[] grass, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (grass[i] > 0) grass[i]--;
+		}
+	}
+
+	/**
+	 * @see ICsrKernels#decEnergy(int[], int, int)
+	 */
+	@Override
+	public void decEnergy(int[] energy, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (energy[i] > 0) energy[i]--;
+		}
+	}
+
+	/**
+	 * @see ICsrKernels#countZeros(int[], int, int)
+	 */
+	@Override
+	public int countZeros(int[] values, int from, int to) {
+		int count = 0;
+		for (int i = from; i < to; i++) {
+			if (values[i] == 0) count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @see ICsrKernels#sum(int[], int, int)
+	 */
+	@Override
+	public long sum(int[] values, int from, int to) {
+		long sum = 0;
+		for (int i = from; i < to; i++) {
+			sum += values[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * @see ICsrKernels#getDescription()
+	 */
+	@Override
+	public String getDescription() {
+		return "scalar";
+	}
+
+}
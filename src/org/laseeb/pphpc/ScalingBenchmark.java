@@ -0,0 +1,626 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.laseeb.pphpc.PredPrey.Errors;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.beust.jcommander.validators.PositiveInteger;
+
+/**
+ * Benchmark driver which measures the strong and weak scaling of the 
+ * parallelization strategies. Simulations are performed for every 
+ * combination of grid size, strategy and number of threads, and a table is
+ * produced with the mean simulation time of each combination, together with
+ * its speedup and parallel efficiency with respect to the single-threaded 
+ * (ST) strategy for the same grid size (strong scaling). 
+ * 
+ * Weak scaling efficiency is given for combinations where the number of 
+ * threads is 4<sup>k</sup> and the grid side is 2<sup>k</sup> times a 
+ * smaller grid side in the benchmark, i.e. where each thread has the same 
+ * amount of work as a single thread in the smaller grid (this holds for the
+ * standard PPHPC configurations, where the number of agents is proportional
+ * to the number of cells). It is the ST time for the smaller grid divided by
+ * the time of the combination.
+ * 
+ * Simulations run either in this JVM, after warm-up runs, or in a fresh JVM
+ * each, with the same JVM options as this one. Times are measured as in the
+ * OneGoCLI view, excluding JVM startup and statistics export.
+ * 
+ * Simulations can use the standard configurations bundled with the simulator
+ * instead of parameters files, in which case their output can also be 
+ * checked against the bundled reference statistics (see 
+ * {@link ReferenceStats}), so that a strategy which is fast but wrong is not
+ * mistaken for a good one.
+ * 
+ * Usage: java -cp bin:lib/* org.laseeb.pphpc.ScalingBenchmark -p ../configs/config%dv1.txt
+ * 
+ * @author Nuno Fachada
+ */
+public class ScalingBenchmark {
+	
+	/* Pattern for the simulation time in the output of the OneGoCLI view. */
+	private static final Pattern TIME_PATTERN = 
+			Pattern.compile("Total simulation time: (\\S+)");
+	
+	/* Parallelization strategies. */
+	@Parameter(names = {"-ps", "--par-strat"}, description = "Parallelization"
+			+ " strategies (defaults to all), ST is always included as reference",
+			converter = ParStratTypeConverter.class, variableArity = true)
+	private List<ParStratType> strategies = new ArrayList<ParStratType>();
+	
+	/* Number of threads. */
+	@Parameter(names = "-n", description = "Numbers of threads (defaults to"
+			+ " powers of two up to the number of processors)", 
+			variableArity = true)
+	private List<Integer> threads = new ArrayList<Integer>();
+	
+	/* Grid sizes. */
+	@Parameter(names = "--sizes", description = "Grid sizes (defaults to the"
+			+ " standard PPHPC sizes 100, 200, 400, 800 and 1600)", 
+			variableArity = true)
+	private List<Integer> sizes = new ArrayList<Integer>();
+	
+	/* Parameters file pattern. */
+	@Parameter(names = "-p", description = "Simulation parameters file for"
+			+ " each grid size, where %d is replaced by the size")
+	private String paramsPattern = "config%dv1.txt";
+	
+	/* Parameter set of the bundled configurations. */
+	@Parameter(names = "--param-set", description = "Use the bundled standard"
+			+ " configurations with the given parameter set (v1 or v2) instead"
+			+ " of parameters files")
+	private String paramSet = null;
+	
+	/* Check simulation output against reference statistics? */
+	@Parameter(names = "--check", description = "Check the output of each"
+			+ " simulation against the reference statistics of the bundled"
+			+ " configuration")
+	private boolean check = false;
+
+	/* Block size for OD parallelization strategy. */
+	@Parameter(names = "-b", description = "Block size (only for OD" 
+			+ " parallelization strategy)", 
+			validateWith = PositiveInteger.class)
+	private int blockSize = 100;
+	
+	/* Seed for random number generator. */
+	@Parameter(names = "-r", description = "Seed for random number generator",
+			converter = BigIntegerConverter.class)
+	private BigInteger seed = BigInteger.valueOf(1234);
+	
+	/* Number of warm-up runs. */
+	@Parameter(names = "-w", description = "Number of warm-up runs of each"
+			+ " combination (not timed)")
+	private int warmup = 1;
+	
+	/* Number of timed runs. */
+	@Parameter(names = "-i", description = "Number of timed runs of each"
+			+ " combination", validateWith = PositiveInteger.class)
+	private int reps = 3;
+	
+	/* Run each simulation in a fresh JVM? */
+	@Parameter(names = "--fresh", description = "Run each simulation in a"
+			+ " fresh JVM")
+	private boolean fresh = false;
+	
+	/* Output format. */
+	@Parameter(names = "--format", description = "Output format (md or csv)")
+	private String format = "md";
+	
+	/* Output file. */
+	@Parameter(names = "-o", description = "Output file (defaults to the"
+			+ " standard output)")
+	private String outFile = null;
+	
+	/* Help option. */
+	@Parameter(names = {"--help", "-h", "-?"}, description = "Show options", 
+			help = true)
+	private boolean help;
+	
+	/* Mean simulation times, in seconds, indexed by combination. */
+	private Map<String, Double> means = new LinkedHashMap<String, Double>();
+	
+	/* Standard deviation of simulation times, in seconds, indexed by 
+	 * combination. */
+	private Map<String, Double> sds = new LinkedHashMap<String, Double>();
+	
+	/* Did all simulations of each combination pass the check against 
+	 * reference statistics? */
+	private Map<String, Boolean> checks = new LinkedHashMap<String, Boolean>();
+	
+	/* Did the last simulation pass the check against reference 
+	 * statistics? */
+	private boolean lastCheckPassed;
+	
+	/**
+	 * Observer of a simulation performed in this JVM.
+	 */
+	private static class RunObserver extends AbstractModelEventObserver {
+		
+		/* Start time of the simulation. */
+		private long start;
+		
+		/* Duration of the simulation, in nanoseconds. */
+		private volatile long elapsed;
+		
+		/* Did the simulation fail? */
+		private volatile boolean failed = false;
+		
+		/* Signals the end of the simulation. */
+		private CountDownLatch done = new CountDownLatch(1);
+
+		/**
+		 * @see AbstractModelEventObserver#updateOnStart()
+		 */
+		@Override
+		protected void updateOnStart() {
+			this.start = System.nanoTime();
+		}
+
+		/**
+		 * @see AbstractModelEventObserver#updateOnStop()
+		 */
+		@Override
+		protected void updateOnStop() {
+			this.elapsed = System.nanoTime() - this.start;
+			this.done.countDown();
+		}
+
+		/**
+		 * @see AbstractModelEventObserver#updateOnException()
+		 */
+		@Override
+		protected void updateOnException() {
+			this.failed = true;
+			this.done.countDown();
+		}
+	}
+
+	/**
+	 * Main method.
+	 * 
+	 * @param args Command-line arguments.
+	 */
+	public static void main(String[] args) {
+		new ScalingBenchmark().doMain(args);
+	}
+
+	/**
+	 * This method will actually do stuff once the benchmark object is created.
+	 * 
+	 * @param args Command-line arguments.
+	 */
+	private void doMain(String[] args) {
+
+		/* Setup command line options parser. */
+		JCommander parser = new JCommander(this);
+		parser.setProgramName("java -cp bin" + File.pathSeparator + "lib" 
+				+ File.separator + "* " + ScalingBenchmark.class.getName());
+		
+		/* Parse command line options. */
+		try {
+			parser.parse(args);
+			if (!this.format.equals("md") && !this.format.equals("csv")) {
+				throw new ParameterException("Unknown output format '" 
+						+ this.format + "'");
+			}
+			if (this.check && this.paramSet == null) {
+				throw new ParameterException("Checks require the bundled"
+						+ " configurations (--param-set)");
+			}
+		} catch (ParameterException pe) {
+			/* On parsing error, show usage and return. */
+			System.err.println(pe.getMessage());
+			parser.usage();
+			System.exit(Errors.ARGS.getValue());
+		}
+		
+		/* If help option was passed, show help and quit. */
+		if (this.help) {
+			parser.usage();
+			System.exit(Errors.NONE.getValue());
+		}
+		
+		/* Default strategies, threads and sizes. ST is always the first 
+		 * strategy, as it is the reference for the others. */
+		if (this.strategies.isEmpty()) {
+			this.strategies.addAll(Arrays.asList(ParStratType.values()));
+		}
+		this.strategies.remove(ParStratType.ST);
+		this.strategies.add(0, ParStratType.ST);
+		if (this.threads.isEmpty()) {
+			for (int t = 1; t <= Runtime.getRuntime().availableProcessors(); t *= 2) {
+				this.threads.add(t);
+			}
+		}
+		if (this.sizes.isEmpty()) {
+			this.sizes.addAll(Arrays.asList(100, 200, 400, 800, 1600));
+		}
+		
+		/* Check that all parameters files, or presets and their reference
+		 * statistics, exist before starting. */
+		for (int size : this.sizes) {
+			if (this.paramSet != null) {
+				String preset = this.preset(size);
+				if (!Arrays.asList(ModelParams.PRESETS).contains(preset)) {
+					System.err.println("Unknown preset '" + preset + "'.");
+					System.exit(Errors.PARAMS.getValue());
+				}
+				if (this.check && !ReferenceStats.exists(preset)) {
+					System.err.println("No reference statistics for preset '" 
+							+ preset + "'.");
+					System.exit(Errors.PARAMS.getValue());
+				}
+			} else if (!new File(this.paramsFile(size)).isFile()) {
+				System.err.println("Simulation parameters file '" 
+						+ this.paramsFile(size) + "' not found.");
+				System.exit(Errors.PARAMS.getValue());
+			}
+		}
+		
+		/* Perform simulations. */
+		for (int size : this.sizes) {
+			for (ParStratType strategy : this.strategies) {
+				for (int t : this.threads) {
+					
+					/* The ST strategy only runs once per size. */
+					if (strategy == ParStratType.ST && t != this.threads.get(0)) 
+						continue;
+					int numThreads = strategy == ParStratType.ST ? 1 : t;
+					
+					this.benchmark(size, strategy, numThreads);
+				}
+			}
+		}
+		
+		/* Output results. */
+		PrintStream out = System.out;
+		try {
+			if (this.outFile != null) {
+				out = new PrintStream(this.outFile);
+			}
+		} catch (FileNotFoundException fnfe) {
+			System.err.println(fnfe.getMessage());
+			System.exit(Errors.OTHER.getValue());
+		}
+		this.report(out);
+		out.close();
+	}
+	
+	/**
+	 * Get the parameters file for a grid size.
+	 * 
+	 * @param size Grid size.
+	 * @return Parameters file for the given grid size.
+	 */
+	private String paramsFile(int size) {
+		return String.format(this.paramsPattern, size);
+	}
+	
+	/**
+	 * Get the bundled configuration for a grid size.
+	 * 
+	 * @param size Grid size.
+	 * @return Name of the bundled configuration for the given grid size.
+	 */
+	private String preset(int size) {
+		return size + this.paramSet;
+	}
+	
+	/**
+	 * Get the key of a combination.
+	 * 
+	 * @param size Grid size.
+	 * @param strategy Parallelization strategy.
+	 * @param numThreads Number of threads.
+	 * @return Key of the combination.
+	 */
+	private static String key(int size, ParStratType strategy, int numThreads) {
+		return size + " " + strategy + " " + numThreads;
+	}
+	
+	/**
+	 * Perform the warm-up and timed runs of a combination, and keep the mean 
+	 * and standard deviation of the simulation time.
+	 * 
+	 * @param size Grid size.
+	 * @param strategy Parallelization strategy.
+	 * @param numThreads Number of threads.
+	 */
+	private void benchmark(int size, ParStratType strategy, int numThreads) {
+		
+		double[] times = new double[this.reps];
+		boolean checksPassed = true;
+		
+		for (int r = -this.warmup; r < this.reps; r++) {
+			
+			double time = this.run(size, strategy, numThreads);
+			System.err.printf(Locale.US, "%d %s %d thread(s), %s %d: %s%s%n", 
+					size, strategy, numThreads, r < 0 ? "warm-up" : "run", 
+					r < 0 ? r + this.warmup + 1 : r + 1, 
+					Double.isNaN(time) ? "failed" : time + " s",
+					!this.check || Double.isNaN(time) ? "" 
+							: this.lastCheckPassed ? ", check passed" 
+									: ", check FAILED");
+			checksPassed &= this.lastCheckPassed;
+			
+			/* A failed simulation invalidates the combination. */
+			if (Double.isNaN(time)) {
+				this.means.put(key(size, strategy, numThreads), Double.NaN);
+				this.sds.put(key(size, strategy, numThreads), Double.NaN);
+				return;
+			}
+			if (r >= 0) times[r] = time;
+		}
+		
+		double mean = 0;
+		for (double time : times) mean += time;
+		mean /= this.reps;
+		
+		double var = 0;
+		for (double time : times) var += (time - mean) * (time - mean);
+		var = this.reps > 1 ? var / (this.reps - 1) : 0;
+		
+		this.means.put(key(size, strategy, numThreads), mean);
+		this.sds.put(key(size, strategy, numThreads), Math.sqrt(var));
+		if (this.check) {
+			this.checks.put(key(size, strategy, numThreads), checksPassed);
+		}
+	}
+	
+	/**
+	 * Perform a simulation, and keep the result of the check against 
+	 * reference statistics, if required.
+	 * 
+	 * @param size Grid size.
+	 * @param strategy Parallelization strategy.
+	 * @param numThreads Number of threads.
+	 * @return Simulation time, in seconds, or NaN if the simulation failed.
+	 */
+	private double run(int size, ParStratType strategy, int numThreads) {
+		
+		File statsFile = null;
+		this.lastCheckPassed = true;
+		
+		try {
+			
+			/* Statistics are not exported, but a file name is required 
+			 * anyway. */
+			statsFile = File.createTempFile("pphpc", ".txt");
+			
+			List<String> args = new ArrayList<String>();
+			if (this.paramSet != null) {
+				args.addAll(Arrays.asList("--preset", this.preset(size)));
+				if (this.check) args.add("--check");
+			} else {
+				args.addAll(Arrays.asList("-p", this.paramsFile(size)));
+			}
+			args.addAll(Arrays.asList(
+					"-ps", strategy.name(), 
+					"-n", Integer.toString(numThreads), 
+					"-b", Integer.toString(this.blockSize), 
+					"-r", this.seed.toString(),
+					"-s", statsFile.getPath()));
+			
+			return this.fresh ? this.runFresh(args) : this.runShared(args);
+			
+		} catch (Exception e) {
+			System.err.println(e.getMessage());
+			return Double.NaN;
+		} finally {
+			if (statsFile != null) statsFile.delete();
+		}
+	}
+	
+	/**
+	 * Perform a simulation in this JVM.
+	 * 
+	 * @param args Simulation command line arguments.
+	 * @return Simulation time, in seconds, or NaN if the simulation failed.
+	 * @throws Exception If the simulation can't be started or is interrupted.
+	 */
+	private double runShared(List<String> args) throws Exception {
+		
+		/* Try to start from similar heap conditions. */
+		System.gc();
+		
+		PredPrey pp = new PredPrey();
+		pp.setup(args.toArray(new String[args.size()]));
+		IModel model = pp.getModel();
+		
+		RunObserver observer = new RunObserver();
+		model.registerObserver(ModelEvent.START, observer);
+		model.registerObserver(ModelEvent.STOP, observer);
+		model.registerObserver(ModelEvent.EXCEPTION, observer);
+		
+		pp.getController().start();
+		observer.done.await();
+		
+		if (observer.failed) {
+			System.err.println(pp.errMessage(model.getLastThrowable()));
+			return Double.NaN;
+		}
+		
+		/* Check simulation output against reference statistics, if 
+		 * required. */
+		ReferenceStats reference = pp.getReference();
+		if (reference != null) {
+			double[] devs = reference.deviations(ReferenceStats.read(model));
+			this.lastCheckPassed = 
+					ReferenceStats.passes(devs, pp.getCheckTolerance());
+			if (!this.lastCheckPassed) {
+				System.err.println("Check against reference statistics " 
+						+ ReferenceStats.report(devs, pp.getCheckTolerance()));
+			}
+		}
+		return observer.elapsed / 1e9;
+	}
+	
+	/**
+	 * Perform a simulation in a new JVM, with the same options as this one.
+	 * 
+	 * @param args Simulation command line arguments.
+	 * @return Simulation time, in seconds, or NaN if the simulation failed.
+	 * @throws Exception If the JVM can't be started or is interrupted.
+	 */
+	private double runFresh(List<String> args) throws Exception {
+		
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" 
+				+ File.separator + "java");
+		for (String jvmArg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+			/* Don't attach debuggers or agents to the new JVM. */
+			if (!jvmArg.startsWith("-agentlib") && !jvmArg.startsWith("-javaagent")
+					&& !jvmArg.startsWith("-Xrunjdwp")) {
+				command.add(jvmArg);
+			}
+		}
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(PredPrey.class.getName());
+		command.addAll(args);
+		
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		
+		/* Look for the simulation time in the output. */
+		double time = Double.NaN;
+		StringBuilder output = new StringBuilder();
+		BufferedReader in = new BufferedReader(
+				new InputStreamReader(process.getInputStream()));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				output.append(line).append(System.lineSeparator());
+				Matcher m = TIME_PATTERN.matcher(line);
+				if (m.find()) time = Double.parseDouble(m.group(1));
+			}
+		} finally {
+			in.close();
+		}
+		
+		int exitCode = process.waitFor();
+		if (exitCode != Errors.NONE.getValue()) {
+			System.err.print(output);
+			
+			/* A simulation which only failed the check is still timed. */
+			if (exitCode != (Errors.CHECK.getValue() & 0xFF)) return Double.NaN;
+			this.lastCheckPassed = false;
+		}
+		return time;
+	}
+	
+	/**
+	 * Output the results table.
+	 * 
+	 * @param out Where to output the table.
+	 */
+	private void report(PrintStream out) {
+		
+		String[] header = { "size", "strategy", "threads", "time (s)", 
+				"sd (s)", "speedup", "efficiency", "weak efficiency", "check" };
+		this.row(out, header);
+		if (this.format.equals("md")) {
+			String[] sep = new String[header.length];
+			Arrays.fill(sep, "---");
+			this.row(out, sep);
+		}
+		
+		for (String key : this.means.keySet()) {
+			
+			String[] fields = key.split(" ");
+			int size = Integer.parseInt(fields[0]);
+			int numThreads = Integer.parseInt(fields[2]);
+			double mean = this.means.get(key);
+			
+			/* Strong scaling. */
+			double speedup = 
+					this.means.get(key(size, ParStratType.ST, 1)) / mean;
+			
+			/* Weak scaling, if there is a smaller grid with the same work per 
+			 * thread. */
+			double weakEff = Double.NaN;
+			for (int k = 0, t = 1; t <= numThreads; k++, t *= 4) {
+				if (t == numThreads && size % (1 << k) == 0) {
+					Double base = this.means.get(
+							key(size >> k, ParStratType.ST, 1));
+					if (base != null) weakEff = base / mean;
+				}
+			}
+			
+			this.row(out, new String[] { fields[0], fields[1], fields[2], 
+					number(mean), number(this.sds.get(key)), number(speedup), 
+					number(speedup / numThreads), number(weakEff), 
+					!this.checks.containsKey(key) ? "-" 
+							: this.checks.get(key) ? "ok" : "FAIL" });
+		}
+	}
+	
+	/**
+	 * Output a row of the results table in the selected format.
+	 * 
+	 * @param out Where to output the row.
+	 * @param fields Row fields.
+	 */
+	private void row(PrintStream out, String[] fields) {
+		if (this.format.equals("md")) {
+			out.println("| " + String.join(" | ", fields) + " |");
+		} else {
+			out.println(String.join(",", fields));
+		}
+	}
+	
+	/**
+	 * Format a number for the results table.
+	 * 
+	 * @param value Number to format.
+	 * @return Formatted number, or "-" if not available.
+	 */
+	private static String number(double value) {
+		return Double.isNaN(value) ? "-" : String.format(Locale.US, "%.3f", value);
+	}
+
+}
@@ -26,7 +26,7 @@
 
 package org.laseeb.pphpc;
 
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  *  A simulation worker. Each worker runs in its own thread.
@@ -76,7 +76,7 @@ public class SimWorker implements Runnable {
 	public void run() {
 		
 		/* Random number generator for current worker. */
-		Random rng;
+		RandomGenerator rng;
 
 		/* Partial statistics */
 		IterationStats iterStats = new IterationStats();
@@ -87,10 +87,27 @@ public class SimWorker implements Runnable {
 		/* Current iteration*/
 		int iter = 0;
 		
-		/* Shuffle agents before they act? */
-		boolean shuffle = this.model.isShuffle();
+		/* Checkpoint from which to restore the simulation, if any. */
+		Checkpoint resume = this.model.getResumeCheckpoint();
+		
+		/* Saves checkpoints, if required. */
+		Checkpointer checkpointer = this.model.getCheckpointer();
+		
+		/* Saves spatial frames, if required. */
+		FrameWriter frameWriter = this.model.getFrameWriter();
+		
+		/* Times my phases, if required (otherwise does nothing). */
+		PhaseTimings phaseTimings = this.model.getPhaseTimings();
+		IWorkerTimer timer = phaseTimings != null 
+				? phaseTimings.newTimer(this.wId) : IWorkerTimer.NONE;
+		
+		/* Iteration in which the simulation starts. */
+		int startIter = resume != null ? resume.getIteration() : 0;
 		
 		try {
+			
+			/* Start timing my phases. */
+			timer.start();
 
 			/* Get cells work provider. */
 			IWorkProvider cellsWorkProvider = this.workFactory.getWorkProvider(
@@ -107,46 +124,66 @@ public class SimWorker implements Runnable {
 			IWork sheepWork = sheepWorkProvider.newWork(wId);
 			IWork wolvesWork = wolvesWorkProvider.newWork(wId);
 
-			/* Create random number generator for current worker. */
-			rng = this.model.createRNG(wId);
+			/* Create simulation engine for current worker. */
+			ISimEngine engine = this.model.createSimEngine(cellsWorkProvider, cellsWork);
+			
+			/* Emit flight recorder events for my phases, if required. */
+			if (this.model.isJfrEvents()) {
+				timer = new JfrWorkerTimer(timer, this.wId, this.model, 
+						engine, iterStats);
+			}
+
+			/* Create random number generator for current worker, or restore
+			 * it from the checkpoint. */
+			if (resume != null) {
+				rng = resume.loadRNG(this.wId);
+			} else {
+				rng = this.model.createRNG(wId);
+			}
+			
+			/* Fail early if the RNG state can't be saved in checkpoints. */
+			if (checkpointer != null) Checkpointer.saveRNG(rng);
 			
 			/* Notify controller that I'm about to begin working. */
 			this.controller.workerNotifyBeforeInitCells();
 			
 			/* Initialize simulation grid cells. */
-			while ((token = cellsWorkProvider.getNextToken(cellsWork)) >= 0) {
-				this.model.initCellAt(token, rng);
+			if (resume != null) {
+				engine.restoreCells(resume);
+			} else {
+				engine.initCells(rng);
 			}
 
-			/* Reset my cells work. */
-			cellsWorkProvider.resetWork(cellsWork);
-
 			/* Notify controller I have initialized my allocated cells. */
 			this.controller.workerNotifyInitCells();
 			
-			while ((token = cellsWorkProvider.getNextToken(cellsWork)) >= 0) {
-				this.model.setCellNeighbors(token);
-			}
-
-			/* Reset my cells work. */
-			cellsWorkProvider.resetWork(cellsWork);
+			/* Set neighbors of my allocated cells. */
+			engine.setCellNeighbors();
 			
 			/* Notify controller I already set the neighbors for my allocated cells. */
 			controller.workerNotifySetCellNeighbors();
 			
-			/* Populate simulation grid with agents. */
-			while ((token = sheepWorkProvider.getNextToken(sheepWork)) >= 0) {
-				int idx = rng.nextInt(this.model.getSize());
-				IAgent sheep = new Sheep(
-						1 + rng.nextInt(2 * this.params.getSheepGainFromFood()), this.params);
-				this.model.getCell(idx).putInitAgent(sheep);
-			}
-
-			while ((token = wolvesWorkProvider.getNextToken(wolvesWork)) >= 0) {
-				int idx = rng.nextInt(this.model.getSize());
-				IAgent wolf = new Wolf(
-						1 + rng.nextInt(2 * this.params.getWolvesGainFromFood()), this.params);
-				this.model.getCell(idx).putInitAgent(wolf);
+			if (resume != null) {
+				
+				/* Restore agents in my range of cells. */
+				resume.loadAgents(this.wId, engine, this.params);
+				
+			} else {
+				
+				/* Populate simulation grid with agents. */
+				while ((token = sheepWorkProvider.getNextToken(sheepWork)) >= 0) {
+					int idx = rng.nextInt(this.model.getSize());
+					IAgent sheep = new Sheep(
+							1 + rng.nextInt(2 * this.params.getSheepGainFromFood()), this.params);
+					engine.putInitAgent(idx, sheep);
+				}
+	
+				while ((token = wolvesWorkProvider.getNextToken(wolvesWork)) >= 0) {
+					int idx = rng.nextInt(this.model.getSize());
+					IAgent wolf = new Wolf(
+							1 + rng.nextInt(2 * this.params.getWolvesGainFromFood()), this.params);
+					engine.putInitAgent(idx, wolf);
+				}
 			}
 			
 			/* Notify controller I already initialized my allocated agents. */
@@ -154,80 +191,74 @@ public class SimWorker implements Runnable {
 			
 			/* Get initial statistics. */
 			iterStats.reset();
-			while ((token = cellsWorkProvider.getNextToken(cellsWork)) >= 0) {
-				this.model.getCell(token).getStats(iterStats);
-			}
-
-			/* Reset my cells work. */
-			cellsWorkProvider.resetWork(cellsWork);
+			engine.getFirstStats(iterStats);
 			
 			/* Update global statistics. */
-			this.model.updateStats(0, iterStats);
+			this.model.updateStats(this.wId, startIter, iterStats);
 
-			/* Notify controller I updated statistics for the zero iteration. */
+			/* Notify controller I updated statistics for the first iteration. */
 			this.controller.workerNotifyFirstStats();
+			timer.mark(TimedPhase.INIT);
 			
 			/* Perform simulation steps. */
-			for (iter = 1; iter <= this.params.getIters(); iter++) {
+			for (iter = startIter + 1; iter <= this.params.getIters(); iter++) {
 				
-				/* Cycle through cells in order to perform step 1 and 2 of simulation. */
-				while ((token = cellsWorkProvider.getNextToken(cellsWork)) >= 0) {
-
-					/* Current cell being processed. */
-					ICell cell = this.model.getCell(token);
-
-					/* ************************* */
-					/* ** 1 - Agent movement. ** */
-					/* ************************* */
-	
-					cell.agentsMove(rng);
-						
-					/* ************************* */
-					/* *** 2 - Grass growth. *** */
-					/* ************************* */
-					
-					/* Regenerate grass if required. */
-					cell.regenerateGrass();
-	
-				}
-
-				/* Reset my cells work. */
-				cellsWorkProvider.resetWork(cellsWork);
+				/* Perform step 1 and 2 of simulation: agent movement and 
+				 * grass growth. */
+				engine.moveAgentsGrowGrass(iter, rng, timer);
 				
 				/* Notify controller I'm half-way through an iteration. */
 				this.controller.workerNotifyHalfIteration();
+				timer.mark(TimedPhase.HALF_ITERATION_WAIT);
 				
 				/* Reset statistics for current iteration. */
 				iterStats.reset();
-
-				/* Cycle through cells in order to perform step 3 and 4 of simulation. */
-				while ((token = cellsWorkProvider.getNextToken(cellsWork)) >= 0) {
-
-					/* Current cell being processed. */
-					ICell cell = this.model.getCell(token);
-
-					/* ************************** */
-					/* *** 3 - Agent actions. *** */
-					/* ************************** */
-	
-					cell.agentActions(rng, shuffle);
-					
-					/* ****************************** */
-					/* *** 4 - Gather statistics. *** */
-					/* ****************************** */
-	
-					cell.getStats(iterStats);
-					
-				}
-
-				/* Reset my cells work. */
-				cellsWorkProvider.resetWork(cellsWork);
+				
+				/* Perform step 3 and 4 of simulation: agent actions and 
+				 * statistics gathering. */
+				engine.agentActionsGetStats(iter, rng, iterStats);
+				timer.mark(TimedPhase.AGENT_ACTIONS_STATS);
 				
 				/* Update global statistics. */
-				this.model.updateStats(iter, iterStats);
+				this.model.updateStats(this.wId, iter, iterStats);
+				timer.mark(TimedPhase.UPDATE_STATS);
+				
+				/* Is the model state to be captured in this iteration? */
+				boolean checkpointDue = 
+						checkpointer != null && checkpointer.isDue(iter);
+				boolean frameDue = 
+						frameWriter != null && frameWriter.isDue(iter);
 				
-				/* Notify controller I ended an iteration. */
-				this.controller.workerNotifyEndIteration();
+				if (checkpointDue || frameDue) {
+					
+					/* Capture my part of the checkpoint and/or spatial frame
+					 * when all workers have performed agent actions... */
+					this.controller.workerNotifyBeforeCheckpoint();
+					timer.mark(TimedPhase.CAPTURE_WAIT);
+					if (frameDue) {
+						frameWriter.capture(this.wId, iter, engine);
+					}
+					if (checkpointDue) {
+						checkpointer.capture(this.wId, iter, engine, rng);
+					}
+					timer.mark(TimedPhase.CAPTURE);
+					
+					/* ...and hand the checkpoint over to be written in the 
+					 * background after the iteration is finished, when 
+					 * statistics for this iteration are available. */
+					this.controller.workerNotifyEndIteration();
+					timer.mark(TimedPhase.END_ITERATION_WAIT);
+					if (checkpointDue) {
+						checkpointer.submit(this.wId, this.model);
+					}
+					timer.mark(TimedPhase.CAPTURE);
+					
+				} else {
+				
+					/* Notify controller I ended an iteration. */
+					this.controller.workerNotifyEndIteration();
+					timer.mark(TimedPhase.END_ITERATION_WAIT);
+				}
 				
 			}
 			
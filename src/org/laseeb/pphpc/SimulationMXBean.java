@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.util.Map;
+
+/**
+ * Management interface of a running simulation, registered in the platform 
+ * MBean server by {@link JmxView}. Rates are measured over the last sampling
+ * period, of about one second.
+ * 
+ * @author Nuno Fachada
+ */
+public interface SimulationMXBean {
+	
+	/**
+	 * Get the simulation status.
+	 * 
+	 * @return "running", "paused" or "stopped".
+	 */
+	public String getStatus();
+	
+	/**
+	 * Get the current iteration.
+	 * 
+	 * @return The current iteration.
+	 */
+	public int getCurrentIteration();
+	
+	/**
+	 * Get the total number of iterations.
+	 * 
+	 * @return The total number of iterations.
+	 */
+	public int getIterations();
+	
+	/**
+	 * Get the number of simulation workers.
+	 * 
+	 * @return The number of simulation workers.
+	 */
+	public int getNumWorkers();
+	
+	/**
+	 * Get the number of iterations performed per second.
+	 * 
+	 * @return Number of iterations performed per second.
+	 */
+	public double getIterationsPerSecond();
+	
+	/**
+	 * Get the number of agent updates per second, estimated from the number
+	 * of iterations performed and the latest population.
+	 * 
+	 * @return Number of agent updates per second.
+	 */
+	public double getAgentUpdatesPerSecond();
+	
+	/**
+	 * Get the statistics of the latest finished iteration.
+	 * 
+	 * @return Statistics of the latest finished iteration, or null if not 
+	 * available.
+	 */
+	public IterationStats getLatestStats();
+	
+	/**
+	 * Get the time spent so far by each worker in each phase, in 
+	 * milliseconds. Only available if the simulation was started with the 
+	 * timing option.
+	 * 
+	 * @return Map of phase short names to time spent by each worker.
+	 */
+	public Map<String, double[]> getPhaseTimes();
+	
+	/**
+	 * Get the used heap memory.
+	 * 
+	 * @return Used heap memory, in bytes.
+	 */
+	public long getHeapUsed();
+	
+	/**
+	 * Get the rate at which memory is allocated by all threads.
+	 * 
+	 * @return Allocation rate, in bytes per second, or -1 if not supported 
+	 * by the JVM.
+	 */
+	public double getAllocationRate();
+	
+	/**
+	 * Pause the simulation if running, or continue it if paused.
+	 */
+	public void pauseContinue();
+	
+	/**
+	 * Stop the simulation.
+	 */
+	public void stop();
+	
+	/**
+	 * Export simulation statistics.
+	 * 
+	 * @param filename File where to export statistics.
+	 */
+	public void export(String filename);
+
+}
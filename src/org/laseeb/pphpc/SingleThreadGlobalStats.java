@@ -34,7 +34,7 @@ import java.util.Arrays;
  * 
  * @author Nuno Fachada
  */
-public class SingleThreadGlobalStats implements IGlobalStats {
+public class SingleThreadGlobalStats extends AbstractGlobalStats {
 
 	/* Sheep count. */
 	private int[] sheepCount;
@@ -60,6 +60,7 @@ public class SingleThreadGlobalStats implements IGlobalStats {
 	 * @param iters Number of iterations.
 	 */
 	public SingleThreadGlobalStats(int iters) {
+		super(iters);
 		this.sheepCount = new int[iters + 1];
 		this.wolvesCount = new int[iters + 1];
 		this.grassAlive = new int[iters + 1];
@@ -94,10 +95,10 @@ public class SingleThreadGlobalStats implements IGlobalStats {
 	}
 
 	/**
-	 * @see IGlobalStats#updateStats(int, IterationStats)
+	 * @see IGlobalStats#updateStats(int, int, IterationStats)
 	 */
 	@Override
-	public void updateStats(int iter, IterationStats stats) {
+	public void updateStats(int wId, int iter, IterationStats stats) {
 		this.sheepCount[iter] = stats.getSheepCount();
 		this.wolvesCount[iter] = stats.getWolvesCount();
 		this.grassAlive[iter] = stats.getGrassAlive();
@@ -106,6 +107,22 @@ public class SingleThreadGlobalStats implements IGlobalStats {
 		this.grassCountdown[iter] = stats.getGrassCountdown();
 	}
 
+	/**
+	 * Does nothing, statistics are updated directly.
+	 * 
+	 * @see IGlobalStats#commitStats(int)
+	 */
+	@Override
+	public void commitStats(int iter) {}
+
+	/**
+	 * @see IGlobalStats#restoreStats(int, IterationStats)
+	 */
+	@Override
+	public void restoreStats(int iter, IterationStats stats) {
+		this.updateStats(0, iter, stats);
+	}
+
 	/**
 	 * @see IGlobalStats#getStats(int)
 	 */
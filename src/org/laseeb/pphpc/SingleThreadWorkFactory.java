@@ -79,6 +79,7 @@ public class SingleThreadWorkFactory implements IWorkFactory {
 				new SingleThreadSyncPoint(ControlEvent.AFTER_INIT_AGENTS), 
 				new SingleThreadSyncPoint(ControlEvent.AFTER_FIRST_STATS), 
 				new SingleThreadSyncPoint(ControlEvent.AFTER_HALF_ITERATION), 
+				new SingleThreadSyncPoint(ControlEvent.BEFORE_CHECKPOINT), 
 				new SingleThreadSyncPoint(ControlEvent.AFTER_END_ITERATION), 
 				new SingleThreadSyncPoint(ControlEvent.AFTER_END_SIMULATION));
 		
@@ -94,6 +95,14 @@ public class SingleThreadWorkFactory implements IWorkFactory {
 		return new SingleThreadGlobalStats(iters);
 	}
 
+	/**
+	 * @see IWorkFactory#requiresOrderedCellWork()
+	 */
+	@Override
+	public boolean requiresOrderedCellWork() {
+		return false;
+	}
+
 	/**
 	 * Always returns 1.
 	 * 
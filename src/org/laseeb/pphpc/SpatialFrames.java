@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Binary format for spatial frames, i.e. downsampled rasters of the 
+ * simulation grid saved periodically during a simulation. Each raster pixel 
+ * covers a square block of <i>scale</i> x <i>scale</i> cells (smaller at the
+ * right and bottom edges if the grid size is not a multiple of the scale), 
+ * and holds three values: the number of sheep, the number of wolves and the 
+ * number of cells with live grass in that block.
+ * 
+ * <p>All values are little-endian. The header has {@link #HEADER_SIZE} bytes
+ * with the following layout:</p>
+ * <ul>
+ * <li>magic number {@link #MAGIC} (int, the ASCII characters "PPFR");</li>
+ * <li>format version {@link #VERSION} (int);</li>
+ * <li>horizontal and vertical grid size (two ints);</li>
+ * <li>scale (int);</li>
+ * <li>raster width and height (two ints);</li>
+ * <li>zero padding.</li>
+ * </ul>
+ * 
+ * <p>Frames follow the header, in iteration order. Each frame starts with the
+ * iteration (int) and the number of bands (int), followed by the bands, 
+ * which are horizontal strips of the raster encoded in parallel by different
+ * workers. Each band has the first raster row (int), the number of raster 
+ * rows (int), the compressed size in bytes (int) and the compressed data. 
+ * The data is compressed with {@link java.util.zip.Deflater} and holds the 
+ * sheep, wolves and grass rasters of the band, one after the other, as ints
+ * in row-major order.</p>
+ * 
+ * <p>This class can also be executed to convert a spatial frames file to a 
+ * tab-separated text format, with one line per pixel and frame containing 
+ * the iteration, the pixel horizontal and vertical position, and the number
+ * of sheep, wolves and cells with live grass.</p>
+ * 
+ * @author Nuno Fachada
+ */
+public final class SpatialFrames {
+	
+	/** Magic number which identifies spatial frames files. */
+	public static final int MAGIC = 0x52465050;
+	
+	/** Spatial frames format version. */
+	public static final int VERSION = 1;
+	
+	/** Size of header in bytes. */
+	public static final int HEADER_SIZE = 32;
+	
+	/** Byte order of all values. */
+	public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+	
+	/* Number of rasters in each frame. */
+	private static final int NUM_RASTERS = 3;
+	
+	/**
+	 * This class only provides static methods.
+	 */
+	private SpatialFrames() {}
+	
+	/**
+	 * Raster size along a dimension.
+	 * 
+	 * @param gridSize Grid size along the dimension.
+	 * @param scale Number of cells in each side of a raster pixel.
+	 * @return Raster size along the dimension.
+	 */
+	public static int rasterSize(int gridSize, int scale) {
+		return (gridSize + scale - 1) / scale;
+	}
+	
+	/**
+	 * Convert a spatial frames file to tab-separated text.
+	 * 
+	 * @param framesFilename Spatial frames file.
+	 * @param tsvFilename Tab-separated text file to create.
+	 * @throws IOException If an I/O error occurs or if the spatial frames 
+	 * file is not valid.
+	 */
+	public static void toTsv(String framesFilename, String tsvFilename) 
+			throws IOException {
+		
+		FileChannel channel = FileChannel.open(Paths.get(framesFilename), 
+				StandardOpenOption.READ);
+		BufferedWriter out = null;
+		Inflater inflater = new Inflater();
+		
+		try {
+			
+			/* Read and validate header. */
+			ByteBuffer header = read(channel, HEADER_SIZE, framesFilename);
+			if (header.getInt() != MAGIC) {
+				throw new IOException("'" + framesFilename 
+						+ "' is not a spatial frames file.");
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported spatial frames version " 
+						+ version + " in '" + framesFilename + "'.");
+			}
+			
+			/* Skip grid size and scale, which are not required here. */
+			header.position(header.position() + 3 * Integer.BYTES);
+			int width = header.getInt();
+			int height = header.getInt();
+			
+			out = new BufferedWriter(new FileWriter(tsvFilename));
+			
+			/* Read frames until the end of the file. */
+			int[] rasters = new int[NUM_RASTERS * width * height];
+			while (channel.position() < channel.size()) {
+				
+				ByteBuffer frame = read(channel, 2 * Integer.BYTES, 
+						framesFilename);
+				int iter = frame.getInt();
+				int numBands = frame.getInt();
+				
+				for (int b = 0; b < numBands; b++) {
+					
+					ByteBuffer band = read(channel, 3 * Integer.BYTES, 
+							framesFilename);
+					int firstRow = band.getInt();
+					int numRows = band.getInt();
+					int size = band.getInt();
+					if (firstRow < 0 || numRows < 0 
+							|| firstRow + numRows > height) {
+						throw new IOException("Invalid band in iteration " 
+								+ iter + " of '" + framesFilename + "'.");
+					}
+					
+					/* Decompress band. */
+					ByteBuffer data = read(channel, size, framesFilename);
+					ByteBuffer raw = ByteBuffer.allocate(
+							NUM_RASTERS * Integer.BYTES * numRows * width)
+							.order(ORDER);
+					inflater.reset();
+					inflater.setInput(data.array());
+					try {
+						if (inflater.inflate(raw.array()) != raw.capacity()) {
+							throw new IOException("Truncated band in iteration "
+									+ iter + " of '" + framesFilename + "'.");
+						}
+					} catch (DataFormatException dfe) {
+						throw new IOException("Corrupted band in iteration " 
+								+ iter + " of '" + framesFilename + "'.", dfe);
+					}
+					
+					/* Place band rasters in frame rasters. */
+					IntBuffer values = raw.asIntBuffer();
+					for (int r = 0; r < NUM_RASTERS; r++) {
+						values.get(rasters, 
+								(r * height + firstRow) * width, numRows * width);
+					}
+				}
+				
+				/* Write one line per pixel. */
+				for (int y = 0; y < height; y++) {
+					for (int x = 0; x < width; x++) {
+						int pixel = y * width + x;
+						out.write(iter + "\t" + x + "\t" + y);
+						for (int r = 0; r < NUM_RASTERS; r++) {
+							out.write("\t" + rasters[r * width * height + pixel]);
+						}
+						out.write('\n');
+					}
+				}
+			}
+			
+		} finally {
+			inflater.end();
+			channel.close();
+			if (out != null) {
+				out.close();
+			}
+		}
+	}
+	
+	/**
+	 * Convert a spatial frames file to tab-separated text.
+	 * 
+	 * @param args Spatial frames file and tab-separated text file.
+	 */
+	public static void main(String[] args) {
+		
+		if (args.length != 2) {
+			System.err.println("Usage: java -cp bin" 
+					+ java.io.File.pathSeparator + "lib" 
+					+ java.io.File.separator + "* " 
+					+ SpatialFrames.class.getName() 
+					+ " <spatial frames file> <text file>");
+			System.exit(PredPrey.Errors.ARGS.getValue());
+		}
+		
+		try {
+			toTsv(args[0], args[1]);
+		} catch (IOException ioe) {
+			System.err.println(ioe.getMessage());
+			System.exit(PredPrey.Errors.OTHER.getValue());
+		}
+	}
+	
+	/**
+	 * Read the given number of bytes from the current position of a channel.
+	 * 
+	 * @param channel Channel to read from.
+	 * @param size Number of bytes to read.
+	 * @param filename Name of file being read, for error messages.
+	 * @return A buffer with the bytes read, positioned at the beginning.
+	 * @throws IOException If an I/O error occurs or if the file ends before
+	 * all bytes are read.
+	 */
+	private static ByteBuffer read(FileChannel channel, int size, 
+			String filename) throws IOException {
+		
+		if (size < 0 || channel.size() - channel.position() < size) {
+			throw new IOException("Spatial frames file '" + filename 
+					+ "' is truncated.");
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(size).order(ORDER);
+		while (buffer.hasRemaining()) {
+			channel.read(buffer);
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.io.Serializable;
+import java.util.random.RandomGenerator;
+
+/**
+ * The SplitMix generator of {@link java.util.SplittableRandom}, with the 
+ * same constants and algorithms, so that it produces the same random 
+ * numbers and splits as that class. Unlike {@link java.util.SplittableRandom},
+ * its state can be serialized, and thus saved in checkpoints.
+ * 
+ * Bounded integers, booleans and doubles are obtained with the default
+ * methods of {@link RandomGenerator}, as is the case of 
+ * {@link java.util.SplittableRandom}.
+ * 
+ * Instances are not thread-safe, each worker must have its own.
+ * 
+ * @author Nuno Fachada
+ */
+public final class SplittableRNG implements RandomGenerator, Serializable {
+	
+	/* Generated serial version UID. */
+	private static final long serialVersionUID = -2476893219048725132L;
+
+	/* Default gamma, i.e. the odd integer closest to 2^64 divided by the 
+	 * golden ratio. */
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	
+	/* The RNG state, advanced by gamma at each step. */
+	private long seed;
+	
+	/* Step value, which must be odd. */
+	private final long gamma;
+	
+	/**
+	 * Create a new generator with the given seed, as 
+	 * {@link java.util.SplittableRandom#SplittableRandom(long)}.
+	 * 
+	 * @param seed Initial seed.
+	 */
+	public SplittableRNG(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+	
+	/**
+	 * Create a new generator with the given seed and gamma.
+	 * 
+	 * @param seed Initial seed.
+	 * @param gamma Step value, which must be odd.
+	 */
+	private SplittableRNG(long seed, long gamma) {
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+	
+	/**
+	 * Split this generator, as {@link java.util.SplittableRandom#split()}. 
+	 * The state of this generator is advanced.
+	 * 
+	 * @return A new generator, statistically independent of this one.
+	 */
+	public SplittableRNG split() {
+		return new SplittableRNG(this.nextLong(), mixGamma(this.nextSeed()));
+	}
+
+	/**
+	 * @see RandomGenerator#nextInt()
+	 */
+	@Override
+	public int nextInt() {
+		return mix32(this.nextSeed());
+	}
+
+	/**
+	 * @see RandomGenerator#nextLong()
+	 */
+	@Override
+	public long nextLong() {
+		return mix64(this.nextSeed());
+	}
+	
+	/**
+	 * Advance the state.
+	 * 
+	 * @return The new state.
+	 */
+	private long nextSeed() {
+		return this.seed += this.gamma;
+	}
+	
+	/**
+	 * Variant 13 of Stafford's 64-bit mix function.
+	 * 
+	 * @param z Value to mix.
+	 * @return Mixed value.
+	 */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * Upper 32 bits of variant 4 of Stafford's 64-bit mix function.
+	 * 
+	 * @param z Value to mix.
+	 * @return Mixed value.
+	 */
+	private static int mix32(long z) {
+		z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+		return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+	}
+	
+	/**
+	 * Obtain the gamma of a split generator, with MurmurHash3 mix constants,
+	 * forcing it to be odd and to have enough bit transitions.
+	 * 
+	 * @param z Value to mix.
+	 * @return Gamma value.
+	 */
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int n = Long.bitCount(z ^ (z >>> 1));
+		return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+
+}
@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Global simulation statistics which are streamed to a file as the 
+ * simulation progresses, using memory independent of the number of 
+ * iterations. Once all workers update the statistics of an iteration, these
+ * are put in a bounded buffer, from where a background writer thread takes 
+ * them and writes them to the file. The file is flushed whenever the writer
+ * catches up, so statistics are on disk even if the simulation does not 
+ * finish. If the writer falls behind by more than the buffer size, the 
+ * simulation waits for it. The file is opened once per simulation, when 
+ * the statistics are reset, so exporting the statistics while the 
+ * simulation runs only flushes the file (and copies it, if required).
+ * 
+ * When a simulation is resumed from a checkpoint taken while statistics 
+ * were streamed, the statistics of the iterations before the checkpoint are
+ * kept in the file, which is truncated after them, and the statistics of 
+ * the following iterations are appended to it.
+ * 
+ * Only the statistics of the most recent iterations (as many as the buffer 
+ * size) are available through {@link #getStats(int)}. Workers keep their 
+ * partial statistics in padded per-worker slots, so this class is thread-safe.
+ * 
+ * @author Nuno Fachada
+ */
+public class StreamingGlobalStats implements IGlobalStats {
+	
+	/* Marks the end of the statistics stream. */
+	private static final IterationStats END = new IterationStats();
+	
+	/* Asks the writer thread to flush the file. */
+	private static final IterationStats FLUSH = new IterationStats();
+	
+	/* File where to stream statistics. */
+	private String filename;
+	
+	/* Number of cells in the simulation. */
+	private int numCells;
+	
+	/* Number of iterations whose statistics are kept in the file. */
+	private int keepIters;
+	
+	/* Per-worker slots for partial statistics. */
+	private PaddedStatsSlots slots;
+	
+	/* Statistics of the most recent iterations. */
+	private AtomicReferenceArray<IterationStats> recent;
+	
+	/* Most recent iteration with complete statistics. */
+	private volatile int lastIter;
+	
+	/* Statistics waiting to be written. */
+	private BlockingQueue<IterationStats> queue;
+	
+	/* Writer thread. */
+	private volatile Thread writer;
+	
+	/* Guards the start and stop of the writer thread, and flushes. */
+	private final Object writerLock = new Object();
+	
+	/* Released by the writer thread when a flush is done. */
+	private final Semaphore flushed = new Semaphore(0);
+	
+	/* Error which occurred in the writer thread, if any. */
+	private volatile IOException writeError;
+	
+	/**
+	 * Create a new streaming global statistics object.
+	 * 
+	 * @param filename File where to stream statistics.
+	 * @param numCells Number of cells in the simulation.
+	 * @param numWorkers Number of workers.
+	 * @param bufferSize Maximum number of iterations kept in memory.
+	 * @param keepIters Number of iterations whose statistics are already in 
+	 * the file and are kept, i.e. the iteration of the checkpoint from which
+	 * the simulation is resumed, or zero to overwrite the file.
+	 * @throws IOException If the file doesn't have the statistics of the 
+	 * iterations to keep.
+	 */
+	public StreamingGlobalStats(String filename, int numCells, int numWorkers, 
+			int bufferSize, int keepIters) throws IOException {
+		
+		this.filename = filename;
+		this.numCells = numCells;
+		this.keepIters = keepIters;
+		
+		/* Fail early if statistics to keep are missing. */
+		if (keepIters > 0) this.keptLength();
+		
+		this.slots = new PaddedStatsSlots(numWorkers);
+		this.recent = new AtomicReferenceArray<IterationStats>(bufferSize);
+		this.queue = new ArrayBlockingQueue<IterationStats>(bufferSize);
+		this.lastIter = -1;
+	}
+
+	/**
+	 * @see IGlobalStats#getStats(StatType, int)
+	 */
+	@Override
+	public Number getStats(StatType st, int iter) {
+		return this.getStats(iter).getStat(st);
+	}
+
+	/**
+	 * Only the statistics of the most recent iterations are available.
+	 * 
+	 * @throws IllegalArgumentException If the statistics for the given 
+	 * iteration are not available.
+	 * @see IGlobalStats#getStats(int)
+	 */
+	@Override
+	public IterationStats getStats(int iter) {
+		
+		int last = this.lastIter;
+		
+		if (iter > last || iter <= last - this.recent.length() || iter < 0) {
+			throw new IllegalArgumentException("Statistics for iteration " 
+					+ iter + " are not available.");
+		}
+		return this.recent.get(iter % this.recent.length());
+	}
+
+	/**
+	 * @see IGlobalStats#updateStats(int, int, IterationStats)
+	 */
+	@Override
+	public void updateStats(int wId, int iter, IterationStats stats) {
+		this.slots.put(wId, stats);
+	}
+
+	/**
+	 * Add the partial statistics of all workers and put them in the buffer, 
+	 * waiting for space if the buffer is full.
+	 * 
+	 * @see IGlobalStats#commitStats(int)
+	 */
+	@Override
+	public void commitStats(int iter) {
+		this.restoreStats(iter, this.slots.sum());
+	}
+
+	/**
+	 * Restored statistics are also written to the file.
+	 * 
+	 * @see IGlobalStats#restoreStats(int, IterationStats)
+	 */
+	@Override
+	public void restoreStats(int iter, IterationStats stats) {
+		
+		this.recent.set(iter % this.recent.length(), stats);
+		this.lastIter = iter;
+		
+		/* Start writer thread if the statistics were not reset. */
+		if (this.writer == null) {
+			synchronized (this.writerLock) {
+				if (this.writer == null) this.startWriter();
+			}
+		}
+		
+		try {
+			this.queue.put(stats);
+		} catch (InterruptedException ie) {
+			/* Keep the interrupt status, the simulation is being stopped. */
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Statistics have already been streamed, so this method waits for the 
+	 * writer thread to write and flush the statistics committed so far, while
+	 * the writer thread keeps streaming the following ones. If a different 
+	 * filename is given, the streamed file is copied to it.
+	 * 
+	 * @see IGlobalStats#export(String, int)
+	 */
+	@Override
+	public void export(String filename, int numCells) throws IOException {
+		
+		this.flush();
+		
+		File streamed = new File(this.filename);
+		File exported = new File(filename);
+		if (!streamed.getCanonicalFile().equals(exported.getCanonicalFile())) {
+			Files.copy(streamed.toPath(), exported.toPath(), 
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Wait for the writer thread to write and flush the statistics committed
+	 * so far, while it keeps streaming the following ones. Can be called 
+	 * from any thread, including while workers commit statistics.
+	 * 
+	 * @throws IOException If an error occurred while writing statistics.
+	 */
+	public void flush() throws IOException {
+		
+		synchronized (this.writerLock) {
+			if (this.writer != null) {
+				try {
+					this.queue.put(FLUSH);
+					this.flushed.acquire();
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while flushing statistics.");
+				}
+			}
+		}
+		
+		if (this.writeError != null) {
+			throw this.writeError;
+		}
+	}
+
+	/**
+	 * Any statistics being streamed are written, and the file is opened 
+	 * again, so that the next simulation overwrites them (except those of 
+	 * the iterations to keep). Must not be called
+	 * while workers commit statistics.
+	 * 
+	 * @see IGlobalStats#reset()
+	 */
+	@Override
+	public void reset() {
+		synchronized (this.writerLock) {
+			this.finish();
+			this.writeError = null;
+			this.lastIter = -1;
+			for (int i = 0; i < this.recent.length(); i++) {
+				this.recent.set(i, null);
+			}
+			this.startWriter();
+		}
+	}
+	
+	/**
+	 * Start the writer thread, which opens the file and truncates it after 
+	 * the statistics of the iterations to keep. Must be called with the 
+	 * writer lock held.
+	 */
+	private void startWriter() {
+		
+		this.writer = new Thread(new Runnable() {
+			
+			@Override
+			public void run() {
+				
+				Writer out = null;
+				
+				try {
+					if (keepIters > 0) {
+						long length = keptLength();
+						RandomAccessFile file = new RandomAccessFile(filename, "rw");
+						try {
+							file.setLength(length);
+						} finally {
+							file.close();
+						}
+					}
+					out = new BufferedWriter(new FileWriter(filename, keepIters > 0));
+				} catch (IOException ioe) {
+					writeError = ioe;
+				}
+				
+				try {
+					
+					IterationStats stats;
+					while ((stats = queue.take()) != END) {
+						
+						if (stats == FLUSH) {
+							
+							if (writeError == null) {
+								try {
+									out.flush();
+								} catch (IOException ioe) {
+									writeError = ioe;
+								}
+							}
+							flushed.release();
+							
+						} else if (writeError == null) {
+							
+							/* After errors, keep consuming the stream, so that
+							 * the simulation is not blocked. */
+							try {
+								out.write(stats.toTsv(numCells));
+								out.write('\n');
+								
+								/* Flush when there is nothing else to write. */
+								if (queue.isEmpty()) out.flush();
+								
+							} catch (IOException ioe) {
+								writeError = ioe;
+							}
+						}
+					}
+					
+				} catch (InterruptedException ie) {
+					/* Writer was asked to stop. */
+					
+				} finally {
+					
+					if (out != null) {
+						try {
+							out.close();
+						} catch (IOException ioe) {
+							if (writeError == null) writeError = ioe;
+						}
+					}
+				}
+			}
+		}, "StatsWriter");
+		
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+	
+	/**
+	 * Get the length of the beginning of the file which has the statistics 
+	 * of the iterations to keep, one line per iteration.
+	 * 
+	 * @return Length of the statistics to keep, in bytes.
+	 * @throws IOException If the file doesn't have the statistics of the 
+	 * iterations to keep, or if an I/O error occurs.
+	 */
+	private long keptLength() throws IOException {
+		
+		long length = 0;
+		int lines = 0;
+		InputStream in = new BufferedInputStream(new FileInputStream(this.filename));
+		try {
+			int b;
+			while (lines < this.keepIters && (b = in.read()) >= 0) {
+				length++;
+				if (b == '\n') lines++;
+			}
+		} finally {
+			in.close();
+		}
+		
+		if (lines < this.keepIters) {
+			throw new IOException("Statistics file '" + this.filename 
+					+ "' doesn't have the statistics of the first " 
+					+ this.keepIters + " iterations.");
+		}
+		return length;
+	}
+	
+	/**
+	 * Signal the end of the statistics stream and wait for the writer thread
+	 * to finish, if it was started. Must be called with the writer lock held.
+	 */
+	private void finish() {
+		
+		if (this.writer != null) {
+			
+			try {
+				this.queue.put(END);
+				this.writer.join();
+			} catch (InterruptedException ie) {
+				this.writer.interrupt();
+				Thread.currentThread().interrupt();
+			}
+			this.writer = null;
+			this.queue.clear();
+		}
+	}
+
+}
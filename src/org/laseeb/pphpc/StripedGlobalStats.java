@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe management of global simulation statistics without contention.
+ * Each worker writes its partial statistics into its own slot, padded so that
+ * no two workers share a cache line. Partial statistics are added once per
+ * iteration, when {@link #commitStats(int)} is invoked after all workers 
+ * updated them.
+ * 
+ * @author Nuno Fachada
+ */
+public class StripedGlobalStats extends AbstractGlobalStats {
+	
+	/* Per-worker slots for partial statistics. */
+	private PaddedStatsSlots slots;
+
+	/* Sheep count. */
+	private AtomicIntegerArray sheepCount;
+
+	/* Wolves count. */
+	private AtomicIntegerArray wolvesCount;
+
+	/* Grass alive. */
+	private AtomicIntegerArray grassAlive;
+
+	/* Total sheep energy. */
+	private AtomicLongArray sheepEnergy;
+
+	/* Total wolf energy. */
+	private AtomicLongArray wolvesEnergy;
+
+	/* Total grass countdown. */
+	private AtomicLongArray grassCountdown;
+	
+	/**
+	 * Create a new striped global statistics object.
+	 * 
+	 * @param iters Number of iterations.
+	 * @param numWorkers Number of workers.
+	 */
+	public StripedGlobalStats(int iters, int numWorkers) {
+		
+		super(iters);
+		this.slots = new PaddedStatsSlots(numWorkers);
+		this.reset();
+	}
+	
+	/**
+	 * @see IGlobalStats#getStats(StatType, int)
+	 */
+	@Override
+	public Number getStats(StatType st, int iter) {
+		
+		switch (st) {
+			case SHEEP_COUNT:
+				return this.sheepCount.get(iter);
+			case WOLVES_COUNT:
+				return this.wolvesCount.get(iter);
+			case GRASS_ALIVE:
+				return this.grassAlive.get(iter);
+			case SHEEP_ENERGY:
+				return this.sheepEnergy.get(iter);
+			case WOLVES_ENERGY:
+				return this.wolvesEnergy.get(iter);
+			case GRASS_COUNTDOWN:
+				return this.grassCountdown.get(iter);
+		}
+		return 0;
+	}
+
+	/**
+	 * Partial statistics are only kept in the worker slot, replacing the 
+	 * ones from the previous iteration.
+	 * 
+	 * @see IGlobalStats#updateStats(int, int, IterationStats)
+	 */
+	@Override
+	public void updateStats(int wId, int iter, IterationStats stats) {
+		this.slots.put(wId, stats);
+	}
+
+	/**
+	 * Add the partial statistics in the worker slots.
+	 * 
+	 * @see IGlobalStats#commitStats(int)
+	 */
+	@Override
+	public void commitStats(int iter) {
+		this.restoreStats(iter, this.slots.sum());
+	}
+
+	/**
+	 * @see IGlobalStats#restoreStats(int, IterationStats)
+	 */
+	@Override
+	public void restoreStats(int iter, IterationStats stats) {
+		this.sheepCount.set(iter, stats.getSheepCount());
+		this.wolvesCount.set(iter, stats.getWolvesCount());
+		this.grassAlive.set(iter, stats.getGrassAlive());
+		this.sheepEnergy.set(iter, stats.getSheepEnergy());
+		this.wolvesEnergy.set(iter, stats.getWolvesEnergy());
+		this.grassCountdown.set(iter, stats.getGrassCountdown());
+	}
+
+	/**
+	 * @see IGlobalStats#getStats(int)
+	 */
+	@Override
+	public IterationStats getStats(int iter) {
+		return new IterationStats(
+				this.sheepCount.get(iter), this.wolvesCount.get(iter), this.grassAlive.get(iter),
+				this.sheepEnergy.get(iter), this.wolvesEnergy.get(iter), this.grassCountdown.get(iter));
+	}
+
+	/**
+	 * @see IGlobalStats#reset()
+	 */
+	@Override
+	public void reset() {
+		this.sheepCount = new AtomicIntegerArray(this.iters + 1);
+		this.wolvesCount = new AtomicIntegerArray(this.iters + 1);
+		this.grassAlive = new AtomicIntegerArray(this.iters + 1);
+		this.sheepEnergy = new AtomicLongArray(this.iters + 1);
+		this.wolvesEnergy = new AtomicLongArray(this.iters + 1);
+		this.grassCountdown = new AtomicLongArray(this.iters + 1);
+	}
+
+}
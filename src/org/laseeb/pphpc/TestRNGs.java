@@ -26,18 +26,17 @@
 
 package org.laseeb.pphpc;
 
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
-import java.util.Random;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.random.RandomGenerator;
 
 import org.laseeb.pphpc.PredPrey.Errors;
-import org.uncommons.maths.random.AESCounterRNG;
-import org.uncommons.maths.random.CMWC4096RNG;
-import org.uncommons.maths.random.CellularAutomatonRNG;
-import org.uncommons.maths.random.JavaRNG;
-import org.uncommons.maths.random.MersenneTwisterRNG;
-import org.uncommons.maths.random.SeedGenerator;
-import org.uncommons.maths.random.XORShiftRNG;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
@@ -48,9 +47,19 @@ import com.beust.jcommander.ParameterException;
  * 
  * Usage: java -cp bin:lib/* org.laseeb.pphpc.TestRNGs | dieharder -g 200 -a
  * 
+ * With several threads (-n option), the generators of the corresponding 
+ * simulation workers produce numbers concurrently, and their output is 
+ * interleaved in blocks, in thread order, so that it is reproducible.
+ * 
  * @author Nuno Fachada
  */
 public class TestRNGs {
+	
+	/* Size of the blocks of random bytes sent to stdout. */
+	private static final int BLOCK_SIZE = 32768;
+	
+	/* Number of blocks per thread. */
+	private static final int NUM_BLOCKS = 2;
 
 	/* Seed for random number generator. */
 	@Parameter(names = "-r", description = "Seed for random number generator (defaults to System.nanoTime())", 
@@ -58,10 +67,22 @@ public class TestRNGs {
 	private BigInteger seed = null;
 	
 	/* Random number generator implementation. */
-	@Parameter(names = "-g", description = "Random number generator (AES, CA, CMWC, JAVA, MT, RANDU, REALLYPOOR or XORSHIFT)", 
+	@Parameter(names = "-g", description = "Random number generator (AES, CA, CMWC, JAVA, JAVASPLIT, MT, "
+			+ "RANDU, MODMIDSQUARE, XORSHIFT, PCG128, PCG64, KISS64, LCG64, L64X128M, L128X256M, "
+			+ "XOSHIRO, XOROSHIRO or SPLIT)", 
 			converter =  RNGTypeConverter.class)
 	private RNGType rngType = RNGType.MT;
 	
+	/* Use the legacy derivation of seeds. */
+	@Parameter(names = "--legacy-seeds", description = "Derive the seed as in earlier versions")
+	private boolean legacySeeds = false;
+	
+	/* Number of threads. */
+	@Parameter(names = "-n", description = "Number of threads, each generating numbers with the "
+			+ "generator of the simulation worker with the same ID; the output of threads is "
+			+ "interleaved in blocks of " + BLOCK_SIZE + " bytes, in thread order")
+	private int numThreads = 1;
+	
 	/* Help option. */
 	@Parameter(names = {"--help", "-h", "-?"}, description = "Show options", help = true)
 	private boolean help;
@@ -103,62 +124,105 @@ public class TestRNGs {
 			System.exit(Errors.NONE.getValue());
 		}
 		
+		/* Check number of threads. */
+		if (this.numThreads < 1) {
+			System.err.println("Number of threads must be positive.");
+			parser.usage();
+			System.exit(Errors.ARGS.getValue());
+		}
+		
 		/* Setup seed for random number generator. */
 		if (this.seed == null)
 			this.seed = BigInteger.valueOf(System.nanoTime());
 
-		/* Create random number generator. */
-		Random rng = null;
+		/* Create one random number generator per thread, as created for
+		 * simulation workers, and a block generator for each of them. */
+		RNGStreams streams = new RNGStreams(
+				this.rngType, this.seed, this.legacySeeds, this.numThreads);
+		streams.reset();
+		BlockGenerator[] generators = new BlockGenerator[this.numThreads];
 		try {
-			rng = this.createRNG(0);
+			for (int i = 0; i < this.numThreads; i++) {
+				generators[i] = new BlockGenerator(streams.get(i));
+			}
 		} catch (Exception e) {
 			System.err.println(e.getMessage());
 			System.exit(Errors.OTHER.getValue());
 		}
 		
-		/* Generate random bits and send to stdout. */
-		byte[] bytes = new byte[32768];
-		while (true) {
-			rng.nextBytes(bytes);
-			try {
-				System.out.write(bytes);
-			} catch (IOException e) {
-				e.printStackTrace();
+		/* Start generating blocks in parallel. */
+		for (int i = 0; i < this.numThreads; i++) {
+			Thread thread = new Thread(generators[i]);
+			thread.setDaemon(true);
+			thread.start();
+		}
+		
+		/* Send blocks to stdout, in thread order, until stdout is closed 
+		 * (e.g. when Dieharder finishes). */
+		FileChannel out = new FileOutputStream(FileDescriptor.out).getChannel();
+		try {
+			while (true) {
+				for (BlockGenerator generator : generators) {
+					ByteBuffer block = generator.full.take();
+					while (block.hasRemaining()) {
+						out.write(block);
+					}
+					generator.empty.put(block);
+				}
 			}
+		} catch (IOException | InterruptedException e) {
+			System.exit(Errors.NONE.getValue());
 		}
 	}
 	
 	/**
-	 * Create random number generator.
-	 * @param modifier
-	 * @return A random number generator.
-	 * @throws Exception
+	 * Fills blocks of random bytes with a random number generator, in its 
+	 * own thread. Two blocks are used, so that one can be filled while the 
+	 * other is being sent to stdout.
 	 */
-	private Random createRNG(int modifier) throws Exception {
+	private static class BlockGenerator implements Runnable {
+		
+		/* Random number generator owned by this block generator. */
+		private final RandomGenerator rng;
+		
+		/* Blocks ready to be sent to stdout. */
+		private final BlockingQueue<ByteBuffer> full = 
+				new ArrayBlockingQueue<ByteBuffer>(NUM_BLOCKS);
+		
+		/* Blocks ready to be filled. */
+		private final BlockingQueue<ByteBuffer> empty = 
+				new ArrayBlockingQueue<ByteBuffer>(NUM_BLOCKS);
 		
-		SeedGenerator seedGen = new ModelSeedGenerator(modifier, this.seed);
+		/**
+		 * Create a new block generator.
+		 * 
+		 * @param rng Random number generator which fills the blocks.
+		 */
+		BlockGenerator(RandomGenerator rng) {
+			this.rng = rng;
+			for (int i = 0; i < NUM_BLOCKS; i++) {
+				this.empty.add(ByteBuffer.allocate(BLOCK_SIZE));
+			}
+		}
 
-		switch (this.rngType) {
-			case AES:
-				return new AESCounterRNG(seedGen);
-			case CA:
-				return new CellularAutomatonRNG(seedGen);
-			case CMWC:
-				return new CMWC4096RNG(seedGen);
-			case JAVA:
-				return new JavaRNG(seedGen);
-			case MT:
-				return new MersenneTwisterRNG(seedGen);
-			case RANDU:
-				return new RanduRNG(seedGen);
-			case MODMIDSQUARE:
-				return new ModMidSquareRNG(seedGen);
-			case XORSHIFT: 
-				return new XORShiftRNG(seedGen);
-			default:
-				throw new RuntimeException("Don't know this random number generator.");
+		/**
+		 * Fill blocks while there are empty blocks, indefinitely.
+		 * 
+		 * @see java.lang.Runnable#run()
+		 */
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					ByteBuffer block = this.empty.take();
+					this.rng.nextBytes(block.array());
+					block.clear();
+					this.full.put(block);
+				}
+			} catch (InterruptedException e) {
+				/* Just let thread finish. */
+			}
 		}
-		
 	}
 
-}
\ No newline at end of file
+}
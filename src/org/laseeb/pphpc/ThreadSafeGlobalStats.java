@@ -35,7 +35,7 @@ import java.util.concurrent.atomic.AtomicLongArray;
  * 
  * @author Nuno Fachada
  */
-public class ThreadSafeGlobalStats implements IGlobalStats {
+public class ThreadSafeGlobalStats extends AbstractGlobalStats {
 
 	/* Sheep count. */
 	private AtomicIntegerArray sheepCount;
@@ -55,9 +55,6 @@ public class ThreadSafeGlobalStats implements IGlobalStats {
 	/* Total grass countdown. */
 	private AtomicLongArray grassCountdown;
 	
-	/* Number of iterations. */
-	private int iters;
-	
 	/**
 	 * Create a new thread-safe global statistics object.
 	 * 
@@ -65,7 +62,7 @@ public class ThreadSafeGlobalStats implements IGlobalStats {
 	 */
 	public ThreadSafeGlobalStats(int iters) {
 		
-		this.iters = iters;
+		super(iters);
 		this.reset();
 	}
 	
@@ -93,10 +90,10 @@ public class ThreadSafeGlobalStats implements IGlobalStats {
 	}
 
 	/**
-	 * @see IGlobalStats#updateStats(int, IterationStats)
+	 * @see IGlobalStats#updateStats(int, int, IterationStats)
 	 */
 	@Override
-	public void updateStats(int iter, IterationStats stats) {
+	public void updateStats(int wId, int iter, IterationStats stats) {
 		this.sheepCount.addAndGet(iter, stats.getSheepCount());
 		this.wolvesCount.addAndGet(iter, stats.getWolvesCount());
 		this.grassAlive.addAndGet(iter, stats.getGrassAlive());
@@ -105,13 +102,34 @@ public class ThreadSafeGlobalStats implements IGlobalStats {
 		this.grassCountdown.addAndGet(iter, stats.getGrassCountdown());
 	}
 
+	/**
+	 * Does nothing, statistics are updated directly.
+	 * 
+	 * @see IGlobalStats#commitStats(int)
+	 */
+	@Override
+	public void commitStats(int iter) {}
+
+	/**
+	 * @see IGlobalStats#restoreStats(int, IterationStats)
+	 */
+	@Override
+	public void restoreStats(int iter, IterationStats stats) {
+		this.sheepCount.set(iter, stats.getSheepCount());
+		this.wolvesCount.set(iter, stats.getWolvesCount());
+		this.grassAlive.set(iter, stats.getGrassAlive());
+		this.sheepEnergy.set(iter, stats.getSheepEnergy());
+		this.wolvesEnergy.set(iter, stats.getWolvesEnergy());
+		this.grassCountdown.set(iter, stats.getGrassCountdown());
+	}
+
 	/**
 	 * @see IGlobalStats#getStats(int)
 	 */
 	@Override
 	public IterationStats getStats(int iter) {
 		return new IterationStats(
-				this.sheepCount.get(iter), this.wolvesCount.get(iter), this.sheepCount.get(iter),
+				this.sheepCount.get(iter), this.wolvesCount.get(iter), this.grassAlive.get(iter),
 				this.sheepEnergy.get(iter), this.wolvesEnergy.get(iter), this.grassCountdown.get(iter));
 	}
 
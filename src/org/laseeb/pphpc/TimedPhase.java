@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+/**
+ * Enumeration of the phases of a simulation worker which can be timed.
+ * Barrier waits include the time taken by barrier actions, such as 
+ * committing global statistics.
+ * 
+ * @author Nuno Fachada
+ */
+public enum TimedPhase {
+	
+	/** Initialization of cells and agents, and first statistics. */
+	INIT("init"),
+	/** Agent movement. */
+	MOVE_AGENTS("move"),
+	/** Grass growth. */
+	GROW_GRASS("grass"),
+	/** Agent movement and grass growth, when performed in the same pass 
+	 * over the cells. */
+	MOVE_GROW_GRASS("move+grass"),
+	/** Wait at the half iteration barrier. */
+	HALF_ITERATION_WAIT("wait half"),
+	/** Agent actions and gathering of partial statistics. */
+	AGENT_ACTIONS_STATS("act+stats"),
+	/** Update of global statistics. */
+	UPDATE_STATS("upd stats"),
+	/** Wait at the barrier before checkpoints and spatial frames. */
+	CAPTURE_WAIT("wait capt"),
+	/** Capture of checkpoints and spatial frames. */
+	CAPTURE("capture"),
+	/** Wait at the end of iteration barrier. */
+	END_ITERATION_WAIT("wait end");
+	
+	/* Short name of phase. */
+	private String shortName;
+	
+	/**
+	 * Create a timed phase.
+	 * 
+	 * @param shortName Short name of phase.
+	 */
+	private TimedPhase(String shortName) {
+		this.shortName = shortName;
+	}
+	
+	/**
+	 * Get the short name of phase, used in reports.
+	 * 
+	 * @return Short name of phase.
+	 */
+	public String getShortName() {
+		return this.shortName;
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2014, 2015, Nuno Fachada
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.laseeb.pphpc;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementation of the CSR kernels with the vector API, using the preferred
+ * vector size of the platform (e.g. 8 integers with AVX2, 16 with AVX-512). 
+ * The remaining elements of each range are processed with scalar code.
+ * 
+ * This class requires the <tt>jdk.incubator.vector</tt> module, which must be
+ * added to the JVM with <tt>--add-modules jdk.incubator.vector</tt>. Use
+ * {@link CsrGrid#getKernels()} to get the best available kernel set.
+ * 
+ * @author Nuno Fachada
+ */
+public class VectorCsrKernels implements ICsrKernels {
+	
+	/* Preferred species for integer vectors. */
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	/* Scalar kernels, for the remaining elements of each range. */
+	private ScalarCsrKernels scalar = new ScalarCsrKernels();
+
+	/**
+	 * @see ICsrKernels#regenerateGrass(int[], int, int)
+	 */
+	@Override
+	public void regenerateGrass(int[] grass, int from, int to) {
+		int i = from;
+		for (int upper = to - SPECIES.length(); i <= upper; i += SPECIES.length()) {
+			IntVector.fromArray(SPECIES, grass, i).sub(1).max(0).intoArray(grass, i);
+		}
+		this.scalar.regenerateGrass(grass, i, to);
+	}
+
+	/**
+	 * @see ICsrKernels#decEnergy(int[], int, int)
+	 */
+	@Override
+	public void decEnergy(int[] energy, int from, int to) {
+		int i = from;
+		for (int upper = to - SPECIES.length(); i <= upper; i += SPECIES.length()) {
+			IntVector v = IntVector.fromArray(SPECIES, energy, i);
+			VectorMask<Integer> alive = v.compare(VectorOperators.GT, 0);
+			v.sub(1, alive).intoArray(energy, i);
+		}
+		this.scalar.decEnergy(energy, i, to);
+	}
+
+	/**
+	 * @see ICsrKernels#countZeros(int[], int, int)
+	 */
+	@Override
+	public int countZeros(int[] values, int from, int to) {
+		int count = 0;
+		int i = from;
+		for (int upper = to - SPECIES.length(); i <= upper; i += SPECIES.length()) {
+			count += IntVector.fromArray(SPECIES, values, i)
+					.compare(VectorOperators.EQ, 0).trueCount();
+		}
+		return count + this.scalar.countZeros(values, i, to);
+	}
+
+	/**
+	 * Partial sums are kept in integer lanes for a bounded number of vectors,
+	 * and then added to a long accumulator, so that no overflow occurs for 
+	 * values with less than 24 bits.
+	 * 
+	 * @see ICsrKernels#sum(int[], int, int)
+	 */
+	@Override
+	public long sum(int[] values, int from, int to) {
+		long sum = 0;
+		int i = from;
+		int upper = to - SPECIES.length();
+		while (i <= upper) {
+			IntVector acc = IntVector.zero(SPECIES);
+			for (int n = 0; n < 128 && i <= upper; n++, i += SPECIES.length()) {
+				acc = acc.add(IntVector.fromArray(SPECIES, values, i));
+			}
+			sum += ((LongVector) acc.convert(VectorOperators.I2L, 0))
+					.reduceLanes(VectorOperators.ADD);
+			if (SPECIES.length() > 1) {
+				sum += ((LongVector) acc.convert(VectorOperators.I2L, 1))
+						.reduceLanes(VectorOperators.ADD);
+			}
+		}
+		return sum + this.scalar.sum(values, i, to);
+	}
+
+	/**
+	 * @see ICsrKernels#getDescription()
+	 */
+	@Override
+	public String getDescription() {
+		return "vector (" + SPECIES.vectorBitSize() + " bits)";
+	}
+
+}
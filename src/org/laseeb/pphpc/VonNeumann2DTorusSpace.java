@@ -36,6 +36,9 @@ import java.util.List;
  * @author Nuno Fachada
  */
 public class VonNeumann2DTorusSpace implements ISpace {
+	
+	/* Number of cells in a Von Neumann neighborhood. */
+	private static final int NEIGHBORHOOD_SIZE = 5;
 
 	/* Horizontal space size. */
 	private int x;
@@ -68,17 +71,39 @@ public class VonNeumann2DTorusSpace implements ISpace {
 	public void setNeighbors(ICell[] cells, int idx) {
 		
 		/* Determine Von Neumann neighbors. */
-		int up = idx - this.x >= 0 ? idx - this.x : this.size - x + idx;
-		int down = idx + this.x < this.size  ? idx + this.x : idx + this.x - this.size;
-		int right = idx + 1 < this.size ? idx + 1 : 0;
-		int left = idx - 1 >= 0 ? idx - 1 : this.size - 1;
+		int[] neighs = new int[NEIGHBORHOOD_SIZE];
+		this.getNeighbors(idx, neighs);
 		
 		/* Set Von Neumann neighborhood. */
 		List<ICell> neighborhood = Arrays.asList(
-				cells[idx], cells[up], cells[right], cells[down], cells[left]); 
+				cells[neighs[0]], cells[neighs[1]], cells[neighs[2]], 
+				cells[neighs[3]], cells[neighs[4]]); 
 	
 		cells[idx].setNeighborhood(Collections.unmodifiableList(neighborhood));
 	}
+	
+	/**
+	 * The neighbors are given in the following order: the cell itself, up,
+	 * right, down and left.
+	 * 
+	 * @see ISpace#getNeighbors(int, int[])
+	 */
+	@Override
+	public void getNeighbors(int idx, int[] neighbors) {
+		neighbors[0] = idx;
+		neighbors[1] = idx - this.x >= 0 ? idx - this.x : this.size - x + idx;
+		neighbors[2] = idx + 1 < this.size ? idx + 1 : 0;
+		neighbors[3] = idx + this.x < this.size  ? idx + this.x : idx + this.x - this.size;
+		neighbors[4] = idx - 1 >= 0 ? idx - 1 : this.size - 1;
+	}
+	
+	/**
+	 * @see ISpace#getNeighborhoodSize()
+	 */
+	@Override
+	public int getNeighborhoodSize() {
+		return NEIGHBORHOOD_SIZE;
+	}
 
 	/**
 	 * @see ISpace#getNumDims()